@@ -0,0 +1,44 @@
+package com.example.rememberconstellations.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the regular JMH command line, but writes results as JSON by default,
+ * to {@code target/jmh-result-<timestamp>.json}, so runs before and after a change can be compared.
+ */
+public final class BenchmarkRunner {
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+            // list and help output is only printed by the JMH launcher
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLineOptions);
+        if (!commandLineOptions.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLineOptions.getResult().hasValue()) {
+            Files.createDirectories(Path.of("target"));
+            String extension = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON).toString().toLowerCase();
+            options.result("target/jmh-result-" + LocalDateTime.now().format(TIMESTAMP_FORMATTER) + "." + extension);
+        }
+        new Runner(options.build()).run();
+    }
+}
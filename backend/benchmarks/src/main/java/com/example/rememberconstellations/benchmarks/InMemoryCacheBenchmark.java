@@ -0,0 +1,105 @@
+package com.example.rememberconstellations.benchmarks;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import com.example.rememberconstellations.cache.SizeEstimator;
+import com.example.rememberconstellations.dtos.StarDto;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the star cache operations under contention. Keys are skewed towards a hot set, and twice as many
+ * distinct keys as the cache holds are requested, so reads see both hits and misses and writes cause evictions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryCacheBenchmark {
+    private static final int KEY_SEQUENCE_MASK = (1 << 16) - 1;
+
+    @Param({"20000"})
+    private int maxSize;
+
+    @Param({"false", "true"})
+    private boolean weighed;
+
+    private InMemoryCache<Integer, StarDto> cache;
+    private Integer[] keys;
+    private StarDto star;
+
+    @Setup
+    public void setUp() {
+        CacheSettings settings = new CacheSettings(maxSize, Duration.ofHours(1), true);
+        cache = weighed
+                ? new InMemoryCache<>("stars", settings,
+                        (id, starDto) -> SizeEstimator.ofStar(starDto))
+                : new InMemoryCache<>("stars", settings);
+        star = new StarDto(1, "Betelgeuse", "Red supergiant", 16.5, 764.0, 3600.0, 126000.0, 88.79, 7.41,
+                "Alpha", "star_placeholder.svg", 1);
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new Integer[KEY_SEQUENCE_MASK + 1];
+        for (int i = 0; i < keys.length; i++) {
+            // cubing a uniform value concentrates keys near zero
+            double uniform = random.nextDouble();
+            keys[i] = (int) (2L * maxSize * uniform * uniform * uniform);
+        }
+        for (Integer key : keys) {
+            cache.put(key, star);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KeyCursor {
+        private int index = ThreadLocalRandom.current().nextInt();
+
+        Integer next(Integer[] keys) {
+            return keys[index++ & KEY_SEQUENCE_MASK];
+        }
+    }
+
+    @Benchmark
+    @Group("read")
+    @GroupThreads(4)
+    public StarDto read(KeyCursor cursor) {
+        return cache.get(cursor.next(keys));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public StarDto readWriteGet(KeyCursor cursor) {
+        return cache.get(cursor.next(keys));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWritePut(KeyCursor cursor) {
+        cache.put(cursor.next(keys), star);
+    }
+
+    @Benchmark
+    @Group("getOrLoad")
+    @GroupThreads(4)
+    public StarDto getOrLoad(KeyCursor cursor) {
+        return cache.getOrLoad(cursor.next(keys), id -> star);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.rememberconstellations.benchmarks;
+
+import com.example.rememberconstellations.mappers.LogRequestMapper;
+import com.example.rememberconstellations.services.LogsService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.Resource;
+
+/**
+ * Scan of the application log for the lines of one day, over a generated log of 30 days in the format
+ * Spring Boot writes to {@code logs/app.log}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogScanBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 3, 1);
+    private static final int DAYS = 30;
+
+    @Param({"100000", "1000000"})
+    private int lineCount;
+
+    private Path logFile;
+    private LogsService logsService;
+
+    @Setup
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("app", ".log");
+        try (BufferedWriter writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8)) {
+            int linesPerDay = Math.max(1, lineCount / DAYS);
+            for (int i = 0; i < lineCount; i++) {
+                LocalDate day = FIRST_DAY.plusDays(Math.min(DAYS - 1, i / linesPerDay));
+                writer.write(String.format("%sT%02d:%02d:%02d.%03d+03:00  INFO 4242 --- [Remember-Constellations] "
+                                + "[nio-8080-exec-%d] c.e.r.services.StarsService              : "
+                                + "Star with id %d was retrieved from repository and cached",
+                        day, i % 24, i % 60, i % 60, i % 1000, i % 10 + 1, i));
+                writer.newLine();
+            }
+        }
+        Path generatedLogFile = logFile;
+        logsService = new LogsService(new LogRequestMapper()) {
+            @Override
+            public Path getLogFilePath() {
+                return generatedLogFile;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public Resource scanMiddleDay() {
+        return logsService.getLogFileForDate("15.03.2025");
+    }
+}
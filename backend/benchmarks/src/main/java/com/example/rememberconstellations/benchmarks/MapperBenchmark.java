@@ -0,0 +1,73 @@
+package com.example.rememberconstellations.benchmarks;
+
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.mappers.ConstellationMapper;
+import com.example.rememberconstellations.mappers.StarMapper;
+import com.example.rememberconstellations.models.Constellation;
+import com.example.rememberconstellations.models.Star;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of mapping entities to DTOs, for a single star and for constellations of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int starCount;
+
+    private final StarMapper starMapper = new StarMapper();
+    private final ConstellationMapper constellationMapper = new ConstellationMapper(starMapper);
+    private Constellation constellation;
+    private Star star;
+
+    @Setup
+    public void setUp() {
+        constellation = new Constellation();
+        constellation.setId(1);
+        constellation.setName("Orion");
+        constellation.setAbbreviation("Ori");
+        constellation.setFamily("Orion");
+        constellation.setRegion("Equatorial");
+        constellation.setImageUrl("const_placeholder.svg");
+        List<Star> stars = new ArrayList<>(starCount);
+        for (int i = 0; i < starCount; i++) {
+            Star constellationStar = new Star("Star " + i, "Main sequence", 1.0 + i % 7, 1.0 + i % 5,
+                    5000.0 + i, 1.0 + i % 11, (i * 0.37) % 360, (i * 0.11) % 90 - 45, "Position " + i);
+            constellationStar.setId(i + 1);
+            constellationStar.setConstellation(constellation);
+            stars.add(constellationStar);
+        }
+        constellation.setStars(stars);
+        star = stars.get(0);
+    }
+
+    @Benchmark
+    public StarDto mapStar() {
+        return starMapper.mapToDto(star);
+    }
+
+    @Benchmark
+    public ConstellationDto mapConstellation() {
+        return constellationMapper.mapToDto(constellation);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.rememberconstellations.benchmarks;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serialization of star lists as returned by the search endpoints, with an object mapper configured
+ * the way Spring MVC configures its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StarJsonBenchmark {
+
+    @Param({"100", "10000"})
+    private int starCount;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<StarDto> stars;
+
+    @Setup
+    public void setUp() {
+        stars = new ArrayList<>(starCount);
+        for (int i = 0; i < starCount; i++) {
+            stars.add(new StarDto(i + 1, "Star " + i, "Main sequence", 1.0 + i % 7, 1.0 + i % 5, 5000.0 + i,
+                    1.0 + i % 11, (i * 0.37) % 360, (i * 0.11) % 90 - 45, "Position " + i, "star_placeholder.svg",
+                    i % 88 + 1));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeStars() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(stars);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.rememberconstellations.aspects;
 
+import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
 import java.util.Arrays;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -35,6 +36,14 @@ public class LoggingAspect {
 
     @AfterThrowing(pointcut = "within(com.example.rememberconstellations.services..*)", throwing = "exception")
     public void logAfterThrowing(JoinPoint joinPoint, Throwable exception) {
+        if (exception instanceof ResourceNotFoundException) {
+            // expected outcome of a lookup, the stack trace carries no information
+            logger.warn("Exception in {} with arguments {}: {}",
+                    joinPoint.getSignature().toShortString(),
+                    Arrays.toString(joinPoint.getArgs()),
+                    exception.getMessage());
+            return;
+        }
         logger.error("Exception in {} with arguments {}: {}",
                 joinPoint.getSignature().toShortString(),
                 Arrays.toString(joinPoint.getArgs()),
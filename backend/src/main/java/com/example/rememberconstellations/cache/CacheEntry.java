@@ -0,0 +1,38 @@
+package com.example.rememberconstellations.cache;
+
+final class CacheEntry<K, V> {
+    final K key;
+    // the value in the form chosen by InMemoryCache#toStored
+    final Object value;
+    final long writeTime;
+    final long weight;
+    volatile long accessTime;
+
+    // LRU links, guarded by the owning segment's lock
+    CacheEntry<K, V> previous;
+    CacheEntry<K, V> next;
+
+    // timer wheel links, guarded by the owning segment's lock
+    CacheEntry<K, V> timerPrevious;
+    CacheEntry<K, V> timerNext;
+    long deadline;
+
+    CacheEntry(K key, Object value, long now, long weight) {
+        this.key = key;
+        this.value = value;
+        this.writeTime = now;
+        this.accessTime = now;
+        this.weight = weight;
+    }
+
+    static <K, V> CacheEntry<K, V> sentinel() {
+        CacheEntry<K, V> sentinel = new CacheEntry<>(null, null, 0, 0);
+        sentinel.timerPrevious = sentinel;
+        sentinel.timerNext = sentinel;
+        return sentinel;
+    }
+
+    boolean isScheduled() {
+        return timerNext != null;
+    }
+}
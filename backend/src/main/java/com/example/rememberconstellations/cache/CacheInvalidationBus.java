@@ -0,0 +1,248 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.ConstellationChangedEvent;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import com.example.rememberconstellations.indexes.StarColumnIndex;
+import com.example.rememberconstellations.models.Constellation;
+import com.example.rememberconstellations.models.Star;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Propagates committed writes to the caches of the other instances of a deployment. Changed star and constellation
+ * ids are collected from the change events and sent by an {@link InvalidationTransport} once per flush interval,
+ * so a burst of writes to the same rows costs one message. Receivers drop the affected entries instead of patching
+ * them, and drop every cached query result of the affected kind. The Hibernate second-level cache of each instance
+ * is evicted the same way.
+ *
+ * <p>Message format: {@code 1;<sender id>;<sequence number>;<keys>}, keys being comma separated {@code S<star id>}
+ * and {@code C<constellation id>}. Sequence numbers count up per sender, so a receiver that sees a gap knows it
+ * missed invalidations and clears its caches. Without a transport configured the bus does nothing.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus implements InvalidationTransport.Listener {
+    private static final String FORMAT_VERSION = "1";
+    private static final char STAR_KEY = 'S';
+    private static final char CONSTELLATION_KEY = 'C';
+
+    private final InvalidationTransport transport;
+    private final StarCache starCache;
+    private final ConstellationCache constellationCache;
+    private final StarQueryCache starQueryCache;
+    private final ConstellationQueryCache constellationQueryCache;
+    private final MissingStarsCache missingStarsCache;
+    private final MissingConstellationsCache missingConstellationsCache;
+    private final StarColumnIndex starColumnIndex;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Duration flushInterval;
+    private final String senderId = UUID.randomUUID().toString();
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> lastSequenceBySender = new ConcurrentHashMap<>();
+    private long sequence;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    @SuppressWarnings("java:S107")
+    public CacheInvalidationBus(Optional<InvalidationTransport> transport, StarCache starCache,
+                                ConstellationCache constellationCache, StarQueryCache starQueryCache,
+                                ConstellationQueryCache constellationQueryCache, MissingStarsCache missingStarsCache,
+                                MissingConstellationsCache missingConstellationsCache,
+                                StarColumnIndex starColumnIndex, EntityManagerFactory entityManagerFactory,
+                                @Value("${cache.invalidation.flush-interval:100ms}") Duration flushInterval) {
+        this.transport = transport.orElse(null);
+        this.starCache = starCache;
+        this.constellationCache = constellationCache;
+        this.starQueryCache = starQueryCache;
+        this.constellationQueryCache = constellationQueryCache;
+        this.missingStarsCache = missingStarsCache;
+        this.missingConstellationsCache = missingConstellationsCache;
+        this.starColumnIndex = starColumnIndex;
+        this.entityManagerFactory = entityManagerFactory;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (transport == null) {
+            return;
+        }
+        transport.start(this);
+        long interval = flushInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (transport == null) {
+            return;
+        }
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        flushQuietly();
+        transport.stop();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStarChanged(StarChangedEvent event) {
+        if (transport == null) {
+            return;
+        }
+        pendingKeys.add(STAR_KEY + Integer.toString(event.getStarId()));
+        // constellations embed their stars, including ones the star left or joined
+        addConstellationKey(event.getBefore());
+        addConstellationKey(event.getAfter());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConstellationChanged(ConstellationChangedEvent event) {
+        if (transport == null) {
+            return;
+        }
+        int constellationId = event.getAfter() != null ? event.getAfter().getId() : event.getBefore().getId();
+        pendingKeys.add(CONSTELLATION_KEY + Integer.toString(constellationId));
+    }
+
+    private void addConstellationKey(StarDto star) {
+        if (star != null && star.getConstellationId() != null) {
+            pendingKeys.add(CONSTELLATION_KEY + Integer.toString(star.getConstellationId()));
+        }
+    }
+
+    /**
+     * Sends the keys collected since the last flush, split into messages the transport can carry.
+     * Keys that could not be sent stay pending for the next flush.
+     */
+    public synchronized void flush() throws IOException {
+        List<String> keys = new ArrayList<>();
+        Iterator<String> iterator = pendingKeys.iterator();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+            iterator.remove();
+        }
+        int sent = 0;
+        try {
+            while (sent < keys.size()) {
+                String header = FORMAT_VERSION + ';' + senderId + ';' + (sequence + 1) + ';';
+                StringBuilder message = new StringBuilder(header);
+                int batchEnd = sent;
+                while (batchEnd < keys.size()
+                        && (batchEnd == sent || message.length() + 1 + keys.get(batchEnd).length() <= transport.getMaxMessageLength())) {
+                    if (batchEnd > sent) {
+                        message.append(',');
+                    }
+                    message.append(keys.get(batchEnd++));
+                }
+                transport.send(message.toString());
+                sequence++;
+                sent = batchEnd;
+            }
+        } finally {
+            pendingKeys.addAll(keys.subList(sent, keys.size()));
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Failed to send cache invalidations, retrying on next flush: {}", exception.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(String message) {
+        String[] parts = message.split(";", 4);
+        if (parts.length != 4 || !FORMAT_VERSION.equals(parts[0])) {
+            log.warn("Ignoring cache invalidation message in unknown format: {}", message);
+            return;
+        }
+        if (senderId.equals(parts[1])) {
+            return;
+        }
+        try {
+            long messageSequence = Long.parseLong(parts[2]);
+            Long lastSequence = lastSequenceBySender.put(parts[1], messageSequence);
+            if (lastSequence != null && messageSequence != lastSequence + 1) {
+                log.warn("Missed cache invalidations from instance {} ({} after {})", parts[1], messageSequence, lastSequence);
+                onMessagesLost();
+                return;
+            }
+            Cache secondLevelCache = secondLevelCache();
+            boolean starsChanged = false;
+            boolean constellationsChanged = false;
+            for (String key : parts[3].split(",")) {
+                int id = Integer.parseInt(key.substring(1));
+                if (key.charAt(0) == STAR_KEY) {
+                    // evicted before the caches above it, so their reloads cannot read the old row from it
+                    secondLevelCache.evictEntityData(Star.class, id);
+                    starCache.remove(id);
+                    missingStarsCache.forget(id);
+                    starColumnIndex.invalidate(id);
+                    starsChanged = true;
+                } else if (key.charAt(0) == CONSTELLATION_KEY) {
+                    secondLevelCache.evictEntityData(Constellation.class, id);
+                    secondLevelCache.evictCollectionData(Constellation.class.getName() + ".stars", id);
+                    constellationCache.remove(id);
+                    missingConstellationsCache.forget(id);
+                    constellationsChanged = true;
+                }
+            }
+            // queries are cached by criteria, which ids alone cannot be matched against
+            if (starsChanged) {
+                secondLevelCache.evictQueryRegion(SecondLevelCacheConfig.STAR_NAME_QUERY_REGION);
+                secondLevelCache.evictQueryRegion(SecondLevelCacheConfig.STAR_TYPE_QUERY_REGION);
+                starQueryCache.invalidateAll();
+            }
+            if (constellationsChanged) {
+                secondLevelCache.evictQueryRegion(SecondLevelCacheConfig.NAME_QUERY_REGION);
+                constellationQueryCache.invalidateAll();
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Ignoring malformed cache invalidation message {}: {}", message, exception.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessagesLost() {
+        log.warn("Clearing caches after missing invalidations from other instances");
+        secondLevelCache().evictAllRegions();
+        starCache.clear();
+        constellationCache.clear();
+        starQueryCache.invalidateAll();
+        constellationQueryCache.invalidateAll();
+        missingStarsCache.clear();
+        missingConstellationsCache.clear();
+        starColumnIndex.rebuild();
+    }
+
+    private Cache secondLevelCache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.rememberconstellations.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CacheMetricsBinder implements MeterBinder {
+
+    private final List<InMemoryCache<?, ?>> caches;
+
+    @Autowired
+    public CacheMetricsBinder(List<InMemoryCache<?, ?>> caches) {
+        this.caches = caches;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (InMemoryCache<?, ?> cache : caches) {
+            Tags tags = Tags.of("cache", cache.getName());
+            Gauge.builder("cache.size", cache, c -> c.stats().getSize())
+                    .tags(tags)
+                    .description("The number of entries in the cache")
+                    .register(registry);
+            Gauge.builder("cache.weight", cache, c -> c.stats().getWeight())
+                    .tags(tags)
+                    .description("The total weight of the entries in the cache, in bytes for DTO caches")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("cache.capacity.factor", cache, InMemoryCache::getCapacityFactor)
+                    .tags(tags)
+                    .description("Fraction of the configured bounds in effect after heap pressure adjustments")
+                    .register(registry);
+            counter(registry, "cache.gets", tags.and("result", "hit"), cache, CacheStats::getHitCount);
+            counter(registry, "cache.gets", tags.and("result", "miss"), cache, CacheStats::getMissCount);
+            counter(registry, "cache.gets", tags.and("result", "stale"), cache, CacheStats::getStaleHitCount);
+            counter(registry, "cache.puts", tags, cache, CacheStats::getPutCount);
+            counter(registry, "cache.evictions", tags.and("cause", "size"), cache, CacheStats::getSizeEvictionCount);
+            counter(registry, "cache.evictions", tags.and("cause", "expired"), cache, CacheStats::getExpiryEvictionCount);
+            FunctionTimer.builder("cache.loads", cache,
+                            c -> c.stats().getLoadCount(),
+                            c -> c.stats().getTotalLoadTimeNanos(),
+                            TimeUnit.NANOSECONDS)
+                    .tags(tags)
+                    .description("Time spent loading values missing from the cache")
+                    .register(registry);
+            counter(registry, "cache.load.failures", tags, cache, CacheStats::getLoadFailureCount);
+            counter(registry, "cache.refreshes", tags, cache, CacheStats::getRefreshCount);
+        }
+    }
+
+    private static void counter(MeterRegistry registry, String name, Tags tags, InMemoryCache<?, ?> cache,
+                                ToDoubleFunction<CacheStats> value) {
+        FunctionCounter.builder(name, cache, c -> value.applyAsDouble(c.stats()))
+                .tags(tags)
+                .register(registry);
+    }
+}
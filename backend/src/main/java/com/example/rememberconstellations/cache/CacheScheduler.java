@@ -0,0 +1,81 @@
+package com.example.rememberconstellations.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+@Component
+public class CacheScheduler {
+
+    private final List<InMemoryCache<?, ?>> caches;
+    private final Duration tick;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // runs refresh-ahead reloads; a full queue makes caches keep serving the current value and retry later
+    private final ThreadPoolExecutor refreshExecutor;
+    private final TransactionTemplate refreshTransaction;
+
+    @Autowired
+    public CacheScheduler(List<InMemoryCache<?, ?>> caches, @Value("${cache.scheduler.tick:1s}") Duration tick,
+                          @Value("${cache.scheduler.refresh-threads:2}") int refreshThreads,
+                          PlatformTransactionManager transactionManager) {
+        this.caches = caches;
+        this.tick = tick;
+        this.refreshTransaction = new TransactionTemplate(transactionManager);
+        this.refreshTransaction.setReadOnly(true);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PostConstruct
+    public void start() {
+        // loaders map lazy associations, which request threads can do through the open session of the request;
+        // a refresh gets the same from a read-only transaction around it
+        Executor transactionalRefreshExecutor =
+                task -> refreshExecutor.execute(() -> refreshTransaction.executeWithoutResult(status -> task.run()));
+        for (InMemoryCache<?, ?> cache : caches) {
+            cache.setRefreshExecutor(transactionalRefreshExecutor);
+        }
+        executor.scheduleWithFixedDelay(this::cleanUpCaches, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Cache scheduler started for {} caches with tick {}", caches.size(), tick);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    private void cleanUpCaches() {
+        for (InMemoryCache<?, ?> cache : caches) {
+            try {
+                cache.cleanUp();
+            } catch (RuntimeException exception) {
+                log.error("Clean up of cache {} failed: {}", cache.getName(), exception.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.rememberconstellations.cache;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class CacheSettings {
+
+    private int maxSize = 40;
+    private Duration ttl = Duration.ofHours(1);
+    private boolean expireAfterAccess = true;
+    // total weight of the entries, in bytes for the built-in DTO caches; unbounded when not set
+    private DataSize maxWeight;
+    // entries read through getOrLoad this long after being written are reloaded in the background; off when not set
+    private Duration refreshAfter;
+    // expired entries are kept this long to be served while the database is unavailable; off when not set
+    private Duration serveStaleFor;
+
+    public CacheSettings(int maxSize, Duration ttl, boolean expireAfterAccess) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.expireAfterAccess = expireAfterAccess;
+    }
+
+    public static CacheSettings bind(Environment environment, String cacheName) {
+        return Binder.get(environment)
+                .bind("cache." + cacheName, CacheSettings.class)
+                .orElseGet(CacheSettings::new);
+    }
+}
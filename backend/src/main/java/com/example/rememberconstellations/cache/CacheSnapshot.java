@@ -0,0 +1,255 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Contents of the star and constellation caches as written to disk for warm restarts.
+ *
+ * <p>Layout: magic, format version and the time the snapshot was taken, then the star section and the
+ * constellation section, each an entry count followed by entries of id, time written to the cache
+ * (epoch millis) and the DTO. Strings are length-prefixed UTF-8 with {@code -1} for null, nullable
+ * numbers follow a presence bitmask. A CRC32 of everything before it ends the file.
+ * Snapshots are read through a memory mapping, so reading does not copy the file onto the heap first.
+ */
+@Getter
+@AllArgsConstructor
+public class CacheSnapshot {
+
+    private static final int MAGIC = 0x52435348;
+    private static final short FORMAT_VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+
+    private final Instant takenAt;
+    private final List<Entry<StarDto>> stars;
+    private final List<Entry<ConstellationDto>> constellations;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry<T> {
+        private final int id;
+        private final Instant writtenAt;
+        private final T value;
+    }
+
+    /**
+     * Writes to a temporary file next to {@code path} and moves it over {@code path}, so a crash while
+     * writing leaves the previous snapshot intact.
+     */
+    public void writeTo(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 checksum = new CRC32();
+            try (DataOutputStream output = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)), checksum))) {
+                output.writeInt(MAGIC);
+                output.writeShort(FORMAT_VERSION);
+                output.writeLong(takenAt.toEpochMilli());
+                output.writeInt(stars.size());
+                for (Entry<StarDto> entry : stars) {
+                    writeEntryHeader(output, entry);
+                    writeStar(output, entry.getValue());
+                }
+                output.writeInt(constellations.size());
+                for (Entry<ConstellationDto> entry : constellations) {
+                    writeEntryHeader(output, entry);
+                    writeConstellation(output, entry.getValue());
+                }
+                output.flush();
+                // not part of the checksum it stores
+                output.writeInt((int) checksum.getValue());
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo}. A truncated or corrupted file, or one written in another
+     * format version, is rejected with an {@link IOException}.
+     */
+    public static CacheSnapshot readFrom(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Integer.BYTES * 2 || size > Integer.MAX_VALUE) {
+                throw new IOException("Cache snapshot " + path + " has invalid size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int checksumOffset = (int) size - Integer.BYTES;
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().limit(checksumOffset));
+            if ((int) checksum.getValue() != buffer.getInt(checksumOffset)) {
+                throw new IOException("Cache snapshot " + path + " is corrupted");
+            }
+            buffer.limit(checksumOffset);
+            if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+                throw new IOException("Cache snapshot " + path + " has an unknown format");
+            }
+            return read(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException exception) {
+            throw new IOException("Cache snapshot " + path + " is malformed", exception);
+        }
+    }
+
+    private static CacheSnapshot read(ByteBuffer buffer) {
+        Instant takenAt = Instant.ofEpochMilli(buffer.getLong());
+        int starCount = readCount(buffer);
+        List<Entry<StarDto>> stars = new ArrayList<>(starCount);
+        for (int i = 0; i < starCount; i++) {
+            int id = buffer.getInt();
+            Instant writtenAt = Instant.ofEpochMilli(buffer.getLong());
+            stars.add(new Entry<>(id, writtenAt, readStar(buffer)));
+        }
+        int constellationCount = readCount(buffer);
+        List<Entry<ConstellationDto>> constellations = new ArrayList<>(constellationCount);
+        for (int i = 0; i < constellationCount; i++) {
+            int id = buffer.getInt();
+            Instant writtenAt = Instant.ofEpochMilli(buffer.getLong());
+            constellations.add(new Entry<>(id, writtenAt, readConstellation(buffer)));
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " trailing bytes");
+        }
+        return new CacheSnapshot(takenAt, stars, constellations);
+    }
+
+    private static void writeEntryHeader(DataOutputStream output, Entry<?> entry) throws IOException {
+        output.writeInt(entry.getId());
+        output.writeLong(entry.getWrittenAt().toEpochMilli());
+    }
+
+    private static void writeStar(DataOutputStream output, StarDto star) throws IOException {
+        Double[] numbers = {star.getMass(), star.getRadius(), star.getTemperature(), star.getLuminosity(),
+                star.getRightAscension(), star.getDeclination()};
+        int presence = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            if (numbers[i] != null) {
+                presence |= 1 << i;
+            }
+        }
+        if (star.getConstellationId() != null) {
+            presence |= 1 << numbers.length;
+        }
+        output.writeInt(star.getId());
+        writeString(output, star.getName());
+        writeString(output, star.getType());
+        output.writeByte(presence);
+        for (Double number : numbers) {
+            if (number != null) {
+                output.writeDouble(number);
+            }
+        }
+        writeString(output, star.getPositionInConstellation());
+        writeString(output, star.getImageUrl());
+        if (star.getConstellationId() != null) {
+            output.writeInt(star.getConstellationId());
+        }
+    }
+
+    private static StarDto readStar(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        String name = readString(buffer);
+        String type = readString(buffer);
+        int presence = buffer.get();
+        Double[] numbers = new Double[6];
+        for (int i = 0; i < numbers.length; i++) {
+            if ((presence & 1 << i) != 0) {
+                numbers[i] = buffer.getDouble();
+            }
+        }
+        String positionInConstellation = readString(buffer);
+        String imageUrl = readString(buffer);
+        Integer constellationId = (presence & 1 << numbers.length) != 0 ? buffer.getInt() : null;
+        return new StarDto(id, name, type, numbers[0], numbers[1], numbers[2], numbers[3], numbers[4], numbers[5],
+                positionInConstellation, imageUrl, constellationId);
+    }
+
+    private static void writeConstellation(DataOutputStream output, ConstellationDto constellation) throws IOException {
+        output.writeInt(constellation.getId());
+        writeString(output, constellation.getName());
+        writeString(output, constellation.getAbbreviation());
+        writeString(output, constellation.getFamily());
+        writeString(output, constellation.getRegion());
+        writeString(output, constellation.getImageUrl());
+        if (constellation.getStars() == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        output.writeInt(constellation.getStars().size());
+        for (StarDto star : constellation.getStars()) {
+            writeStar(output, star);
+        }
+    }
+
+    private static ConstellationDto readConstellation(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        String name = readString(buffer);
+        String abbreviation = readString(buffer);
+        String family = readString(buffer);
+        String region = readString(buffer);
+        String imageUrl = readString(buffer);
+        int starCount = buffer.getInt();
+        List<StarDto> stars = null;
+        if (starCount != NULL_LENGTH) {
+            stars = new ArrayList<>(checkCount(starCount, buffer));
+            for (int i = 0; i < starCount; i++) {
+                stars.add(readStar(buffer));
+            }
+        }
+        return new ConstellationDto(id, name, abbreviation, family, region, imageUrl, stars);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[checkCount(length, buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+        return checkCount(buffer.getInt(), buffer);
+    }
+
+    // every counted element takes at least a byte, which keeps a corrupted count from allocating huge arrays
+    private static int checkCount(int count, ByteBuffer buffer) {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid element count " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.rememberconstellations.cache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class CacheSnapshotSettings {
+
+    private boolean enabled = true;
+    private Path path = Path.of("cache-snapshot", "caches.snapshot");
+    private Duration interval = Duration.ofMinutes(5);
+    // restored entries whose row was written later than this before the entry are dropped
+    private Duration clockSkew = Duration.ofSeconds(5);
+
+    public static CacheSnapshotSettings bind(Environment environment) {
+        return Binder.get(environment)
+                .bind("cache.snapshot", CacheSnapshotSettings.class)
+                .orElseGet(CacheSnapshotSettings::new);
+    }
+}
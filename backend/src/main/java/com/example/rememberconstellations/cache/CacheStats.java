@@ -0,0 +1,43 @@
+package com.example.rememberconstellations.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CacheStats {
+    private final String name;
+    private final long size;
+    private final long maxSize;
+    private final long weight;
+    // Long.MAX_VALUE when the cache is not bounded by weight
+    private final long maxWeight;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    private final long sizeEvictionCount;
+    private final long expiryEvictionCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTimeNanos;
+    private final long refreshCount;
+    private final long staleHitCount;
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getLoadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    public double getAverageLoadPenaltyNanos() {
+        long loadCount = getLoadCount();
+        return loadCount == 0 ? 0.0 : (double) totalLoadTimeNanos / loadCount;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.rememberconstellations.cache;
+
+public interface CachedQuery<T> {
+
+    boolean matches(T item);
+
+    boolean orderDiffers(T before, T after);
+
+    /**
+     * A cached result is stale when the item entered or left the result set,
+     * or stayed in it but changed a property the result is sorted by.
+     */
+    default boolean isAffectedBy(T before, T after) {
+        boolean matchedBefore = before != null && matches(before);
+        boolean matchesAfter = after != null && matches(after);
+        if (matchedBefore != matchesAfter) {
+            return true;
+        }
+        return matchesAfter && orderDiffers(before, after);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.rememberconstellations.cache;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Star held in memory with primitive fields. Repeated strings are replaced with {@link StringDictionary} codes;
+ * the name and any string the dictionaries could not encode are packed into one byte array.
+ * About a third of the retained size of the equivalent {@code StarDto} with its boxed numbers and strings.
+ * Created and turned back into a {@code StarDto} by {@link CompactStarCodec}.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class CompactStar {
+
+    static final int NO_CONSTELLATION = Integer.MIN_VALUE;
+
+    private final int id;
+    private final int constellationId;
+    // bit i set when the i-th number (mass, radius, temperature, luminosity, right ascension, declination) is null
+    private final byte nullMask;
+    private final double mass;
+    private final double radius;
+    private final double temperature;
+    private final double luminosity;
+    private final double rightAscension;
+    private final double declination;
+    private final int typeCode;
+    private final int positionCode;
+    private final int imageUrlCode;
+    @Getter(AccessLevel.PACKAGE)
+    private final byte[] inlineStrings;
+
+    public boolean hasConstellation() {
+        return constellationId != NO_CONSTELLATION;
+    }
+
+    public boolean isNull(int numberIndex) {
+        return (nullMask & (1 << numberIndex)) != 0;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts stars between {@link StarDto} and {@link CompactStar}, owning the dictionaries for the
+ * strings that repeat across stars: type, position in constellation and image url.
+ */
+@Component
+public class CompactStarCodec {
+
+    static final int MASS = 0;
+    static final int RADIUS = 1;
+    static final int TEMPERATURE = 2;
+    static final int LUMINOSITY = 3;
+    static final int RIGHT_ASCENSION = 4;
+    static final int DECLINATION = 5;
+
+    private static final int DICTIONARY_SIZE = 4096;
+
+    private final StringDictionary types = new StringDictionary(DICTIONARY_SIZE);
+    private final StringDictionary positions = new StringDictionary(DICTIONARY_SIZE);
+    private final StringDictionary imageUrls = new StringDictionary(DICTIONARY_SIZE);
+
+    public CompactStar encode(StarDto star) {
+        Double[] numbers = {
+            star.getMass(), star.getRadius(), star.getTemperature(),
+            star.getLuminosity(), star.getRightAscension(), star.getDeclination()
+        };
+        byte nullMask = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            if (numbers[i] == null) {
+                nullMask |= (byte) (1 << i);
+            }
+        }
+        int typeCode = types.encode(star.getType());
+        int positionCode = positions.encode(star.getPositionInConstellation());
+        int imageUrlCode = imageUrls.encode(star.getImageUrl());
+        ByteArrayOutputStream inlineStrings = new ByteArrayOutputStream();
+        writeInline(inlineStrings, star.getName());
+        if (typeCode == StringDictionary.NOT_ENCODED) {
+            writeInline(inlineStrings, star.getType());
+        }
+        if (positionCode == StringDictionary.NOT_ENCODED) {
+            writeInline(inlineStrings, star.getPositionInConstellation());
+        }
+        if (imageUrlCode == StringDictionary.NOT_ENCODED) {
+            writeInline(inlineStrings, star.getImageUrl());
+        }
+        return new CompactStar(star.getId(),
+                star.getConstellationId() == null ? CompactStar.NO_CONSTELLATION : star.getConstellationId(),
+                nullMask,
+                valueOf(numbers[MASS]), valueOf(numbers[RADIUS]), valueOf(numbers[TEMPERATURE]),
+                valueOf(numbers[LUMINOSITY]), valueOf(numbers[RIGHT_ASCENSION]), valueOf(numbers[DECLINATION]),
+                typeCode, positionCode, imageUrlCode, inlineStrings.toByteArray());
+    }
+
+    public StarDto decode(CompactStar star) {
+        InlineReader inline = new InlineReader(star.getInlineStrings());
+        StarDto starDto = new StarDto();
+        starDto.setId(star.getId());
+        starDto.setName(inline.next());
+        starDto.setType(decode(types, star.getTypeCode(), inline));
+        starDto.setMass(star.isNull(MASS) ? null : star.getMass());
+        starDto.setRadius(star.isNull(RADIUS) ? null : star.getRadius());
+        starDto.setTemperature(star.isNull(TEMPERATURE) ? null : star.getTemperature());
+        starDto.setLuminosity(star.isNull(LUMINOSITY) ? null : star.getLuminosity());
+        starDto.setRightAscension(star.isNull(RIGHT_ASCENSION) ? null : star.getRightAscension());
+        starDto.setDeclination(star.isNull(DECLINATION) ? null : star.getDeclination());
+        starDto.setPositionInConstellation(decode(positions, star.getPositionCode(), inline));
+        starDto.setImageUrl(decode(imageUrls, star.getImageUrlCode(), inline));
+        starDto.setConstellationId(star.hasConstellation() ? star.getConstellationId() : null);
+        return starDto;
+    }
+
+    private static String decode(StringDictionary dictionary, int code, InlineReader inline) {
+        return code == StringDictionary.NOT_ENCODED ? inline.next() : dictionary.decode(code);
+    }
+
+    private static double valueOf(Double number) {
+        return number == null ? 0.0 : number;
+    }
+
+    // strings are stored as a varint of their UTF-8 length plus one (0 for null) followed by the bytes
+    private static void writeInline(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length + 1;
+        while (length >= 0x80) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final class InlineReader {
+        private final byte[] bytes;
+        private int position;
+
+        private InlineReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private String next() {
+            int length = 0;
+            int shift = 0;
+            byte part;
+            do {
+                part = bytes[position++];
+                length |= (part & 0x7F) << shift;
+                shift += 7;
+            } while (part < 0);
+            if (length == 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+    }
+}
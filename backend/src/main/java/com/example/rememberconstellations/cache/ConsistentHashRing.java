@@ -0,0 +1,52 @@
+package com.example.rememberconstellations.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Maps integer keys to members so that adding or removing a member only moves the keys of its neighbours
+ * on the ring. Each member is placed at many points, which evens out the share of keys per member.
+ */
+public class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(List<String> members, int virtualNodes) {
+        if (members.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A hash ring needs members and at least one virtual node per member");
+        }
+        for (String member : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(member + '#' + i), member);
+            }
+        }
+    }
+
+    public String getOwnerOf(int key) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(mix(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    // FNV-1a, finished with the murmur3 mixer so that similar member names land far apart
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
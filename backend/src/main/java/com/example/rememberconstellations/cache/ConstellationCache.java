@@ -1,11 +1,99 @@
 package com.example.rememberconstellations.cache;
 
 import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+/**
+ * Cached constellations embed their stars, so the cache keeps a reverse index from star id to the ids
+ * of cached constellations containing it. A star write patches exactly those entries in place.
+ */
 @Component
 public class ConstellationCache extends InMemoryCache<Integer, ConstellationDto> {
-    public ConstellationCache() {
-        super();
+    public static final String NAME = "constellations";
+
+    private final Map<Integer, Set<Integer>> constellationIdsByStarId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConstellationCache(Environment environment) {
+        super(NAME, CacheSettings.bind(environment, NAME),
+                (id, constellationDto) -> SizeEstimator.ENTRY_OVERHEAD + SizeEstimator.ofConstellation(constellationDto));
+    }
+
+    public Set<Integer> getConstellationIdsContainingStar(int starId) {
+        Set<Integer> constellationIds = constellationIdsByStarId.get(starId);
+        return constellationIds == null ? Set.of() : Set.copyOf(constellationIds);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStarChanged(StarChangedEvent event) {
+        int starId = event.getStarId();
+        StarDto changedStar = event.getAfter();
+        for (Integer constellationId : getConstellationIdsContainingStar(starId)) {
+            computeIfPresent(constellationId, (id, constellationDto) -> withStar(constellationDto, starId, changedStar));
+        }
+        if (changedStar != null && changedStar.getConstellationId() != null) {
+            // the star joined a cached constellation; its position in the star list is only known to the database
+            int constellationId = changedStar.getConstellationId();
+            ConstellationDto constellationDto = get(constellationId);
+            if (constellationDto != null && !containsStar(constellationDto, starId)) {
+                remove(constellationId);
+            }
+        }
+    }
+
+    private static ConstellationDto withStar(ConstellationDto constellationDto, int starId, StarDto changedStar) {
+        List<StarDto> stars = new ArrayList<>(constellationDto.getStars().size());
+        for (StarDto star : constellationDto.getStars()) {
+            if (star.getId() != starId) {
+                stars.add(star);
+            } else if (changedStar != null && Objects.equals(changedStar.getConstellationId(), constellationDto.getId())) {
+                stars.add(changedStar);
+            }
+        }
+        return new ConstellationDto(constellationDto.getId(), constellationDto.getName(), constellationDto.getAbbreviation(),
+                constellationDto.getFamily(), constellationDto.getRegion(), constellationDto.getImageUrl(), stars);
+    }
+
+    private static boolean containsStar(ConstellationDto constellationDto, int starId) {
+        return constellationDto.getStars() != null
+                && constellationDto.getStars().stream().anyMatch(star -> star.getId() == starId);
+    }
+
+    @Override
+    protected void onEntryAdded(Integer constellationId, ConstellationDto constellationDto) {
+        if (constellationDto.getStars() == null) {
+            return;
+        }
+        for (StarDto star : constellationDto.getStars()) {
+            constellationIdsByStarId.compute(star.getId(), (starId, constellationIds) -> {
+                Set<Integer> ids = constellationIds != null ? constellationIds : ConcurrentHashMap.newKeySet();
+                ids.add(constellationId);
+                return ids;
+            });
+        }
+    }
+
+    @Override
+    protected void onEntryRemoved(Integer constellationId, ConstellationDto constellationDto) {
+        if (constellationDto.getStars() == null) {
+            return;
+        }
+        for (StarDto star : constellationDto.getStars()) {
+            constellationIdsByStarId.computeIfPresent(star.getId(), (starId, constellationIds) -> {
+                constellationIds.remove(constellationId);
+                return constellationIds.isEmpty() ? null : constellationIds;
+            });
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Normalized criteria and page of a constellation search, mirroring the filters built from {@code ConstellationSpecification}.
+ */
+@Value
+public class ConstellationQuery implements CachedQuery<ConstellationDto> {
+    String name;
+    String abbreviation;
+    String family;
+    String region;
+    int pageNumber;
+    int pageSize;
+    Sort sort;
+
+    public static ConstellationQuery of(String name, String abbreviation, String family, String region,
+                                        Pageable pageable) {
+        boolean paged = pageable != null && pageable.isPaged();
+        return new ConstellationQuery(StarQuery.normalize(name), StarQuery.normalize(abbreviation),
+                StarQuery.normalize(family), StarQuery.normalize(region),
+                paged ? pageable.getPageNumber() : -1,
+                paged ? pageable.getPageSize() : -1,
+                pageable != null ? pageable.getSort() : Sort.unsorted());
+    }
+
+    @Override
+    public boolean matches(ConstellationDto constellation) {
+        return StarQuery.contains(constellation.getName(), name)
+                && StarQuery.contains(constellation.getAbbreviation(), abbreviation)
+                && StarQuery.contains(constellation.getFamily(), family)
+                && StarQuery.contains(constellation.getRegion(), region);
+    }
+
+    @Override
+    public boolean orderDiffers(ConstellationDto before, ConstellationDto after) {
+        for (Sort.Order order : sort) {
+            Function<ConstellationDto, Object> property = sortProperty(order.getProperty());
+            if (property == null || !Objects.equals(property.apply(before), property.apply(after))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Function<ConstellationDto, Object> sortProperty(String property) {
+        return switch (property) {
+            case "id" -> ConstellationDto::getId;
+            case "name" -> ConstellationDto::getName;
+            case "abbreviation" -> ConstellationDto::getAbbreviation;
+            case "family" -> ConstellationDto::getFamily;
+            case "region" -> ConstellationDto::getRegion;
+            case "imageUrl" -> ConstellationDto::getImageUrl;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.events.ConstellationChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class ConstellationQueryCache extends QueryResultCache<ConstellationQuery, ConstellationDto> {
+    public static final String NAME = "constellation-queries";
+
+    @Autowired
+    public ConstellationQueryCache(Environment environment) {
+        super(NAME, CacheSettings.bind(environment, NAME));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConstellationChanged(ConstellationChangedEvent event) {
+        invalidate(event.getBefore(), event.getAfter());
+    }
+}
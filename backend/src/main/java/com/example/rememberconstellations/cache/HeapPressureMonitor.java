@@ -0,0 +1,186 @@
+package com.example.rememberconstellations.cache;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shrinks all caches step by step while the old generation stays above the high-water mark
+ * and grows them back once occupancy drops below the low-water mark.
+ * Occupancy is sampled from usage-threshold notifications of the old generation pool
+ * and from the pool usage after every garbage collection.
+ */
+@Slf4j
+@Component
+public class HeapPressureMonitor implements MeterBinder {
+
+    private final List<InMemoryCache<?, ?>> caches;
+    private final HeapPressureSettings settings;
+    private final List<Runnable> listenerRemovals = new ArrayList<>();
+    private final LongAdder shrinks = new LongAdder();
+    private final LongAdder grows = new LongAdder();
+    private MemoryPoolMXBean oldGenPool;
+    private double capacityFactor = 1.0;
+    private volatile double lastOccupancy;
+    private long lastAdjustmentNanos;
+
+    @Autowired
+    public HeapPressureMonitor(List<InMemoryCache<?, ?>> caches, Environment environment) {
+        this.caches = caches;
+        this.settings = HeapPressureSettings.bind(environment);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        oldGenPool = findOldGenPool();
+        if (oldGenPool == null) {
+            log.warn("No heap pool with usage thresholds found, cache sizes will not adapt to heap pressure");
+            return;
+        }
+        long threshold = (long) (maxOf(oldGenPool.getUsage()) * settings.getHighWater());
+        oldGenPool.setUsageThreshold(threshold);
+        if (oldGenPool.isCollectionUsageThresholdSupported()) {
+            oldGenPool.setCollectionUsageThreshold(threshold);
+        }
+        subscribe(ManagementFactory.getMemoryMXBean(), this::onMemoryNotification);
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            subscribe(collector, this::onGarbageCollectionNotification);
+        }
+        log.info("Watching heap pool {} with high-water mark {} and low-water mark {}",
+                oldGenPool.getName(), settings.getHighWater(), settings.getLowWater());
+    }
+
+    @PreDestroy
+    public void stop() {
+        listenerRemovals.forEach(Runnable::run);
+        listenerRemovals.clear();
+    }
+
+    /**
+     * Adjusts the caches to the given old generation occupancy (used / max, between 0 and 1).
+     */
+    public synchronized void onOldGenOccupancy(double occupancy) {
+        lastOccupancy = occupancy;
+        long now = System.nanoTime();
+        if (lastAdjustmentNanos != 0 && now - lastAdjustmentNanos < settings.getMinInterval().toNanos()) {
+            return;
+        }
+        double newFactor;
+        if (occupancy >= settings.getHighWater() && capacityFactor > settings.getMinCapacityFactor()) {
+            newFactor = Math.max(settings.getMinCapacityFactor(), capacityFactor * settings.getShrinkRatio());
+            shrinks.increment();
+        } else if (occupancy <= settings.getLowWater() && capacityFactor < 1.0) {
+            newFactor = Math.min(1.0, capacityFactor + settings.getGrowStep());
+            grows.increment();
+        } else {
+            return;
+        }
+        log.info("Old generation occupancy is {}, resizing caches from {} to {} of their bounds",
+                occupancy, capacityFactor, newFactor);
+        capacityFactor = newFactor;
+        lastAdjustmentNanos = now;
+        for (InMemoryCache<?, ?> cache : caches) {
+            cache.resize(newFactor);
+        }
+    }
+
+    public synchronized double getCapacityFactor() {
+        return capacityFactor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cache.heap.capacity.factor", this, HeapPressureMonitor::getCapacityFactor)
+                .description("Fraction of the configured cache bounds currently in effect")
+                .register(registry);
+        Gauge.builder("cache.heap.old-gen.occupancy", this, monitor -> monitor.lastOccupancy)
+                .description("Old generation occupancy last seen by the heap pressure monitor")
+                .register(registry);
+        FunctionCounter.builder("cache.heap.adjustments", shrinks, LongAdder::sum)
+                .tag("direction", "shrink")
+                .register(registry);
+        FunctionCounter.builder("cache.heap.adjustments", grows, LongAdder::sum)
+                .tag("direction", "grow")
+                .register(registry);
+    }
+
+    private void onMemoryNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        if (!MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+                && !MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+            return;
+        }
+        MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+        if (oldGenPool.getName().equals(info.getPoolName())) {
+            onOldGenOccupancy(occupancyOf(info.getUsage()));
+        }
+    }
+
+    private void onGarbageCollectionNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        MemoryUsage usageAfterGc = info.getGcInfo().getMemoryUsageAfterGc().get(oldGenPool.getName());
+        if (usageAfterGc != null) {
+            onOldGenOccupancy(occupancyOf(usageAfterGc));
+        }
+    }
+
+    private void subscribe(Object bean, NotificationListener listener) {
+        if (bean instanceof NotificationEmitter emitter) {
+            emitter.addNotificationListener(listener, null, null);
+            listenerRemovals.add(() -> {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (ListenerNotFoundException exception) {
+                    log.debug("Heap pressure listener was already removed");
+                }
+            });
+        }
+    }
+
+    private static MemoryPoolMXBean findOldGenPool() {
+        // the tenured pool is the largest heap pool that supports usage thresholds (G1 Old Gen, PS Old Gen, Tenured Gen)
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
+                .max(Comparator.comparingLong(pool -> maxOf(pool.getUsage())))
+                .orElse(null);
+    }
+
+    private static long maxOf(MemoryUsage usage) {
+        return usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+    }
+
+    private static double occupancyOf(MemoryUsage usage) {
+        long max = maxOf(usage);
+        return max <= 0 ? 0.0 : (double) usage.getUsed() / max;
+    }
+}
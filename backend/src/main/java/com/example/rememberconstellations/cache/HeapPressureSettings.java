@@ -0,0 +1,33 @@
+package com.example.rememberconstellations.cache;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class HeapPressureSettings {
+
+    private boolean enabled = true;
+    // old generation occupancy (used / max) above which caches shrink
+    private double highWater = 0.8;
+    // occupancy below which caches grow back towards their configured bounds
+    private double lowWater = 0.6;
+    // multiplies the capacity factor on each shrink
+    private double shrinkRatio = 0.75;
+    // added to the capacity factor on each grow
+    private double growStep = 0.1;
+    private double minCapacityFactor = 0.1;
+    // gives the collector time to reclaim evicted entries before the next adjustment
+    private Duration minInterval = Duration.ofSeconds(5);
+
+    public static HeapPressureSettings bind(Environment environment) {
+        return Binder.get(environment)
+                .bind("cache.heap-pressure", HeapPressureSettings.class)
+                .orElseGet(HeapPressureSettings::new);
+    }
+}
@@ -1,103 +1,729 @@
 package com.example.rememberconstellations.cache;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Concurrent LRU cache split into lock-striped segments.
+ * Reads never block: they look the entry up in a {@link ConcurrentHashMap} and record the access
+ * in a fixed-size per-segment {@link ReadBuffer}, which is replayed against the segment's LRU list under its lock
+ * either on the next write or once it is full; accesses arriving while it is full are dropped.
+ * Expiration is tracked by a {@link TimerWheel} per segment, advanced on writes and by {@link #cleanUp()}.
+ * Besides the entry count, the cache can be bounded by the total weight of its entries as computed by a {@link Weigher}.
+ * Concurrent misses for the same key passed to {@link #getOrLoad} share a single load.
+ * With {@code refreshAfter} set, entries read through {@link #getOrLoad} are reloaded in the background
+ * once they reach that age, while the current value keeps being served.
+ * With {@code serveStaleFor} set, expired entries are kept that much longer for {@link #getStale}, to be served
+ * when their source is unavailable; all other reads treat them as absent.
+ */
+@Slf4j
 public class InMemoryCache<K, V> {
 
-    private static final Duration TTL = Duration.ofHours(1);
-    private static final Duration CLEANER_INTERVAL = Duration.ofMinutes(10);
-    private static final int MAX_CACHE_SIZE = 40;
-
-    private final LinkedHashMap<K, CacheEntry<V>> cache;
+    @Getter
+    private final String name;
+    private final Ticker ticker;
+    private final long origin;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final long serveStaleForNanos;
+    private final boolean expireAfterAccess;
+    @Getter
+    private final int maxSize;
+    @Getter
+    private final long maxWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    // fraction of the configured bounds currently in effect, lowered under heap pressure
+    private volatile double capacityFactor = 1.0;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final StatsCounter statsCounter = new StatsCounter();
+    private final Map<K, CompletableFuture<V>> loadsInFlight = new ConcurrentHashMap<>();
+    @Setter
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
 
     public InMemoryCache() {
-        this.cache = new LinkedHashMap<>(MAX_CACHE_SIZE, 0.75f, true);
-        startCacheCleaner();
+        this(new CacheSettings());
     }
 
     public InMemoryCache(Integer maxCacheSize) {
-        int cacheSize;
-        cacheSize = Objects.requireNonNullElse(maxCacheSize, MAX_CACHE_SIZE);
-        this.cache = new LinkedHashMap<>(cacheSize, 0.75f, true);
-        startCacheCleaner();
+        this(new CacheSettings(Objects.requireNonNullElse(maxCacheSize, new CacheSettings().getMaxSize()),
+                new CacheSettings().getTtl(), true));
     }
 
-    @Getter
-    private static class CacheEntry<V> {
-        private V value;
-        private Instant timestamp;
+    public InMemoryCache(CacheSettings settings) {
+        this("cache", settings);
+    }
+
+    public InMemoryCache(String name, CacheSettings settings) {
+        this(name, settings, Ticker.system());
+    }
+
+    public InMemoryCache(String name, CacheSettings settings, Weigher<? super K, ? super V> weigher) {
+        this(name, settings, weigher, Ticker.system());
+    }
 
-        public CacheEntry(V value) {
-            this.value = value;
-            this.timestamp = Instant.now();
+    public InMemoryCache(String name, CacheSettings settings, Ticker ticker) {
+        this(name, settings, Weigher.singleton(), ticker);
+    }
+
+    public InMemoryCache(String name, CacheSettings settings, Weigher<? super K, ? super V> weigher, Ticker ticker) {
+        if (settings.getMaxSize() <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + settings.getMaxSize());
+        }
+        if (settings.getMaxWeight() != null && settings.getMaxWeight().toBytes() <= 0) {
+            throw new IllegalArgumentException("Cache weight must be positive, got " + settings.getMaxWeight());
+        }
+        Duration ttl = Objects.requireNonNull(settings.getTtl(), "Cache TTL must not be null");
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache TTL must be positive, got " + ttl);
+        }
+        this.name = name;
+        this.ticker = ticker;
+        this.origin = ticker.read();
+        this.ttlNanos = ttl.toNanos();
+        if (settings.getRefreshAfter() != null
+                && (settings.getRefreshAfter().isNegative() || settings.getRefreshAfter().compareTo(ttl) >= 0)) {
+            throw new IllegalArgumentException("Cache refresh interval must be between zero and the TTL "
+                    + ttl + ", got " + settings.getRefreshAfter());
         }
+        this.refreshAfterNanos = settings.getRefreshAfter() != null ? settings.getRefreshAfter().toNanos() : 0;
+        if (settings.getServeStaleFor() != null && settings.getServeStaleFor().isNegative()) {
+            throw new IllegalArgumentException("Cache stale period must not be negative, got " + settings.getServeStaleFor());
+        }
+        this.serveStaleForNanos = settings.getServeStaleFor() != null ? settings.getServeStaleFor().toNanos() : 0;
+        this.expireAfterAccess = settings.isExpireAfterAccess();
+        this.maxSize = settings.getMaxSize();
+        this.maxWeight = settings.getMaxWeight() != null ? settings.getMaxWeight().toBytes() : Long.MAX_VALUE;
+        this.weigher = weigher;
+        this.segments = createSegments(maxSize, maxWeight);
+        this.segmentMask = segments.length - 1;
+    }
+
+    private final class Segment extends ReentrantLock {
+        private final Map<K, CacheEntry<K, V>> entries = new ConcurrentHashMap<>();
+        private final ReadBuffer<CacheEntry<K, V>> readBuffer = new ReadBuffer<>();
+        private final TimerWheel<K, V> timerWheel = new TimerWheel<>(0);
+        private final int maxCapacity;
+        private final long maxWeightCapacity;
+        private int capacity;
+        private long weightCapacity;
+        private volatile long weightedSize;
 
-        public void updateTimestamp() {
-            this.timestamp = Instant.now();
+        // least recently used entry is the head
+        private CacheEntry<K, V> head;
+        private CacheEntry<K, V> tail;
+
+        private Segment(int capacity, long weightCapacity) {
+            this.maxCapacity = capacity;
+            this.maxWeightCapacity = weightCapacity;
+            this.capacity = capacity;
+            this.weightCapacity = weightCapacity;
+        }
+
+        private void recordRead(CacheEntry<K, V> entry) {
+            if (readBuffer.offer(entry) && tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    unlock();
+                }
+            }
+        }
+
+        private void drainReadBuffer() {
+            readBuffer.drainTo(entry -> {
+                if (entries.get(entry.key) == entry) {
+                    unlink(entry);
+                    linkLast(entry);
+                    if (expireAfterAccess) {
+                        timerWheel.schedule(entry, removalDeadlineOf(entry));
+                    }
+                }
+            });
+        }
+
+        private boolean put(CacheEntry<K, V> entry, CompletableFuture<V> load) {
+            lock();
+            try {
+                if (load == null) {
+                    loadsInFlight.remove(entry.key);
+                } else if (loadsInFlight.get(entry.key) != load) {
+                    // the key was written or removed while it was loading, the loaded value is stale
+                    return false;
+                }
+                maintain(entry.writeTime);
+                CacheEntry<K, V> previousEntry = entries.put(entry.key, entry);
+                if (previousEntry != null) {
+                    discard(previousEntry);
+                }
+                linkLast(entry);
+                weightedSize += entry.weight;
+                onEntryAdded(entry.key, fromStored(entry.value), entry.writeTime);
+                timerWheel.schedule(entry, removalDeadlineOf(entry));
+                evictOverCapacity();
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void resize(double factor) {
+            lock();
+            try {
+                capacity = (int) Math.max(1, (long) (maxCapacity * factor));
+                weightCapacity = maxWeightCapacity == Long.MAX_VALUE
+                        ? Long.MAX_VALUE : Math.max(1, (long) (maxWeightCapacity * factor));
+                drainReadBuffer();
+                evictOverCapacity();
+            } finally {
+                unlock();
+            }
+        }
+
+        private void evictOverCapacity() {
+            while ((entries.size() > capacity || weightedSize > weightCapacity) && head != null) {
+                CacheEntry<K, V> eldest = head;
+                entries.remove(eldest.key, eldest);
+                discard(eldest);
+                statsCounter.sizeEvictions.increment();
+            }
+        }
+
+        private void remove(K key) {
+            lock();
+            try {
+                loadsInFlight.remove(key);
+                CacheEntry<K, V> entry = entries.remove(key);
+                if (entry != null) {
+                    discard(entry);
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            lock();
+            try {
+                CacheEntry<K, V> entry = entries.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (isExpired(entry, now())) {
+                    // a kept stale value would not reflect the change
+                    remove(key);
+                    return null;
+                }
+                V newValue = remappingFunction.apply(key, fromStored(entry.value));
+                if (newValue == null) {
+                    remove(key);
+                } else {
+                    put(newEntry(key, newValue), null);
+                }
+                return newValue;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void removeIfLoading(K key, CompletableFuture<V> load) {
+            lock();
+            try {
+                if (loadsInFlight.get(key) == load) {
+                    CacheEntry<K, V> entry = entries.remove(key);
+                    if (entry != null) {
+                        discard(entry);
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private void removeIf(Predicate<? super K> keyPredicate) {
+            lock();
+            try {
+                for (CacheEntry<K, V> entry : entries.values()) {
+                    if (keyPredicate.test(entry.key)) {
+                        loadsInFlight.remove(entry.key);
+                        entries.remove(entry.key, entry);
+                        discard(entry);
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private void clear() {
+            lock();
+            try {
+                for (CacheEntry<K, V> entry : entries.values()) {
+                    timerWheel.deschedule(entry);
+                    onEntryRemoved(entry.key, fromStored(entry.value));
+                }
+                entries.clear();
+                weightedSize = 0;
+                readBuffer.drainTo(entry -> { });
+                head = null;
+                tail = null;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void cleanUp(long now) {
+            lock();
+            try {
+                maintain(now);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void maintain(long now) {
+            drainReadBuffer();
+            timerWheel.advance(now, entry -> onDeadline(entry, now));
+        }
+
+        private void onDeadline(CacheEntry<K, V> entry, long now) {
+            long deadline = removalDeadlineOf(entry);
+            if (deadline - now > 0) {
+                timerWheel.schedule(entry, deadline);
+            } else if (entries.remove(entry.key, entry)) {
+                discard(entry);
+                statsCounter.expiryEvictions.increment();
+            }
+        }
+
+        private void discard(CacheEntry<K, V> entry) {
+            weightedSize -= entry.weight;
+            unlink(entry);
+            timerWheel.deschedule(entry);
+            onEntryRemoved(entry.key, fromStored(entry.value));
+        }
+
+        private void linkLast(CacheEntry<K, V> entry) {
+            entry.previous = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        private void unlink(CacheEntry<K, V> entry) {
+            CacheEntry<K, V> previousEntry = entry.previous;
+            CacheEntry<K, V> nextEntry = entry.next;
+            if (previousEntry == null) {
+                if (head == entry) {
+                    head = nextEntry;
+                }
+            } else {
+                previousEntry.next = nextEntry;
+            }
+            if (nextEntry == null) {
+                if (tail == entry) {
+                    tail = previousEntry;
+                }
+            } else {
+                nextEntry.previous = previousEntry;
+            }
+            entry.previous = null;
+            entry.next = null;
         }
     }
 
     public V get(K key) {
-        CacheEntry<V> entry = cache.get(key);
-        if (entry != null) {
-            entry.updateTimestamp();
-            return entry.getValue();
-        } else {
+        Segment segment = segmentFor(key);
+        CacheEntry<K, V> entry = segment.entries.get(key);
+        long now = now();
+        if (entry == null || isExpired(entry, now)) {
+            statsCounter.misses.increment();
             return null;
         }
+        entry.accessTime = now;
+        segment.recordRead(entry);
+        statsCounter.hits.increment();
+        return fromStored(entry.value);
+    }
+
+    /**
+     * Returns the cached value even if it expired less than {@code serveStaleFor} ago, or {@code null}.
+     * Meant as a fallback for when the value cannot be loaded; does not count as an access.
+     */
+    public V getStale(K key) {
+        CacheEntry<K, V> entry = segmentFor(key).entries.get(key);
+        if (entry == null || removalDeadlineOf(entry) - now() <= 0) {
+            return null;
+        }
+        statsCounter.staleHits.increment();
+        return fromStored(entry.value);
     }
 
     public void put(K key, V value) {
-        if (cache.size() >= MAX_CACHE_SIZE) {
-            evictOldestEntry();
+        put(key, value, now());
+    }
+
+    /**
+     * Stores a value read from another tier as written at {@code writeTime} on the cache clock, so it expires when
+     * it would have had it never left this cache.
+     */
+    protected void put(K key, V value, long writeTime) {
+        Objects.requireNonNull(key, "Cache key must not be null");
+        Objects.requireNonNull(value, "Cache value must not be null");
+        segmentFor(key).put(newEntry(key, value, writeTime), null);
+        statsCounter.puts.increment();
+    }
+
+    /**
+     * Returns the cached value or computes it with {@code loader} and caches it.
+     * Only one caller loads a given key at a time; concurrent callers for that key wait for its result
+     * (or its exception). A {@code null} result is returned as is and not cached.
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            if (refreshAfterNanos > 0) {
+                refreshIfStale(key, value, loader);
+            }
+            return value;
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> loadInFlight = loadsInFlight.putIfAbsent(key, load);
+        if (loadInFlight != null) {
+            return awaitLoad(loadInFlight);
+        }
+        try {
+            V loadedValue = load(key, load, loader);
+            load.complete(loadedValue);
+            return loadedValue;
+        } catch (RuntimeException | Error exception) {
+            load.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    private V load(K key, CompletableFuture<V> load, Function<? super K, ? extends V> loader) {
+        CacheEntry<K, V> present = segmentFor(key).entries.get(key);
+        if (present != null && !isExpired(present, now())) {
+            // another load finished between our miss and registering this one
+            return fromStored(present.value);
+        }
+        long loadStart = ticker.read();
+        V loadedValue;
+        try {
+            loadedValue = loader.apply(key);
+        } catch (RuntimeException | Error exception) {
+            recordLoadFailure(ticker.read() - loadStart);
+            throw exception;
+        }
+        if (loadedValue == null) {
+            recordLoadFailure(ticker.read() - loadStart);
+            return null;
+        }
+        recordLoadSuccess(ticker.read() - loadStart);
+        if (segmentFor(key).put(newEntry(key, loadedValue), load)) {
+            statsCounter.puts.increment();
+        }
+        return loadedValue;
+    }
+
+    private void refreshIfStale(K key, V currentValue, Function<? super K, ? extends V> loader) {
+        CacheEntry<K, V> entry = segmentFor(key).entries.get(key);
+        if (entry == null || now() - entry.writeTime < refreshAfterNanos) {
+            return;
+        }
+        CompletableFuture<V> refresh = new CompletableFuture<>();
+        if (loadsInFlight.putIfAbsent(key, refresh) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(key, refresh, loader));
+        } catch (RejectedExecutionException exception) {
+            // keep serving the current value, a later read retries
+            loadsInFlight.remove(key, refresh);
+            refresh.complete(currentValue);
+        }
+    }
+
+    /**
+     * Reloads {@code key} while its current value is still served. The refresh is registered as the key's
+     * load in flight, so misses for the key wait for it, and a write or removal of the key meanwhile
+     * discards its result.
+     */
+    private void refresh(K key, CompletableFuture<V> refresh, Function<? super K, ? extends V> loader) {
+        statsCounter.refreshes.increment();
+        long loadStart = ticker.read();
+        try {
+            V loadedValue = loader.apply(key);
+            if (loadedValue == null) {
+                recordLoadFailure(ticker.read() - loadStart);
+                segmentFor(key).removeIfLoading(key, refresh);
+            } else {
+                recordLoadSuccess(ticker.read() - loadStart);
+                segmentFor(key).put(newEntry(key, loadedValue), refresh);
+            }
+            refresh.complete(loadedValue);
+        } catch (RuntimeException | Error exception) {
+            recordLoadFailure(ticker.read() - loadStart);
+            log.warn("Refresh of key {} in cache {} failed: {}", key, name, exception.getMessage());
+            refresh.completeExceptionally(exception);
+        } finally {
+            loadsInFlight.remove(key, refresh);
+        }
+    }
+
+    private static <V> V awaitLoad(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (exception.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw exception;
         }
-        cache.put(key, new CacheEntry<>(value));
+    }
+
+    /**
+     * Atomically replaces the value of a present entry with the result of {@code remappingFunction},
+     * or removes the entry if the result is {@code null}. Returns the new value, or {@code null} if
+     * the key was absent or removed.
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return segmentFor(key).computeIfPresent(key, remappingFunction);
     }
 
     public boolean contains(K key) {
-        return cache.containsKey(key) && !isExpired(cache.get(key));
+        CacheEntry<K, V> entry = segmentFor(key).entries.get(key);
+        return entry != null && !isExpired(entry, now());
     }
 
     public void clear() {
-        cache.clear();
+        loadsInFlight.clear();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
     }
 
     public void remove(K key) {
-        cache.remove(key);
+        segmentFor(key).remove(key);
+    }
+
+    public void removeIf(Predicate<? super K> keyPredicate) {
+        for (Segment segment : segments) {
+            segment.removeIf(keyPredicate);
+        }
     }
 
-    private boolean isExpired(CacheEntry<V> entry) {
-        return Duration.between(entry.getTimestamp(), Instant.now()).compareTo(TTL) > 0;
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.entries.size();
+        }
+        return size;
     }
 
-    private void cleanExpiredEntries() {
-        cache.entrySet().removeIf(entry -> isExpired(entry.getValue()));
+    /**
+     * Scales the entry count and weight bounds to {@code factor} of their configured values,
+     * evicting least recently used entries right away when shrinking.
+     */
+    public void resize(double factor) {
+        if (!(factor > 0 && factor <= 1)) {
+            throw new IllegalArgumentException("Capacity factor must be in (0, 1], got " + factor);
+        }
+        capacityFactor = factor;
+        for (Segment segment : segments) {
+            segment.resize(factor);
+        }
     }
 
-    private void startCacheCleaner() {
-        Timer timer = new Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                cleanExpiredEntries();
+    public double getCapacityFactor() {
+        return capacityFactor;
+    }
+
+    public long weightedSize() {
+        long weightedSize = 0;
+        for (Segment segment : segments) {
+            weightedSize += segment.weightedSize;
+        }
+        return weightedSize;
+    }
+
+    /**
+     * Visits the live entries together with the time since each was written. Weakly consistent:
+     * entries written or removed while visiting may or may not be seen.
+     */
+    public void forEachEntry(EntryVisitor<? super K, ? super V> visitor) {
+        long now = now();
+        for (Segment segment : segments) {
+            for (CacheEntry<K, V> entry : segment.entries.values()) {
+                if (!isExpired(entry, now)) {
+                    visitor.visit(entry.key, fromStored(entry.value), Duration.ofNanos(now - entry.writeTime));
+                }
             }
-        }, 0, CLEANER_INTERVAL.toMillis());
+        }
+    }
+
+    private void recordLoadSuccess(long loadTimeNanos) {
+        statsCounter.loadSuccesses.increment();
+        statsCounter.totalLoadTime.add(loadTimeNanos);
+    }
+
+    private void recordLoadFailure(long loadTimeNanos) {
+        statsCounter.loadFailures.increment();
+        statsCounter.totalLoadTime.add(loadTimeNanos);
     }
 
-    private void evictOldestEntry() {
-        Iterator<Map.Entry<K, CacheEntry<V>>> iterator = cache.entrySet().iterator();
-        if (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
+    public CacheStats stats() {
+        return new CacheStats(name, size(), maxSize, weightedSize(), maxWeight,
+                statsCounter.hits.sum(),
+                statsCounter.misses.sum(),
+                statsCounter.puts.sum(),
+                statsCounter.sizeEvictions.sum(),
+                statsCounter.expiryEvictions.sum(),
+                statsCounter.loadSuccesses.sum(),
+                statsCounter.loadFailures.sum(),
+                statsCounter.totalLoadTime.sum(),
+                statsCounter.refreshes.sum(),
+                statsCounter.staleHits.sum());
+    }
+
+    /**
+     * Applies buffered reads and drops expired entries. Called periodically by {@link CacheScheduler};
+     * the cost is proportional to the number of entries that expired, not to the cache size.
+     */
+    public void cleanUp() {
+        long now = now();
+        for (Segment segment : segments) {
+            segment.cleanUp(now);
         }
     }
-}
 
+    /**
+     * Called under the segment lock whenever an entry is stored, so that subclasses can maintain
+     * secondary indexes. Must be cheap and must not call back into the cache.
+     */
+    protected void onEntryAdded(K key, V value) {
+    }
+
+    /**
+     * Like {@link #onEntryAdded(Object, Object)}, also given the write time of the entry on the cache clock.
+     */
+    protected void onEntryAdded(K key, V value, long writeTime) {
+        onEntryAdded(key, value);
+    }
+
+    /**
+     * Called under the segment lock whenever an entry is replaced, removed, evicted or expired.
+     */
+    protected void onEntryRemoved(K key, V value) {
+    }
+
+    /**
+     * Converts a value into the form kept in the cache, e.g. a more compact representation.
+     * Called once per stored value; {@link #fromStored} is called on every read.
+     */
+    protected Object toStored(V value) {
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected V fromStored(Object storedValue) {
+        return (V) storedValue;
+    }
+
+    private CacheEntry<K, V> newEntry(K key, V value) {
+        return newEntry(key, value, now());
+    }
+
+    private CacheEntry<K, V> newEntry(K key, V value, long writeTime) {
+        long weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Cache entry weight must not be negative, got " + weight);
+        }
+        return new CacheEntry<>(key, toStored(value), writeTime, weight);
+    }
+
+    /**
+     * Current time on the cache clock, in nanoseconds.
+     */
+    protected long now() {
+        return ticker.read() - origin;
+    }
+
+    /**
+     * How long after being written a value is served, whether or not it was read since.
+     */
+    protected long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    /**
+     * How long after being written a value can still be served by {@link #getStale}.
+     */
+    protected long getStaleTtlNanos() {
+        return ttlNanos + serveStaleForNanos;
+    }
+
+    private long deadlineOf(CacheEntry<K, V> entry) {
+        return (expireAfterAccess ? entry.accessTime : entry.writeTime) + ttlNanos;
+    }
+
+    private long removalDeadlineOf(CacheEntry<K, V> entry) {
+        return deadlineOf(entry) + serveStaleForNanos;
+    }
+
+    private boolean isExpired(CacheEntry<K, V> entry, long now) {
+        return deadlineOf(entry) - now <= 0;
+    }
+
+    private Segment segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return segments[hash & segmentMask];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment[] createSegments(int cacheSize, long cacheWeight) {
+        int concurrency = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+        int segmentCount = Math.max(1, Math.min(concurrency, Integer.highestOneBit(cacheSize)));
+        Segment[] newSegments = new InMemoryCache.Segment[segmentCount];
+        int baseCapacity = cacheSize / segmentCount;
+        int remainder = cacheSize % segmentCount;
+        long weightCapacity = cacheWeight == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, cacheWeight / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            newSegments[i] = new Segment(baseCapacity + (i < remainder ? 1 : 0), weightCapacity);
+        }
+        return newSegments;
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor<K, V> {
+
+        void visit(K key, V value, Duration age);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to long values with linear probing and backward-shift deletion,
+ * so it needs neither boxing nor tombstones. Not thread-safe.
+ */
+final class IntLongHashIndex {
+
+    static final long ABSENT = -1;
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    IntLongHashIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    long get(int key) {
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return ABSENT;
+            }
+        }
+    }
+
+    /**
+     * Returns the previous value, or {@link #ABSENT}.
+     */
+    long put(int key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                long previousValue = values[slot];
+                values[slot] = value;
+                return previousValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            rehash(keys.length * 2);
+        }
+        return ABSENT;
+    }
+
+    long remove(int key) {
+        int slot = slotOf(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return ABSENT;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long removedValue = values[slot];
+        // shift back following entries of the probe sequence into the freed slot
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = EMPTY;
+        size--;
+        return removedValue;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the value of every entry with the result of {@code remapper}, without changing the key set.
+     */
+    void replaceAll(Remapper remapper) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                values[slot] = remapper.remap(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitor {
+        void visit(int key, long value);
+    }
+
+    @FunctionalInterface
+    interface Remapper {
+        long remap(int key, long value);
+    }
+
+    private int slotOf(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+}
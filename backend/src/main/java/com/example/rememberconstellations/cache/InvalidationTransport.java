@@ -0,0 +1,31 @@
+package com.example.rememberconstellations.cache;
+
+import java.io.IOException;
+
+/**
+ * Carries {@link CacheInvalidationBus} messages between the instances of a deployment. A transport may deliver
+ * a message back to its sender and may lose messages; the bus detects both.
+ */
+public interface InvalidationTransport {
+
+    void start(Listener listener) throws IOException;
+
+    void send(String message) throws IOException;
+
+    void stop();
+
+    /**
+     * Longest message, in UTF-8 bytes, the transport delivers in one piece.
+     */
+    int getMaxMessageLength();
+
+    interface Listener {
+
+        void onMessage(String message);
+
+        /**
+         * Messages may have been missed, e.g. while the transport was reconnecting.
+         */
+        void onMessagesLost();
+    }
+}
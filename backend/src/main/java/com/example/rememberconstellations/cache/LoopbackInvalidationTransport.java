@@ -0,0 +1,42 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers messages to every transport started in the same JVM, so several application contexts
+ * in one test can act as separate instances.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "loopback")
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private Listener listener;
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        LISTENERS.add(listener);
+    }
+
+    @Override
+    public void send(String message) {
+        for (Listener peer : LISTENERS) {
+            peer.onMessage(message);
+        }
+    }
+
+    @Override
+    public void stop() {
+        LISTENERS.remove(listener);
+    }
+
+    @Override
+    public int getMaxMessageLength() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.events.ConstellationChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class MissingConstellationsCache extends NegativeCache<Integer> {
+    public static final String NAME = "missing-constellations";
+
+    @Autowired
+    public MissingConstellationsCache(Environment environment) {
+        super(NAME, CacheSettings.bind(environment, NAME));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConstellationChanged(ConstellationChangedEvent event) {
+        if (event.getAfter() != null) {
+            forget(event.getConstellationId());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.rememberconstellations.cache;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends messages as UDP datagrams to a multicast group joined by every instance. Delivery is best effort;
+ * lost datagrams are detected by the bus from gaps in the sequence numbers.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "multicast")
+public class MulticastInvalidationTransport implements InvalidationTransport {
+    // stays within a typical Ethernet MTU, so datagrams are not fragmented
+    private static final int MAX_MESSAGE_LENGTH = 1400;
+    private static final int MAX_DATAGRAM_LENGTH = 65_507;
+
+    private final InetSocketAddress groupAddress;
+    private final int timeToLive;
+    private final String networkInterfaceName;
+    private MulticastSocket socket;
+    private volatile boolean running;
+
+    @Autowired
+    public MulticastInvalidationTransport(@Value("${cache.invalidation.multicast.group:239.255.27.1}") String group,
+                                          @Value("${cache.invalidation.multicast.port:45600}") int port,
+                                          @Value("${cache.invalidation.multicast.time-to-live:1}") int timeToLive,
+                                          @Value("${cache.invalidation.multicast.network-interface:}") String networkInterfaceName) {
+        this.groupAddress = new InetSocketAddress(group, port);
+        this.timeToLive = timeToLive;
+        this.networkInterfaceName = networkInterfaceName;
+    }
+
+    @Override
+    public void start(Listener listener) throws IOException {
+        InetAddress group = groupAddress.getAddress();
+        if (group == null || !group.isMulticastAddress()) {
+            throw new IllegalArgumentException(groupAddress + " is not a multicast address");
+        }
+        NetworkInterface networkInterface = null;
+        if (!networkInterfaceName.isBlank()) {
+            networkInterface = NetworkInterface.getByName(networkInterfaceName);
+            if (networkInterface == null) {
+                throw new IllegalArgumentException("Unknown network interface " + networkInterfaceName);
+            }
+        }
+        socket = new MulticastSocket(groupAddress.getPort());
+        socket.setTimeToLive(timeToLive);
+        if (networkInterface != null) {
+            socket.setNetworkInterface(networkInterface);
+        }
+        socket.joinGroup(groupAddress, networkInterface);
+        running = true;
+        Thread receiver = new Thread(() -> receive(listener), "cache-invalidation-multicast");
+        receiver.setDaemon(true);
+        receiver.start();
+        log.info("Cache invalidations are exchanged through multicast group {}", groupAddress);
+    }
+
+    private void receive(Listener listener) {
+        byte[] buffer = new byte[MAX_DATAGRAM_LENGTH];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                listener.onMessage(new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8));
+            } catch (IOException exception) {
+                if (running) {
+                    log.warn("Failed to receive cache invalidation datagram: {}", exception.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void send(String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        socket.send(new DatagramPacket(bytes, bytes.length, groupAddress));
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (socket != null) {
+            // unblocks the receiver thread
+            socket.close();
+        }
+    }
+
+    @Override
+    public int getMaxMessageLength() {
+        return MAX_MESSAGE_LENGTH;
+    }
+}
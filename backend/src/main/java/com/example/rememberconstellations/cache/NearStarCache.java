@@ -0,0 +1,21 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Small, short-lived copy of stars owned by other instances when the star cache is partitioned,
+ * so hot remote stars do not cost a round trip to their owner on every read. Used only through {@link StarCache}.
+ */
+@Component
+public class NearStarCache extends InMemoryCache<Integer, StarDto> {
+    public static final String NAME = "stars-near";
+
+    @Autowired
+    public NearStarCache(Environment environment) {
+        super(NAME, CacheSettings.bind(environment, NAME),
+                (id, starDto) -> SizeEstimator.ENTRY_OVERHEAD + SizeEstimator.ofStar(starDto));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers ids that were looked up and not found, so repeated requests for deleted or never existing ids
+ * do not reach the database. Meant to be configured with a short TTL.
+ */
+public class NegativeCache<K> extends InMemoryCache<K, Boolean> {
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    public NegativeCache(String name, CacheSettings settings) {
+        super(name, settings, (key, missing) -> SizeEstimator.ENTRY_OVERHEAD);
+    }
+
+    public boolean isMissing(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Captured before looking an id up, so that a miss observed while the id was being created
+     * is not remembered by {@link #markMissing}.
+     */
+    public long currentEpoch() {
+        return epoch.get();
+    }
+
+    public void markMissing(K key, long lookupEpoch) {
+        if (epoch.get() != lookupEpoch) {
+            return;
+        }
+        put(key, Boolean.TRUE);
+        if (epoch.get() != lookupEpoch) {
+            remove(key);
+        }
+    }
+
+    public void forget(K key) {
+        epoch.incrementAndGet();
+        remove(key);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.rememberconstellations.cache;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class OffHeapSettings {
+
+    private boolean enabled = true;
+    private DataSize capacity = DataSize.ofMegabytes(256);
+    private DataSize slabSize = DataSize.ofMegabytes(4);
+
+    public static OffHeapSettings bind(Environment environment, String cacheName) {
+        return Binder.get(environment)
+                .bind("cache." + cacheName + ".off-heap", OffHeapSettings.class)
+                .orElseGet(OffHeapSettings::new);
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Second cache tier behind {@link StarCache} holding every star outside the Java heap.
+ * Stars are encoded into a compact binary record and appended to direct {@link ByteBuffer} slabs;
+ * an open-addressing index maps star ids to record addresses. A record is decoded into a {@link StarDto}
+ * only when it is read. Overwritten and removed records are reclaimed by compacting the live records
+ * into fresh slabs once the configured capacity is reached.
+ *
+ * <p>Stars are spread over independently locked stripes, each with its own slabs, index and share of the
+ * capacity, so writes of different stars do not wait for each other. Every record carries the time it was
+ * written, so readers can refuse records older than they accept; records older than the retention are
+ * dropped when a stripe runs out of room.
+ *
+ * <p>Record layout: {@code int length, int id, long writeTime, int constellationId, byte nullMask, 6 x double,
+ * 4 x (unsigned short length, UTF-8 bytes)} for name, type, position in constellation and image url.
+ */
+@Slf4j
+@Component
+public class OffHeapStarStore implements MeterBinder {
+
+    private static final int NO_CONSTELLATION = Integer.MIN_VALUE;
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int MAX_STRING_BYTES = NULL_STRING - 1;
+    private static final int WRITE_TIME_OFFSET = 2 * Integer.BYTES;
+    private static final int FIXED_RECORD_BYTES = 3 * Integer.BYTES + Long.BYTES + 1 + 6 * Double.BYTES;
+
+    private final boolean enabled;
+    private final int slabSize;
+    private final long retentionNanos;
+    private final Ticker ticker;
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    @Autowired
+    public OffHeapStarStore(Environment environment) {
+        this(OffHeapSettings.bind(environment, StarCache.NAME), retentionOf(CacheSettings.bind(environment, StarCache.NAME)),
+                Ticker.system());
+    }
+
+    public OffHeapStarStore(OffHeapSettings settings) {
+        this(settings, null, Ticker.system());
+    }
+
+    /**
+     * @param retention how long records stay useful to readers, {@code null} to keep them until overwritten
+     */
+    public OffHeapStarStore(OffHeapSettings settings, Duration retention, Ticker ticker) {
+        this.enabled = settings.isEnabled();
+        long capacity = settings.getCapacity().toBytes();
+        this.slabSize = (int) Math.min(Integer.MAX_VALUE, settings.getSlabSize().toBytes());
+        if (enabled && (slabSize <= FIXED_RECORD_BYTES || capacity < slabSize)) {
+            throw new IllegalArgumentException("Off-heap capacity " + settings.getCapacity()
+                    + " must hold at least one slab of " + settings.getSlabSize());
+        }
+        this.retentionNanos = retention != null ? retention.toNanos() : Long.MAX_VALUE;
+        this.ticker = ticker;
+        // every stripe gets room for two slabs where possible, so it can compact instead of rejecting stars
+        long stripeCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 2L, capacity / (2L * slabSize)));
+        this.stripes = new Stripe[Integer.highestOneBit((int) stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(capacity / stripes.length);
+        }
+    }
+
+    private static Duration retentionOf(CacheSettings settings) {
+        return settings.getServeStaleFor() != null ? settings.getTtl().plus(settings.getServeStaleFor()) : settings.getTtl();
+    }
+
+    /**
+     * Returns the stored star whatever its age, or {@code null}.
+     */
+    public StarDto get(int id) {
+        StoredStar storedStar = get(id, Long.MAX_VALUE);
+        return storedStar != null ? storedStar.getStar() : null;
+    }
+
+    /**
+     * Returns the stored star if it was written at most {@code maxAgeNanos} ago, or {@code null}.
+     */
+    public StoredStar get(int id, long maxAgeNanos) {
+        if (!enabled) {
+            return null;
+        }
+        Stripe stripe = stripeFor(id);
+        stripe.lock.readLock().lock();
+        try {
+            long address = stripe.index.get(id);
+            long age = address != IntLongHashIndex.ABSENT ? ticker.read() - stripe.writeTimeOf(address) : 0;
+            if (address == IntLongHashIndex.ABSENT || age > maxAgeNanos) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return new StoredStar(decode(stripe.slabs.get(slabOf(address)), offsetOf(address)), age);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        if (!enabled) {
+            return false;
+        }
+        Stripe stripe = stripeFor(id);
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.index.get(id) != IntLongHashIndex.ABSENT;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the star as just written.
+     */
+    public boolean put(StarDto star) {
+        return put(star, 0);
+    }
+
+    /**
+     * Stores the star as written {@code ageNanos} ago. If an identical record is stored already, only its write
+     * time is moved forward. Returns {@code false} if the star could not be stored because the store is disabled,
+     * full, or the star does not fit into a slab.
+     */
+    public boolean put(StarDto star, long ageNanos) {
+        if (!enabled) {
+            return false;
+        }
+        byte[] record = encode(star, ticker.read() - ageNanos);
+        if (record == null || record.length > slabSize) {
+            rejections.increment();
+            return false;
+        }
+        Stripe stripe = stripeFor(star.getId());
+        stripe.lock.writeLock().lock();
+        try {
+            if (stripe.put(star.getId(), record)) {
+                return true;
+            }
+            rejections.increment();
+            return false;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    public void replaceIfPresent(StarDto star) {
+        if (contains(star.getId())) {
+            put(star);
+        }
+    }
+
+    public void remove(int id) {
+        if (!enabled) {
+            return;
+        }
+        Stripe stripe = stripeFor(id);
+        stripe.lock.writeLock().lock();
+        try {
+            stripe.remove(id);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                size += stripe.index.size();
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    public long getLiveBytes() {
+        long liveBytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                liveBytes += stripe.liveBytes;
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return liveBytes;
+    }
+
+    public long getAllocatedBytes() {
+        long allocatedBytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                allocatedBytes += (long) stripe.slabs.size() * slabSize;
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return allocatedBytes;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("cache", StarCache.NAME, "tier", "off-heap");
+        Gauge.builder("cache.size", this, OffHeapStarStore::size).tags(tags).register(registry);
+        Gauge.builder("cache.off-heap.live", this, OffHeapStarStore::getLiveBytes)
+                .tags(tags)
+                .baseUnit("bytes")
+                .description("Bytes taken by current star records")
+                .register(registry);
+        Gauge.builder("cache.off-heap.allocated", this, OffHeapStarStore::getAllocatedBytes)
+                .tags(tags)
+                .baseUnit("bytes")
+                .description("Direct memory allocated for slabs")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum).tags(tags.and("result", "hit")).register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum).tags(tags.and("result", "miss")).register(registry);
+        FunctionCounter.builder("cache.off-heap.rejections", rejections, LongAdder::sum).tags(tags).register(registry);
+        FunctionCounter.builder("cache.off-heap.compactions", compactions, LongAdder::sum).tags(tags).register(registry);
+    }
+
+    private Stripe stripeFor(int id) {
+        int hash = id * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * A share of the store with its own lock; all methods are called holding it.
+     */
+    private final class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final IntLongHashIndex index = new IntLongHashIndex();
+        private final long capacity;
+        private List<ByteBuffer> slabs = new ArrayList<>();
+        private int writeOffset;
+        private long liveBytes;
+
+        private Stripe(long capacity) {
+            this.capacity = capacity;
+        }
+
+        private boolean put(int id, byte[] record) {
+            long address = index.get(id);
+            if (address != IntLongHashIndex.ABSENT && recordEquals(address, record)) {
+                ByteBuffer slab = slabs.get(slabOf(address));
+                int offset = offsetOf(address) + WRITE_TIME_OFFSET;
+                long writeTime = ByteBuffer.wrap(record).getLong(WRITE_TIME_OFFSET);
+                if (writeTime - slab.getLong(offset) > 0) {
+                    slab.putLong(offset, writeTime);
+                }
+                return true;
+            }
+            long newAddress = append(record);
+            if (newAddress == IntLongHashIndex.ABSENT) {
+                return false;
+            }
+            long previousAddress = index.put(id, newAddress);
+            if (previousAddress != IntLongHashIndex.ABSENT) {
+                liveBytes -= recordLength(previousAddress);
+            }
+            liveBytes += record.length;
+            return true;
+        }
+
+        private void remove(int id) {
+            long address = index.remove(id);
+            if (address != IntLongHashIndex.ABSENT) {
+                liveBytes -= recordLength(address);
+            }
+        }
+
+        private void clear() {
+            index.clear();
+            slabs = new ArrayList<>();
+            writeOffset = 0;
+            liveBytes = 0;
+        }
+
+        private long append(byte[] record) {
+            if (!hasRoomFor(record.length)) {
+                removeExpired();
+                if (liveBytes + record.length > capacity - slabSize) {
+                    return IntLongHashIndex.ABSENT;
+                }
+                compact();
+                if (!hasRoomFor(record.length)) {
+                    return IntLongHashIndex.ABSENT;
+                }
+            }
+            return write(record);
+        }
+
+        private long write(byte[] record) {
+            if (slabs.isEmpty() || writeOffset + record.length > slabSize) {
+                slabs.add(ByteBuffer.allocateDirect(slabSize));
+                writeOffset = 0;
+            }
+            int slab = slabs.size() - 1;
+            slabs.get(slab).put(writeOffset, record);
+            long address = addressOf(slab, writeOffset);
+            writeOffset += record.length;
+            return address;
+        }
+
+        private boolean hasRoomFor(int recordLength) {
+            boolean fitsCurrentSlab = !slabs.isEmpty() && writeOffset + recordLength <= slabSize;
+            return fitsCurrentSlab || (long) (slabs.size() + 1) * slabSize <= capacity;
+        }
+
+        /**
+         * Forgets the records no reader accepts anymore, so compaction does not copy them.
+         */
+        private void removeExpired() {
+            if (retentionNanos == Long.MAX_VALUE) {
+                return;
+            }
+            long now = ticker.read();
+            List<Integer> expiredIds = new ArrayList<>();
+            index.forEach((id, address) -> {
+                if (now - writeTimeOf(address) > retentionNanos) {
+                    expiredIds.add(id);
+                }
+            });
+            expiredIds.forEach(this::remove);
+        }
+
+        /**
+         * Copies live records into fresh slabs, dropping overwritten and removed ones. Old slabs are released
+         * to the collector afterwards, so direct memory briefly peaks at up to twice the live size.
+         */
+        private void compact() {
+            List<ByteBuffer> oldSlabs = slabs;
+            slabs = new ArrayList<>();
+            writeOffset = 0;
+            index.replaceAll((id, address) -> {
+                ByteBuffer oldSlab = oldSlabs.get(slabOf(address));
+                int offset = offsetOf(address);
+                byte[] record = new byte[oldSlab.getInt(offset)];
+                oldSlab.get(offset, record);
+                return write(record);
+            });
+            compactions.increment();
+            log.info("Compacted off-heap star store stripe to {} records in {} slabs", index.size(), slabs.size());
+        }
+
+        private int recordLength(long address) {
+            return slabs.get(slabOf(address)).getInt(offsetOf(address));
+        }
+
+        private long writeTimeOf(long address) {
+            return slabs.get(slabOf(address)).getLong(offsetOf(address) + WRITE_TIME_OFFSET);
+        }
+
+        /**
+         * Compares the records apart from their write times.
+         */
+        private boolean recordEquals(long address, byte[] record) {
+            ByteBuffer slab = slabs.get(slabOf(address));
+            int offset = offsetOf(address);
+            if (slab.getInt(offset) != record.length) {
+                return false;
+            }
+            int timeEnd = WRITE_TIME_OFFSET + Long.BYTES;
+            return slab.slice(offset, WRITE_TIME_OFFSET).equals(ByteBuffer.wrap(record, 0, WRITE_TIME_OFFSET))
+                    && slab.slice(offset + timeEnd, record.length - timeEnd)
+                    .equals(ByteBuffer.wrap(record, timeEnd, record.length - timeEnd));
+        }
+    }
+
+    /**
+     * A star read from the store with the time since it was written.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class StoredStar {
+        private final StarDto star;
+        private final long ageNanos;
+    }
+
+    private static byte[] encode(StarDto star, long writeTime) {
+        byte[][] strings = {
+            utf8(star.getName()), utf8(star.getType()), utf8(star.getPositionInConstellation()), utf8(star.getImageUrl())
+        };
+        int length = FIXED_RECORD_BYTES;
+        for (byte[] string : strings) {
+            if (string != null && string.length > MAX_STRING_BYTES) {
+                return null;
+            }
+            length += Short.BYTES + (string == null ? 0 : string.length);
+        }
+        Double[] numbers = {
+            star.getMass(), star.getRadius(), star.getTemperature(),
+            star.getLuminosity(), star.getRightAscension(), star.getDeclination()
+        };
+        byte nullMask = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            if (numbers[i] == null) {
+                nullMask |= (byte) (1 << i);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length);
+        buffer.putInt(star.getId());
+        buffer.putLong(writeTime);
+        buffer.putInt(star.getConstellationId() == null ? NO_CONSTELLATION : star.getConstellationId());
+        buffer.put(nullMask);
+        for (Double number : numbers) {
+            buffer.putDouble(number == null ? 0.0 : number);
+        }
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putShort((short) NULL_STRING);
+            } else {
+                buffer.putShort((short) string.length);
+                buffer.put(string);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static StarDto decode(ByteBuffer slab, int offset) {
+        StarDto star = new StarDto();
+        star.setId(slab.getInt(offset + Integer.BYTES));
+        int position = offset + WRITE_TIME_OFFSET + Long.BYTES;
+        int constellationId = slab.getInt(position);
+        star.setConstellationId(constellationId == NO_CONSTELLATION ? null : constellationId);
+        byte nullMask = slab.get(position + Integer.BYTES);
+        position += Integer.BYTES + 1;
+        Double[] numbers = new Double[6];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = (nullMask & (1 << i)) != 0 ? null : slab.getDouble(position);
+            position += Double.BYTES;
+        }
+        star.setMass(numbers[0]);
+        star.setRadius(numbers[1]);
+        star.setTemperature(numbers[2]);
+        star.setLuminosity(numbers[3]);
+        star.setRightAscension(numbers[4]);
+        star.setDeclination(numbers[5]);
+        String[] strings = new String[4];
+        for (int i = 0; i < strings.length; i++) {
+            int length = Short.toUnsignedInt(slab.getShort(position));
+            position += Short.BYTES;
+            if (length != NULL_STRING) {
+                byte[] bytes = new byte[length];
+                slab.get(position, bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+        star.setName(strings[0]);
+        star.setType(strings[1]);
+        star.setPositionInConstellation(strings[2]);
+        star.setImageUrl(strings[3]);
+        return star;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long addressOf(int slab, int offset) {
+        return ((long) slab << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+}
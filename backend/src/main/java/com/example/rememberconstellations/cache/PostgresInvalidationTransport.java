@@ -0,0 +1,137 @@
+package com.example.rememberconstellations.cache;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exchanges messages through PostgreSQL {@code LISTEN}/{@code NOTIFY} on the application database, so no
+ * infrastructure beyond the database is needed. One pooled connection is held for listening; notifications
+ * sent while it is reconnecting are lost and reported to the listener.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+    // NOTIFY payloads must be shorter than 8000 bytes
+    private static final int MAX_MESSAGE_LENGTH = 7999;
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 2000;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private final DataSource dataSource;
+    private final String channel;
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Autowired
+    public PostgresInvalidationTransport(DataSource dataSource,
+                                         @Value("${cache.invalidation.postgres.channel:cache_invalidation}") String channel) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            // LISTEN takes an identifier, not a bind parameter
+            throw new IllegalArgumentException("Invalid notification channel name " + channel);
+        }
+        this.dataSource = dataSource;
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        running = true;
+        listenerThread = new Thread(() -> listen(listener), "cache-invalidation-postgres");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        log.info("Cache invalidations are exchanged through notification channel {}", channel);
+    }
+
+    private void listen(Listener listener) {
+        boolean listenedBefore = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (listenedBefore) {
+                    listener.onMessagesLost();
+                }
+                listenedBefore = true;
+                try {
+                    receive(connection.unwrap(PGConnection.class), listener);
+                } finally {
+                    // the connection goes back to the pool, where nobody would consume its notifications
+                    unlisten(connection);
+                }
+            } catch (SQLException exception) {
+                if (running) {
+                    log.warn("Lost notification channel {}, reconnecting: {}", channel, exception.getMessage());
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void receive(PGConnection connection, Listener listener) throws SQLException {
+        while (running) {
+            PGNotification[] notifications = connection.getNotifications(POLL_TIMEOUT_MILLIS);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    listener.onMessage(notification.getParameter());
+                }
+            }
+        }
+    }
+
+    private static void unlisten(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UNLISTEN *");
+        } catch (SQLException exception) {
+            log.debug("Failed to unlisten a closing connection: {}", exception.getMessage());
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void send(String message) throws IOException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, channel);
+            statement.setString(2, message);
+            statement.execute();
+        } catch (SQLException exception) {
+            throw new IOException("Failed to notify channel " + channel, exception);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public int getMaxMessageLength() {
+        return MAX_MESSAGE_LENGTH;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the ids returned by a criteria search. Results are resolved through the entity cache,
+ * so a cached id list only has to be dropped when a write changes which ids match or their order.
+ */
+public class QueryResultCache<Q extends CachedQuery<T>, T> extends InMemoryCache<Q, List<Integer>> {
+
+    // rough size of a normalized query key with a few criteria set
+    private static final int QUERY_KEY_WEIGHT = 128;
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    public QueryResultCache(String name, CacheSettings settings) {
+        super(name, settings, (query, ids) -> SizeEstimator.ENTRY_OVERHEAD + QUERY_KEY_WEIGHT + SizeEstimator.ofIds(ids));
+    }
+
+    /**
+     * Captured before running a query, so that a result computed from data that was changed
+     * while the query was running is not cached by {@link #putIfCurrent}.
+     */
+    public long currentEpoch() {
+        return epoch.get();
+    }
+
+    public void putIfCurrent(Q query, List<Integer> ids, long queryEpoch) {
+        if (epoch.get() != queryEpoch) {
+            return;
+        }
+        put(query, List.copyOf(ids));
+        if (epoch.get() != queryEpoch) {
+            // invalidated concurrently with the put
+            remove(query);
+        }
+    }
+
+    public void invalidate(T before, T after) {
+        epoch.incrementAndGet();
+        removeIf(query -> query.isAffectedBy(before, after));
+    }
+
+    /**
+     * Drops every cached result, for writes known only by id, e.g. from another instance.
+     */
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        clear();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-size lossy ring buffer of reads waiting to be replayed against an LRU list. Readers claim a slot with a
+ * single compare-and-set and drop the read when the buffer is full or another reader won the slot, so recording
+ * never blocks or allocates and the buffer never grows. Losing some reads only makes the LRU order approximate.
+ * Draining is not thread-safe, callers hold the owning segment's lock.
+ */
+final class ReadBuffer<E> {
+
+    static final int SIZE = 32;
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(SIZE);
+    // total slots claimed by readers and total slots drained
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+
+    /**
+     * Records the element unless the buffer is full or contended, returning {@code true} once the buffer is full
+     * and should be drained.
+     */
+    boolean offer(E element) {
+        long head = readCount.get();
+        long tail = writeCount.get();
+        if (tail - head >= SIZE) {
+            return true;
+        }
+        if (!writeCount.compareAndSet(tail, tail + 1)) {
+            return false;
+        }
+        slots.lazySet((int) (tail & MASK), element);
+        return tail + 1 - head >= SIZE;
+    }
+
+    /**
+     * Passes the recorded elements to the consumer in the order they were recorded. A slot claimed but not written
+     * yet ends the drain; it is picked up by the next one.
+     */
+    void drainTo(Consumer<E> consumer) {
+        long head = readCount.get();
+        long tail = writeCount.get();
+        while (head != tail) {
+            int index = (int) (head & MASK);
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            consumer.accept(element);
+            head++;
+        }
+        readCount.set(head);
+    }
+}
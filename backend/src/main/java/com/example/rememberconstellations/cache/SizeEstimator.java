@@ -0,0 +1,93 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Estimates the retained heap size of cached values in bytes, assuming a 64-bit JVM with compressed
+ * oops and class pointers (12 byte object headers, 4 byte references, 8 byte alignment) and compact strings.
+ * Good enough to budget memory per cache, not an exact measurement.
+ */
+public final class SizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int BOXED_NUMBER = 16;
+    // CacheEntry with its links, the ConcurrentHashMap node pointing to it and the boxed key
+    static final int ENTRY_OVERHEAD = 64 + 32 + BOXED_NUMBER;
+
+    private static final int STAR_DTO = align(OBJECT_HEADER + Integer.BYTES + 11 * REFERENCE);
+    private static final int CONSTELLATION_DTO = align(OBJECT_HEADER + Integer.BYTES + 6 * REFERENCE);
+    private static final int ARRAY_LIST = align(OBJECT_HEADER + 2 * Integer.BYTES + REFERENCE);
+
+    private SizeEstimator() {
+    }
+
+    public static long ofStar(StarDto star) {
+        return STAR_DTO
+                + ofString(star.getName())
+                + ofString(star.getType())
+                + ofBoxed(star.getMass())
+                + ofBoxed(star.getRadius())
+                + ofBoxed(star.getTemperature())
+                + ofBoxed(star.getLuminosity())
+                + ofBoxed(star.getRightAscension())
+                + ofBoxed(star.getDeclination())
+                + ofString(star.getPositionInConstellation())
+                + ofString(star.getImageUrl())
+                + ofBoxed(star.getConstellationId());
+    }
+
+    public static long ofConstellation(ConstellationDto constellation) {
+        long size = CONSTELLATION_DTO
+                + ofString(constellation.getName())
+                + ofString(constellation.getAbbreviation())
+                + ofString(constellation.getFamily())
+                + ofString(constellation.getRegion())
+                + ofString(constellation.getImageUrl());
+        List<StarDto> stars = constellation.getStars();
+        if (stars != null) {
+            size += ofList(stars.size());
+            for (StarDto star : stars) {
+                size += ofStar(star);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Size of the {@link CompactStar} built from {@code star}, assuming its repeated strings are dictionary-encoded.
+     */
+    public static long ofCompactStar(StarDto star) {
+        long nameBytes = star.getName() == null ? 0 : star.getName().getBytes(StandardCharsets.UTF_8).length;
+        return align(OBJECT_HEADER + 5 * Integer.BYTES + 1 + 6 * Double.BYTES + REFERENCE)
+                + align(ARRAY_HEADER + 2 + nameBytes);
+    }
+
+    public static long ofIds(List<Integer> ids) {
+        return ofList(ids.size()) + (long) ids.size() * BOXED_NUMBER;
+    }
+
+    public static long ofString(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // String object with its hash and coder fields plus the Latin-1 backing array
+        return align(OBJECT_HEADER + 2 * Integer.BYTES + 2 * Byte.BYTES + REFERENCE) + align(ARRAY_HEADER + value.length());
+    }
+
+    private static long ofBoxed(Object value) {
+        return value == null ? 0 : BOXED_NUMBER;
+    }
+
+    private static long ofList(int size) {
+        return ARRAY_LIST + align(ARRAY_HEADER + (long) size * REFERENCE);
+    }
+
+    private static int align(long size) {
+        return (int) ((size + 7) & ~7L);
+    }
+}
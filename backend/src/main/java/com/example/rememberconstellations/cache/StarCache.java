@@ -1,11 +1,150 @@
 package com.example.rememberconstellations.cache;
 
 import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+/**
+ * Hot stars are kept on the heap as {@link CompactStar}s and decoded into DTOs on read; every star stored here is also written to the {@link OffHeapStarStore}
+ * tier, which is not bounded by entry count and serves on-heap misses without going to the database. Stars keep
+ * their write time across tiers, so the TTL bounds their age in either.
+ * When the cache is partitioned, stars owned by other instances are kept only in the {@link NearStarCache}
+ * and are fetched from their owner on a miss.
+ */
 @Component
 public class StarCache extends InMemoryCache<Integer, StarDto> {
-    public StarCache() {
-        super();
+    public static final String NAME = "stars";
+
+    private final CompactStarCodec codec;
+    private final OffHeapStarStore offHeapStore;
+    private final NearStarCache nearCache;
+    private final StarPartitioner partitioner;
+
+    @Autowired
+    public StarCache(Environment environment, CompactStarCodec codec, OffHeapStarStore offHeapStore,
+                     NearStarCache nearCache, StarPartitioner partitioner) {
+        this(environment, codec, offHeapStore, nearCache, partitioner, Ticker.system());
+    }
+
+    public StarCache(Environment environment, CompactStarCodec codec, OffHeapStarStore offHeapStore,
+                     NearStarCache nearCache, StarPartitioner partitioner, Ticker ticker) {
+        super(NAME, CacheSettings.bind(environment, NAME),
+                (id, starDto) -> SizeEstimator.ENTRY_OVERHEAD + SizeEstimator.ofCompactStar(starDto), ticker);
+        this.codec = codec;
+        this.offHeapStore = offHeapStore;
+        this.nearCache = nearCache;
+        this.partitioner = partitioner;
+    }
+
+    @Override
+    public StarDto get(Integer id) {
+        if (!partitioner.isOwnedLocally(id)) {
+            return nearCache.get(id);
+        }
+        StarDto starDto = super.get(id);
+        if (starDto == null) {
+            OffHeapStarStore.StoredStar storedStar = offHeapStore.get(id, getTtlNanos());
+            if (storedStar != null) {
+                starDto = storedStar.getStar();
+                super.put(id, starDto, now() - storedStar.getAgeNanos());
+            }
+        }
+        return starDto;
+    }
+
+    /**
+     * Falls back to the off-heap tier, within the same stale window.
+     */
+    @Override
+    public StarDto getStale(Integer id) {
+        if (!partitioner.isOwnedLocally(id)) {
+            return nearCache.getStale(id);
+        }
+        StarDto starDto = super.getStale(id);
+        if (starDto != null) {
+            return starDto;
+        }
+        OffHeapStarStore.StoredStar storedStar = offHeapStore.get(id, getStaleTtlNanos());
+        return storedStar != null ? storedStar.getStar() : null;
+    }
+
+    @Override
+    public void put(Integer id, StarDto starDto) {
+        if (!partitioner.isOwnedLocally(id)) {
+            nearCache.put(id, starDto);
+            return;
+        }
+        super.put(id, starDto);
+    }
+
+    @Override
+    public StarDto getOrLoad(Integer id, Function<? super Integer, ? extends StarDto> loader) {
+        if (!partitioner.isOwnedLocally(id)) {
+            return nearCache.getOrLoad(id, key -> partitioner.fetchFromOwner(key, loader));
+        }
+        return super.getOrLoad(id, loader);
+    }
+
+    /**
+     * Looks a star up in this instance's own tiers regardless of ownership, for lookups routed here by another instance.
+     */
+    public StarDto getOrLoadLocally(Integer id, Function<? super Integer, ? extends StarDto> loader) {
+        return super.getOrLoad(id, loader);
+    }
+
+    @Override
+    public boolean contains(Integer id) {
+        return nearCache.contains(id) || super.contains(id) || offHeapStore.contains(id);
+    }
+
+    @Override
+    public void remove(Integer id) {
+        nearCache.remove(id);
+        // off-heap first, so a concurrent miss cannot promote the removed star back on-heap afterwards
+        offHeapStore.remove(id);
+        super.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        nearCache.clear();
+        offHeapStore.clear();
+        super.clear();
+    }
+
+    /**
+     * Stars are also written through their constellation (attach, cascade, orphan removal),
+     * so cached stars are refreshed from change events rather than only by {@code StarsService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStarChanged(StarChangedEvent event) {
+        if (event.getAfter() == null) {
+            remove(event.getStarId());
+        } else {
+            nearCache.computeIfPresent(event.getStarId(), (id, starDto) -> event.getAfter());
+            computeIfPresent(event.getStarId(), (id, starDto) -> event.getAfter());
+            offHeapStore.replaceIfPresent(event.getAfter());
+        }
+    }
+
+    @Override
+    protected Object toStored(StarDto starDto) {
+        return codec.encode(starDto);
+    }
+
+    @Override
+    protected StarDto fromStored(Object storedValue) {
+        return codec.decode((CompactStar) storedValue);
+    }
+
+    @Override
+    protected void onEntryAdded(Integer id, StarDto starDto, long writeTime) {
+        // identical records are not rewritten, so promoting an off-heap hit costs only the encoding;
+        // the store is striped, so this holds its lock for one stripe only
+        offHeapStore.put(starDto, now() - writeTime);
     }
 }
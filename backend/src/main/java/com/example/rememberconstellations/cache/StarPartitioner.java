@@ -0,0 +1,106 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Splits the star id keyspace across the instances listed in {@code cache.partitioning.members} with a
+ * {@link ConsistentHashRing}. Each instance keeps only the stars it owns in {@link StarCache} and asks the owner
+ * for the others, so the number of cacheable stars grows with the number of instances. An owner that cannot be
+ * reached is skipped for {@code owner-retry-after}, and its stars are read from the database meanwhile.
+ * Without partitioning every instance owns every star.
+ */
+@Slf4j
+@Component
+public class StarPartitioner {
+    public static final String OWNER_PATH = "/internal/cache/stars/{id}";
+
+    private final boolean enabled;
+    private final String self;
+    private final ConsistentHashRing ring;
+    private final Duration ownerRetryAfter;
+    private final RestClient restClient;
+    private final Map<String, Long> unavailableUntilByOwner = new ConcurrentHashMap<>();
+
+    @Autowired
+    @SuppressWarnings("java:S107")
+    public StarPartitioner(@Value("${cache.partitioning.enabled:false}") boolean enabled,
+                           @Value("${cache.partitioning.self:}") String self,
+                           @Value("${cache.partitioning.members:}") List<String> members,
+                           @Value("${cache.partitioning.virtual-nodes:128}") int virtualNodes,
+                           @Value("${cache.partitioning.timeout:500ms}") Duration timeout,
+                           @Value("${cache.partitioning.owner-retry-after:5s}") Duration ownerRetryAfter,
+                           @Value("${cache.invalidation.transport:none}") String invalidationTransport,
+                           RestClient.Builder restClientBuilder) {
+        this.enabled = enabled;
+        this.self = self;
+        this.ownerRetryAfter = ownerRetryAfter;
+        if (enabled && !members.contains(self)) {
+            throw new IllegalArgumentException("cache.partitioning.self " + self + " is not one of the members " + members);
+        }
+        this.ring = enabled ? new ConsistentHashRing(members, virtualNodes) : null;
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().connectTimeout(timeout).build());
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+        if (enabled) {
+            log.info("Star cache partitioned across {} as {}", members, self);
+            if ("none".equals(invalidationTransport)) {
+                // owners would keep serving stars written through other instances until they expire
+                log.warn("Star cache is partitioned without a cache.invalidation.transport");
+            }
+        }
+    }
+
+    public boolean isOwnedLocally(int id) {
+        return !enabled || self.equals(ring.getOwnerOf(id));
+    }
+
+    /**
+     * Returns the star from the cache of its owner, which loads it on a miss, or {@code null} if it does not exist.
+     * Uses {@code loader} if the owner cannot be reached.
+     */
+    public StarDto fetchFromOwner(int id, Function<? super Integer, ? extends StarDto> loader) {
+        String owner = ring.getOwnerOf(id);
+        Long unavailableUntil = unavailableUntilByOwner.get(owner);
+        if (unavailableUntil != null) {
+            if (System.nanoTime() - unavailableUntil < 0) {
+                return loader.apply(id);
+            }
+            unavailableUntilByOwner.remove(owner, unavailableUntil);
+        }
+        try {
+            return restClient.get()
+                    .uri(owner + OWNER_PATH, id)
+                    .exchange((request, response) -> {
+                        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                            return null;
+                        }
+                        if (!response.getStatusCode().is2xxSuccessful()) {
+                            throw new RestClientException("Owner responded with " + response.getStatusCode());
+                        }
+                        return response.bodyTo(StarDto.class);
+                    });
+        } catch (RestClientException | CancellationException exception) {
+            // the JDK client reports a read timeout as a cancellation
+            log.warn("Star cache owner {} is unavailable, reading star {} from the database: {}",
+                    owner, id, exception.getMessage());
+            unavailableUntilByOwner.put(owner, System.nanoTime() + ownerRetryAfter.toNanos());
+            return loader.apply(id);
+        }
+    }
+}
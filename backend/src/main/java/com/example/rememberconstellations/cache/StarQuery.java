@@ -0,0 +1,96 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+/**
+ * Normalized criteria and page of a star search, mirroring the filters built from {@code StarSpecification}.
+ */
+@Value
+public class StarQuery implements CachedQuery<StarDto> {
+    String name;
+    String type;
+    Double mass;
+    Double radius;
+    Double temperature;
+    Double luminosity;
+    Double rightAscension;
+    Double declination;
+    String positionInConstellation;
+    Integer constellationId;
+    int pageNumber;
+    int pageSize;
+    Sort sort;
+
+    @SuppressWarnings("java:S107")
+    public static StarQuery of(String name, String type, Double mass, Double radius,
+                               Double temperature, Double luminosity, Double rightAscension,
+                               Double declination, String positionInConstellation,
+                               Integer constellationId, Pageable pageable) {
+        boolean paged = pageable != null && pageable.isPaged();
+        return new StarQuery(normalize(name), normalize(type), mass, radius, temperature, luminosity,
+                rightAscension, declination, normalize(positionInConstellation), constellationId,
+                paged ? pageable.getPageNumber() : -1,
+                paged ? pageable.getPageSize() : -1,
+                pageable != null ? pageable.getSort() : Sort.unsorted());
+    }
+
+    @Override
+    public boolean matches(StarDto star) {
+        return contains(star.getName(), name)
+                && contains(star.getType(), type)
+                && atLeast(star.getMass(), mass)
+                && atLeast(star.getRadius(), radius)
+                && atLeast(star.getTemperature(), temperature)
+                && atLeast(star.getLuminosity(), luminosity)
+                && atLeast(star.getRightAscension(), rightAscension)
+                && atLeast(star.getDeclination(), declination)
+                && contains(star.getPositionInConstellation(), positionInConstellation)
+                && (constellationId == null || constellationId.equals(star.getConstellationId()));
+    }
+
+    @Override
+    public boolean orderDiffers(StarDto before, StarDto after) {
+        for (Sort.Order order : sort) {
+            Function<StarDto, Object> property = sortProperty(order.getProperty());
+            if (property == null || !Objects.equals(property.apply(before), property.apply(after))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Function<StarDto, Object> sortProperty(String property) {
+        return switch (property) {
+            case "id" -> StarDto::getId;
+            case "name" -> StarDto::getName;
+            case "type" -> StarDto::getType;
+            case "mass" -> StarDto::getMass;
+            case "radius" -> StarDto::getRadius;
+            case "temperature" -> StarDto::getTemperature;
+            case "luminosity" -> StarDto::getLuminosity;
+            case "rightAscension" -> StarDto::getRightAscension;
+            case "declination" -> StarDto::getDeclination;
+            case "positionInConstellation" -> StarDto::getPositionInConstellation;
+            case "imageUrl" -> StarDto::getImageUrl;
+            default -> null;
+        };
+    }
+
+    static String normalize(String filter) {
+        return StringUtils.hasText(filter) ? filter.toLowerCase() : null;
+    }
+
+    static boolean contains(String value, String filter) {
+        return filter == null || (value != null && value.toLowerCase().contains(filter));
+    }
+
+    private static boolean atLeast(Double value, Double bound) {
+        return bound == null || (value != null && value >= bound);
+    }
+}
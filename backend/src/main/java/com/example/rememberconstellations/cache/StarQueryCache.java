@@ -0,0 +1,23 @@
+package com.example.rememberconstellations.cache;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class StarQueryCache extends QueryResultCache<StarQuery, StarDto> {
+    public static final String NAME = "star-queries";
+
+    @Autowired
+    public StarQueryCache(Environment environment) {
+        super(NAME, CacheSettings.bind(environment, NAME));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStarChanged(StarChangedEvent event) {
+        invalidate(event.getBefore(), event.getAfter());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+final class StatsCounter {
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder puts = new LongAdder();
+    final LongAdder sizeEvictions = new LongAdder();
+    final LongAdder expiryEvictions = new LongAdder();
+    final LongAdder loadSuccesses = new LongAdder();
+    final LongAdder loadFailures = new LongAdder();
+    final LongAdder refreshes = new LongAdder();
+    final LongAdder staleHits = new LongAdder();
+    final LongAdder totalLoadTime = new LongAdder();
+}
@@ -0,0 +1,59 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small int codes to repeated strings such as spectral types or the default image url.
+ * Codes are never reassigned, so the dictionary is capped: once full, {@link #encode} returns
+ * {@link #NOT_ENCODED} and callers keep the string itself.
+ */
+public final class StringDictionary {
+
+    public static final int NULL_CODE = -1;
+    public static final int NOT_ENCODED = -2;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private volatile String[] strings = new String[16];
+    private int size;
+
+    public StringDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == maxSize) {
+                return NOT_ENCODED;
+            }
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, Math.min(maxSize, size * 2));
+            }
+            // written before the code is published, so whoever obtained the code can decode it
+            strings[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    public String decode(int code) {
+        return code == NULL_CODE ? null : strings[code];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
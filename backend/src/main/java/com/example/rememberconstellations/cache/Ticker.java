@@ -0,0 +1,11 @@
+package com.example.rememberconstellations.cache;
+
+@FunctionalInterface
+public interface Ticker {
+
+    long read();
+
+    static Ticker system() {
+        return System::nanoTime;
+    }
+}
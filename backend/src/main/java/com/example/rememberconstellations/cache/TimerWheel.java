@@ -0,0 +1,117 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: level spans are ~1s, ~1m, ~1h, ~1.6d and ~6.5d, each level
+ * is an array of power-of-two buckets, so scheduling is O(1) and advancing only touches
+ * the buckets whose time has passed. Entries in a coarse bucket whose deadline is still
+ * ahead are cascaded into a finer level instead of being expired.
+ * Not thread-safe, callers hold the owning segment's lock.
+ */
+final class TimerWheel<K, V> {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+        1L << 30, // 1.07s
+        1L << 36, // 1.14m
+        1L << 42, // 1.22h
+        1L << 47, // 1.63d
+        4L << 47, // 6.5d
+        4L << 47, // 6.5d
+    };
+    private static final int[] SHIFT = {30, 36, 42, 47, 49};
+
+    private final CacheEntry<K, V>[][] wheel;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long now) {
+        this.nanos = now;
+        this.wheel = new CacheEntry[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new CacheEntry[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = CacheEntry.sentinel();
+            }
+        }
+    }
+
+    void schedule(CacheEntry<K, V> entry, long deadline) {
+        deschedule(entry);
+        entry.deadline = deadline;
+        CacheEntry<K, V> sentinel = findBucket(Math.max(deadline, nanos));
+        entry.timerPrevious = sentinel.timerPrevious;
+        entry.timerNext = sentinel;
+        sentinel.timerPrevious.timerNext = entry;
+        sentinel.timerPrevious = entry;
+    }
+
+    void deschedule(CacheEntry<K, V> entry) {
+        if (entry.isScheduled()) {
+            entry.timerPrevious.timerNext = entry.timerNext;
+            entry.timerNext.timerPrevious = entry.timerPrevious;
+            entry.timerPrevious = null;
+            entry.timerNext = null;
+        }
+    }
+
+    /**
+     * Moves the wheel to {@code now} and hands every entry whose scheduled deadline has passed to
+     * {@code onDeadline}, which is expected to either drop it or schedule it again.
+     */
+    void advance(long now, Consumer<CacheEntry<K, V>> onDeadline) {
+        if (now - nanos <= 0) {
+            return;
+        }
+        long previousTime = nanos;
+        nanos = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expire(i, previousTicks, delta, onDeadline);
+        }
+    }
+
+    private void expire(int level, long previousTicks, long delta, Consumer<CacheEntry<K, V>> onDeadline) {
+        CacheEntry<K, V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            CacheEntry<K, V> sentinel = buckets[i & mask];
+            CacheEntry<K, V> entry = sentinel.timerNext;
+            sentinel.timerPrevious = sentinel;
+            sentinel.timerNext = sentinel;
+            while (entry != sentinel) {
+                CacheEntry<K, V> nextEntry = entry.timerNext;
+                entry.timerPrevious = null;
+                entry.timerNext = null;
+                if (entry.deadline - nanos > 0) {
+                    schedule(entry, entry.deadline);
+                } else {
+                    onDeadline.accept(entry);
+                }
+                entry = nextEntry;
+            }
+        }
+    }
+
+    private CacheEntry<K, V> findBucket(long time) {
+        long duration = time - nanos;
+        int lastLevel = wheel.length - 1;
+        for (int i = 0; i < lastLevel; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[lastLevel][0];
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.rememberconstellations.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Collects the cache mutations made inside a transaction and applies them as one batch after it commits,
+ * so a rollback (or a constraint violation detected at flush/commit) never leaves uncommitted DTOs in a cache.
+ * Outside a transaction mutations are applied immediately.
+ */
+@Slf4j
+public final class TransactionalCacheBuffer implements TransactionSynchronization {
+
+    private final List<Runnable> mutations = new ArrayList<>();
+
+    private TransactionalCacheBuffer() {
+    }
+
+    public static void runAfterCommit(Runnable mutation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            mutation.run();
+            return;
+        }
+        TransactionalCacheBuffer buffer =
+                (TransactionalCacheBuffer) TransactionSynchronizationManager.getResource(TransactionalCacheBuffer.class);
+        if (buffer == null) {
+            buffer = new TransactionalCacheBuffer();
+            TransactionSynchronizationManager.bindResource(TransactionalCacheBuffer.class, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        buffer.mutations.add(mutation);
+    }
+
+    @Override
+    public void afterCommit() {
+        for (Runnable mutation : mutations) {
+            try {
+                mutation.run();
+            } catch (RuntimeException exception) {
+                // the transaction is already committed, a failed cache update must not fail the request
+                log.error("Failed to apply cache mutation after commit", exception);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(TransactionalCacheBuffer.class);
+        if (status != STATUS_COMMITTED && !mutations.isEmpty()) {
+            log.info("Discarded {} cache mutation(s) of a rolled back transaction", mutations.size());
+        }
+        mutations.clear();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.rememberconstellations.cache;
+
+/**
+ * Computes the weight of a cache entry, which counts against {@link CacheSettings#getMaxWeight()}.
+ * The weight of an entry is computed once, when it is stored.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    long weigh(K key, V value);
+
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+}
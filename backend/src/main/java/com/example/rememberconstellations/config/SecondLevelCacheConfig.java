@@ -0,0 +1,68 @@
+package com.example.rememberconstellations.config;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Hibernate second-level and query cache regions, backed by an Ehcache JCache manager built here rather than from
+ * an XML file, so that every region is sized from {@code cache.hibernate.<region>.max-size} and {@code .ttl} like
+ * the application caches. Hibernate is configured to fail on regions missing from this list.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String STAR_REGION = "star-entities";
+    public static final String CONSTELLATION_REGION = "constellation-entities";
+    public static final String CONSTELLATION_STARS_REGION = "constellation-stars";
+    public static final String NAME_QUERY_REGION = "name-queries";
+    public static final String STAR_NAME_QUERY_REGION = "star-name-queries";
+    public static final String STAR_TYPE_QUERY_REGION = "star-type-queries";
+
+    private static final List<String> EXPIRING_REGIONS = List.of(STAR_REGION, CONSTELLATION_REGION,
+            CONSTELLATION_STARS_REGION, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+            NAME_QUERY_REGION, STAR_NAME_QUERY_REGION, STAR_TYPE_QUERY_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment environment) {
+        ConfigurationBuilder configuration = ConfigurationBuilder.newConfigurationBuilder();
+        for (String region : EXPIRING_REGIONS) {
+            CacheSettings settings = CacheSettings.bind(environment, "hibernate." + region);
+            configuration = configuration.withCache(region, CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(settings.getMaxSize()))
+                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(settings.getTtl())));
+        }
+        // query results are validated against these timestamps, evicting one would serve stale results
+        String timestampsRegion = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+        CacheSettings timestampsSettings = CacheSettings.bind(environment, "hibernate." + timestampsRegion);
+        configuration = configuration.withCache(timestampsRegion, CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(timestampsSettings.getMaxSize()))
+                .withExpiry(ExpiryPolicyBuilder.noExpiration()));
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        // a manager per context, so several contexts in one JVM do not share or close each other's regions
+        CacheManager cacheManager = provider.getCacheManager(URI.create("urn:hibernate:" + UUID.randomUUID()), configuration.build());
+        for (String region : cacheManager.getCacheNames()) {
+            cacheManager.enableStatistics(region, true);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
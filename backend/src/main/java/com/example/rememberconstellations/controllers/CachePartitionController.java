@@ -0,0 +1,29 @@
+package com.example.rememberconstellations.controllers;
+
+import com.example.rememberconstellations.cache.StarPartitioner;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.services.StarsService;
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Lookups between instances when the star cache is partitioned, see {@link StarPartitioner}.
+ */
+@Hidden
+@RestController
+public class CachePartitionController {
+    private final StarsService starsService;
+
+    @Autowired
+    public CachePartitionController(StarsService starsService) {
+        this.starsService = starsService;
+    }
+
+    @GetMapping(StarPartitioner.OWNER_PATH)
+    public StarDto getOwnedStar(@PathVariable int id) {
+        return starsService.getOwnedStarById(id);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.rememberconstellations.controllers;
+
+import com.example.rememberconstellations.dtos.CacheStatsDto;
+import com.example.rememberconstellations.services.CachesService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Caches API", description = "Cache statistics")
+@RestController
+@RequestMapping("/api/caches")
+public class CachesController {
+    private final CachesService cachesService;
+
+    @Autowired
+    public CachesController(CachesService cachesService) {
+        this.cachesService = cachesService;
+    }
+
+    @Operation(summary = "Get statistics for all caches")
+    @GetMapping("")
+    public List<CacheStatsDto> getAllCacheStats() {
+        return cachesService.getAllCacheStats();
+    }
+
+    @Operation(summary = "Get statistics for cache by name")
+    @GetMapping("/{name}")
+    public CacheStatsDto getCacheStats(@PathVariable String name) {
+        return cachesService.getCacheStats(name);
+    }
+}
@@ -80,6 +80,34 @@ public class StarsController {
                                                 constellationId, pageable);
     }
 
+    @Operation(summary = "Get stars within a radius of a sky position, nearest first",
+            description = "Right ascension, declination and radius are in degrees")
+    @GetMapping("/near")
+    public List<StarDto> getStarsNear(@RequestParam("ra") double rightAscension,
+                                      @RequestParam("dec") double declination,
+                                      @RequestParam double radius) {
+        return starsService.getStarsNear(rightAscension, declination, radius);
+    }
+
+    @Operation(summary = "Get the stars nearest to a star on the sky, nearest first",
+            description = "Only stars with at least minLuminosity solar luminosities if given")
+    @GetMapping("/{id}/nearest")
+    public List<StarDto> getNearestStars(@PathVariable int id,
+                                         @RequestParam(defaultValue = "10") int k,
+                                         @RequestParam(required = false) Double minLuminosity) {
+        return starsService.getNearestStars(id, k, minLuminosity);
+    }
+
+    @Operation(summary = "Get the stars most similar to a star in mass, radius, temperature and luminosity",
+            description = "Distances compare the logarithms of the properties scaled by their spread over all stars; "
+                    + "only stars within maxDistance if given")
+    @GetMapping("/{id}/similar")
+    public List<StarDto> getSimilarStars(@PathVariable int id,
+                                         @RequestParam(defaultValue = "10") int k,
+                                         @RequestParam(required = false) Double maxDistance) {
+        return starsService.getSimilarStars(id, k, maxDistance);
+    }
+
     /* UPDATE */
 
     @Operation(summary = "Put star by id")
@@ -0,0 +1,29 @@
+package com.example.rememberconstellations.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+    private String name;
+    private long size;
+    private long maxSize;
+    private long weight;
+    private Long maxWeight;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long puts;
+    private long sizeEvictions;
+    private long expiryEvictions;
+    private long loads;
+    private long loadFailures;
+    private double averageLoadMillis;
+    private long refreshes;
+    private long staleHits;
+}
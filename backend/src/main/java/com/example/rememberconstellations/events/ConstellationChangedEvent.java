@@ -0,0 +1,19 @@
+package com.example.rememberconstellations.events;
+
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by write paths after a constellation is created ({@code before} is null), updated or deleted ({@code after} is null).
+ */
+@Getter
+@AllArgsConstructor
+public class ConstellationChangedEvent {
+    private final ConstellationDto before;
+    private final ConstellationDto after;
+
+    public int getConstellationId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.rememberconstellations.events;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by write paths after a star is created ({@code before} is null), updated or deleted ({@code after} is null).
+ */
+@Getter
+@AllArgsConstructor
+public class StarChangedEvent {
+    private final StarDto before;
+    private final StarDto after;
+
+    public int getStarId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.rememberconstellations.exceptions;
+
+import java.time.Duration;
+import lombok.Getter;
+
+@Getter
+public class CircuitOpenException extends RuntimeException {
+    private final Duration retryAfter;
+
+    /**
+     * Thrown on every call rejected while a circuit is open, so no stack trace is captured.
+     */
+    public CircuitOpenException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.rememberconstellations.exceptions;
 
 import com.example.rememberconstellations.models.ErrorResponse;
 import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -55,6 +56,16 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_GATEWAY);
     }
 
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<ErrorResponse> handleCircuitOpenException(CircuitOpenException exception) {
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), exception.getMessage());
+        // whole seconds, at least one so clients do not retry in a tight loop
+        long retryAfterSeconds = Math.max(1, (exception.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(FileSizeException.class)
     public ResponseEntity<ErrorResponse> handleFileSizeException(FileSizeException exception) {
         ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), exception.getMessage());
@@ -4,4 +4,12 @@ public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException(String message) {
         super(message);
     }
+
+    /**
+     * For hot not-found paths (e.g. lookups of deleted ids), where capturing a stack trace
+     * costs more than the lookup itself and the trace carries no information.
+     */
+    public ResourceNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
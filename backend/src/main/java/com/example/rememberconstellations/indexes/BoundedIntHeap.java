@@ -0,0 +1,76 @@
+package com.example.rememberconstellations.indexes;
+
+/**
+ * Keeps the smallest of the ints offered to it under an order, without boxing them: a max-heap holding at most
+ * {@code capacity} of them, the largest kept one on top so a smaller one can replace it.
+ */
+final class BoundedIntHeap {
+    private final int[] heap;
+    private final IntOrder order;
+    private int size;
+
+    BoundedIntHeap(int capacity, IntOrder order) {
+        this.heap = new int[capacity];
+        this.order = order;
+    }
+
+    void offer(int value) {
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (size > 0 && order.compare(value, heap[0]) < 0) {
+            heap[0] = value;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * The kept ints, smallest first. Empties the heap.
+     */
+    int[] drainSorted() {
+        int[] sorted = new int[size];
+        for (int end = size - 1; end >= 0; end--) {
+            sorted[end] = heap[0];
+            heap[0] = heap[end];
+            siftDown(0, end);
+        }
+        size = 0;
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(value, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int index, int end) {
+        int value = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= end) {
+                break;
+            }
+            if (child + 1 < end && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(value, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    interface IntOrder {
+        int compare(int first, int second);
+    }
+}
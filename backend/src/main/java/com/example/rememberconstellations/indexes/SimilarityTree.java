@@ -0,0 +1,159 @@
+package com.example.rememberconstellations.indexes;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Static vantage-point tree over the feature vectors of stars, for similarity searches that only rely on distances.
+ * The tree is implicit: the rows of a subtree occupy a range of {@code rows}, its vantage point first, then the rows
+ * at most the threshold stored for that position away from it, then the rows at least as far.
+ */
+final class SimilarityTree {
+    private final double[][] vectors;
+    private final int[] rows;
+    private final double[] thresholds;
+
+    /**
+     * Builds the tree over the rows with a vector, {@code null} marking a row left out.
+     */
+    SimilarityTree(double[][] vectors) {
+        this.vectors = vectors;
+        int comparable = 0;
+        int[] comparableRows = new int[vectors.length];
+        for (int row = 0; row < vectors.length; row++) {
+            if (vectors[row] != null) {
+                comparableRows[comparable++] = row;
+            }
+        }
+        this.rows = Arrays.copyOf(comparableRows, comparable);
+        this.thresholds = new double[comparable];
+        build(0, comparable, new double[comparable]);
+    }
+
+    /**
+     * Returns up to {@code k} accepted rows at most {@code maxDistance} from the vector, nearest first.
+     */
+    int[] nearest(double[] vector, int k, double maxDistance, IntPredicate accept) {
+        // farthest of the rows found so far on top
+        PriorityQueue<Neighbor> found = new PriorityQueue<>(k + 1, (first, second) ->
+                Double.compare(second.distance, first.distance));
+        search(0, rows.length, vector, k, maxDistance, accept, found);
+        int[] nearestRows = new int[found.size()];
+        for (int i = nearestRows.length - 1; i >= 0; i--) {
+            nearestRows[i] = found.poll().row;
+        }
+        return nearestRows;
+    }
+
+    private void search(int from, int to, double[] vector, int k, double maxDistance, IntPredicate accept,
+                        PriorityQueue<Neighbor> found) {
+        if (from >= to) {
+            return;
+        }
+        int row = rows[from];
+        double distance = StarFeatures.distance(vector, vectors[row]);
+        if (distance <= reach(k, maxDistance, found) && accept.test(row)) {
+            found.add(new Neighbor(row, distance));
+            if (found.size() > k) {
+                found.poll();
+            }
+        }
+        int split = split(from, to);
+        double threshold = thresholds[from];
+        // the side of the vector first, the other side only if the reach still crosses the threshold
+        if (distance < threshold) {
+            search(from + 1, split, vector, k, maxDistance, accept, found);
+            if (distance + reach(k, maxDistance, found) >= threshold) {
+                search(split, to, vector, k, maxDistance, accept, found);
+            }
+        } else {
+            search(split, to, vector, k, maxDistance, accept, found);
+            if (distance - reach(k, maxDistance, found) <= threshold) {
+                search(from + 1, split, vector, k, maxDistance, accept, found);
+            }
+        }
+    }
+
+    /**
+     * Distance within which a row can still be among the results.
+     */
+    private static double reach(int k, double maxDistance, PriorityQueue<Neighbor> found) {
+        return found.size() < k ? maxDistance : Math.min(maxDistance, found.peek().distance);
+    }
+
+    /**
+     * Position of the first row of the outer side of the subtree rows[from, to).
+     */
+    private static int split(int from, int to) {
+        return (from + 1 + to) >>> 1;
+    }
+
+    private void build(int from, int to, double[] distances) {
+        if (to - from <= 1) {
+            return;
+        }
+        // any vantage point keeps searches exact, the choice only affects how well the tree is balanced
+        swap(from, (from + to) >>> 1, distances);
+        double[] vantage = vectors[rows[from]];
+        for (int i = from + 1; i < to; i++) {
+            distances[i] = StarFeatures.distance(vantage, vectors[rows[i]]);
+        }
+        int split = split(from, to);
+        select(from + 1, to, split, distances);
+        thresholds[from] = distances[split];
+        build(from + 1, split, distances);
+        build(split, to, distances);
+    }
+
+    /**
+     * Reorders rows[from, to) with their distances so the row at {@code nth} has the distance it would have if
+     * sorted, with no greater distance before it and no smaller after it.
+     */
+    private void select(int from, int to, int nth, double[] distances) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            double pivot = distances[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--, distances);
+                }
+            }
+            if (nth <= j) {
+                high = j;
+            } else if (nth >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int first, int second, double[] distances) {
+        int row = rows[first];
+        rows[first] = rows[second];
+        rows[second] = row;
+        double distance = distances[first];
+        distances[first] = distances[second];
+        distances[second] = distance;
+    }
+
+    private static final class Neighbor {
+        private final int row;
+        private final double distance;
+
+        private Neighbor(int row, double distance) {
+            this.row = row;
+            this.distance = distance;
+        }
+    }
+}
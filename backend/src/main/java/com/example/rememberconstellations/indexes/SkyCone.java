@@ -0,0 +1,93 @@
+package com.example.rememberconstellations.indexes;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import java.util.Comparator;
+import lombok.Getter;
+
+/**
+ * A circle on the sky: every position within {@code radius} degrees of great-circle distance from the center.
+ * Positions are equatorial coordinates in degrees, right ascension in [0, 360) and declination in [-90, 90]. Tests
+ * are done on unit vectors, a position being inside when the dot product with the center is at least cos(radius).
+ */
+public final class SkyCone {
+    @Getter
+    private final double rightAscension;
+    @Getter
+    private final double declination;
+    @Getter
+    private final double radius;
+    private final double[] center;
+    private final double minCosine;
+
+    private SkyCone(double rightAscension, double declination, double radius) {
+        this.rightAscension = rightAscension;
+        this.declination = declination;
+        this.radius = radius;
+        this.center = unitVector(rightAscension, declination);
+        this.minCosine = Math.cos(Math.toRadians(radius));
+    }
+
+    public static SkyCone of(double rightAscension, double declination, double radius) {
+        return new SkyCone(rightAscension, declination, radius);
+    }
+
+    static double[] unitVector(double rightAscension, double declination) {
+        double alpha = Math.toRadians(rightAscension);
+        double delta = Math.toRadians(declination);
+        double cosDelta = Math.cos(delta);
+        return new double[] {cosDelta * Math.cos(alpha), cosDelta * Math.sin(alpha), Math.sin(delta)};
+    }
+
+    double[] center() {
+        return center;
+    }
+
+    /**
+     * Squared straight-line distance between unit vectors at the radius of the cone.
+     */
+    double chordSquared() {
+        return 2 - 2 * minCosine;
+    }
+
+    public boolean contains(StarDto star) {
+        return star.getRightAscension() != null && star.getDeclination() != null && cosineTo(star) >= minCosine;
+    }
+
+    private double cosineTo(StarDto star) {
+        return cosineTo(star.getRightAscension(), star.getDeclination());
+    }
+
+    /**
+     * Cosine of the angle between the center and the position, larger for nearer positions.
+     */
+    double cosineTo(double rightAscension, double declination) {
+        double[] position = unitVector(rightAscension, declination);
+        return position[0] * center[0] + position[1] * center[1] + position[2] * center[2];
+    }
+
+    /**
+     * Nearest stars first, ties broken by id.
+     */
+    public Comparator<StarDto> byDistance() {
+        return Comparator.comparingDouble((StarDto star) -> -cosineTo(star)).thenComparingInt(StarDto::getId);
+    }
+
+    public double getMinDeclination() {
+        return Math.max(-90, declination - radius);
+    }
+
+    public double getMaxDeclination() {
+        return Math.min(90, declination + radius);
+    }
+
+    /**
+     * Half the right ascension range covered by the cone, in degrees; 180 when the cone contains a pole.
+     */
+    public double getRightAscensionHalfWidth() {
+        if (Math.abs(declination) + radius >= 90) {
+            return 180;
+        }
+        double sinHalfWidth = Math.sin(Math.toRadians(radius)) / Math.cos(Math.toRadians(declination));
+        return sinHalfWidth >= 1 ? 180 : Math.toDegrees(Math.asin(sinHalfWidth));
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.rememberconstellations.indexes;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Static k-d tree over the positions of stars as 3D unit vectors, so sky searches have no seam at right ascension
+ * 0/360 and no distortion near the poles. The tree is implicit: the rows of a subtree occupy a range of
+ * {@code rows}, its root in the middle and split on the axis stored for that position. Every subtree also keeps its
+ * bounding box and the greatest luminosity in it, for best-first searches that skip subtrees of dimmer stars.
+ */
+final class SkyTree {
+    private final double[][] coordinates;
+    private final double[] luminosities;
+    private final int[] rows;
+    private final byte[] axes;
+    // per subtree, stored at the position of its root
+    private final double[][] boxMin;
+    private final double[][] boxMax;
+    private final double[] maxLuminosities;
+
+    /**
+     * Builds the tree over the rows of the given columns, skipping rows without a position.
+     */
+    SkyTree(double[] rightAscensions, double[] declinations, double[] luminosities) {
+        int size = rightAscensions.length;
+        this.coordinates = new double[3][size];
+        this.luminosities = luminosities;
+        int positioned = 0;
+        int[] positionedRows = new int[size];
+        for (int row = 0; row < size; row++) {
+            if (Double.isNaN(rightAscensions[row]) || Double.isNaN(declinations[row])) {
+                continue;
+            }
+            double[] vector = SkyCone.unitVector(rightAscensions[row], declinations[row]);
+            for (int axis = 0; axis < 3; axis++) {
+                coordinates[axis][row] = vector[axis];
+            }
+            positionedRows[positioned++] = row;
+        }
+        this.rows = Arrays.copyOf(positionedRows, positioned);
+        this.axes = new byte[positioned];
+        this.boxMin = new double[3][positioned];
+        this.boxMax = new double[3][positioned];
+        this.maxLuminosities = new double[positioned];
+        build(0, positioned);
+    }
+
+    /**
+     * Calls the action for each row within the squared chord distance of the center.
+     */
+    void forEachWithin(double[] center, double chordSquared, IntConsumer action) {
+        forEachWithin(0, rows.length, center, chordSquared, action);
+    }
+
+    private void forEachWithin(int from, int to, double[] center, double chordSquared, IntConsumer action) {
+        while (from < to) {
+            int middle = root(from, to);
+            int row = rows[middle];
+            if (distanceSquared(row, center) <= chordSquared) {
+                action.accept(row);
+            }
+            int axis = axes[middle];
+            double offset = center[axis] - coordinates[axis][row];
+            // descend into the side of the center, and into the other side only if the cone crosses the split
+            if (offset * offset <= chordSquared) {
+                if (offset < 0) {
+                    forEachWithin(middle + 1, to, center, chordSquared, action);
+                    to = middle;
+                } else {
+                    forEachWithin(from, middle, center, chordSquared, action);
+                    from = middle + 1;
+                }
+            } else if (offset < 0) {
+                to = middle;
+            } else {
+                from = middle + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code k} accepted rows with a luminosity of at least {@code minLuminosity}, nearest to the
+     * center first. Subtrees are visited in order of the distance to their bounding box, and the search ends once
+     * the nearest unvisited box is farther than the k-th row found.
+     */
+    int[] nearest(double[] center, int k, double minLuminosity, IntPredicate accept) {
+        // farthest of the rows found so far on top
+        PriorityQueue<Candidate> found = new PriorityQueue<>(k + 1, (first, second) ->
+                Double.compare(second.distanceSquared, first.distanceSquared));
+        PriorityQueue<Candidate> subtrees = new PriorityQueue<>((first, second) ->
+                Double.compare(first.distanceSquared, second.distanceSquared));
+        if (rows.length > 0) {
+            subtrees.add(new Candidate(0, rows.length, boxDistanceSquared(root(0, rows.length), center)));
+        }
+        while (!subtrees.isEmpty()) {
+            Candidate subtree = subtrees.poll();
+            if (found.size() == k && subtree.distanceSquared > found.peek().distanceSquared) {
+                break;
+            }
+            int middle = root(subtree.from, subtree.to);
+            if (maxLuminosities[middle] < minLuminosity) {
+                continue;
+            }
+            int row = rows[middle];
+            if (luminosities[row] >= minLuminosity && accept.test(row)) {
+                found.add(new Candidate(row, row, distanceSquared(row, center)));
+                if (found.size() > k) {
+                    found.poll();
+                }
+            }
+            addSubtree(subtrees, subtree.from, middle, center, minLuminosity);
+            addSubtree(subtrees, middle + 1, subtree.to, center, minLuminosity);
+        }
+        int[] nearestRows = new int[found.size()];
+        for (int i = nearestRows.length - 1; i >= 0; i--) {
+            nearestRows[i] = found.poll().from;
+        }
+        return nearestRows;
+    }
+
+    private void addSubtree(PriorityQueue<Candidate> subtrees, int from, int to, double[] center, double minLuminosity) {
+        if (from >= to) {
+            return;
+        }
+        int middle = root(from, to);
+        if (maxLuminosities[middle] >= minLuminosity) {
+            subtrees.add(new Candidate(from, to, boxDistanceSquared(middle, center)));
+        }
+    }
+
+    /**
+     * Position of the root of the subtree rows[from, to).
+     */
+    private static int root(int from, int to) {
+        return (from + to - 1) >>> 1;
+    }
+
+    private double distanceSquared(int row, double[] center) {
+        double dx = coordinates[0][row] - center[0];
+        double dy = coordinates[1][row] - center[1];
+        double dz = coordinates[2][row] - center[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double boxDistanceSquared(int middle, double[] center) {
+        double distanceSquared = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            double outside = Math.max(0, Math.max(boxMin[axis][middle] - center[axis], center[axis] - boxMax[axis][middle]));
+            distanceSquared += outside * outside;
+        }
+        return distanceSquared;
+    }
+
+    private void build(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int middle = root(from, to);
+        int widestAxis = 0;
+        double widestSpread = -1;
+        double maxLuminosity = Double.NEGATIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = coordinates[axis][rows[i]];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            boxMin[axis][middle] = min;
+            boxMax[axis][middle] = max;
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widestAxis = axis;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            double luminosity = luminosities[rows[i]];
+            if (luminosity > maxLuminosity) {
+                maxLuminosity = luminosity;
+            }
+        }
+        maxLuminosities[middle] = maxLuminosity;
+        select(from, to, middle, coordinates[widestAxis]);
+        axes[middle] = (byte) widestAxis;
+        build(from, middle);
+        build(middle + 1, to);
+    }
+
+    /**
+     * Reorders rows[from, to) so the row at {@code nth} has the value it would have if sorted, with no greater
+     * value before it and no smaller after it.
+     */
+    private void select(int from, int to, int nth, double[] values) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            double pivot = values[rows[(low + high) >>> 1]];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[rows[i]] < pivot) {
+                    i++;
+                }
+                while (values[rows[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swapped = rows[i];
+                    rows[i++] = rows[j];
+                    rows[j--] = swapped;
+                }
+            }
+            if (nth <= j) {
+                high = j;
+            } else if (nth >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A subtree, rows[from, to), or a found row, held in {@code from}, with its squared distance from the center.
+     */
+    private static final class Candidate {
+        private final int from;
+        private final int to;
+        private final double distanceSquared;
+
+        private Candidate(int from, int to, double distanceSquared) {
+            this.from = from;
+            this.to = to;
+            this.distanceSquared = distanceSquared;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.example.rememberconstellations.indexes;
+
+import com.example.rememberconstellations.cache.StarQuery;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import com.example.rememberconstellations.mappers.StarMapper;
+import com.example.rememberconstellations.repositories.StarsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Read-optimized copy of the star table answering criteria, sky position and similarity searches in memory. The
+ * index is a {@link StarColumns} built from the whole table plus a small map of stars changed since, kept up to date
+ * from change events; once the map grows past the compaction threshold it is merged into new columns in the
+ * background.
+ *
+ * <p>While the columns are built, and while stars changed by other instances are being reloaded, the searches
+ * return nothing and callers query the database instead. Searches the columns cannot reproduce exactly, such as
+ * sorting by text, are left to the database as well.
+ */
+@Slf4j
+@Component
+public class StarColumnIndex {
+    private final StarsRepository starsRepository;
+    private final StarMapper starMapper;
+    private final TransactionTemplate loadTransaction;
+    private final boolean enabled;
+    private final int compactionThreshold;
+    private final Duration retryDelay;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "star-column-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // ids invalidated by other instances and the number of invalidations not reloaded yet
+    private final Map<Integer, Integer> pendingReloads = new ConcurrentHashMap<>();
+
+    private volatile Generation generation;
+    // changes made while the columns are built, applied on top of them; null once they are built
+    private Map<Integer, StarDto> changesDuringBuild = new HashMap<>();
+    private boolean compactionScheduled;
+
+    @Autowired
+    public StarColumnIndex(StarsRepository starsRepository, StarMapper starMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${indexes.stars.enabled:true}") boolean enabled,
+                           @Value("${indexes.stars.compaction-threshold:1024}") int compactionThreshold,
+                           @Value("${indexes.stars.retry-delay:30s}") Duration retryDelay) {
+        this.starsRepository = starsRepository;
+        this.starMapper = starMapper;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.compactionThreshold = compactionThreshold;
+        this.retryDelay = retryDelay;
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return generation != null && pendingReloads.isEmpty();
+    }
+
+    /**
+     * Returns the page of stars matching the query, or nothing if the index cannot answer it right now.
+     */
+    public Optional<List<StarDto>> search(StarQuery query) {
+        Generation current = generation;
+        if (current == null || !pendingReloads.isEmpty()) {
+            return Optional.empty();
+        }
+        List<SortKey> keys = sortKeysOf(query.getSort());
+        if (keys == null) {
+            return Optional.empty();
+        }
+        StarColumns columns = current.columns;
+        long[] selection = columns.select(query);
+        List<StarDto> changedMatches = new ArrayList<>();
+        current.changes.forEach((id, star) -> {
+            int row = columns.rowOf(id);
+            if (row >= 0) {
+                selection[row >>> 6] &= ~(1L << row);
+            }
+            if (star != null && query.matches(star)) {
+                changedMatches.add(star);
+            }
+        });
+        int total = StarColumns.cardinality(selection) + changedMatches.size();
+        long offset = query.getPageSize() < 0 ? 0 : (long) query.getPageNumber() * query.getPageSize();
+        if (offset >= total) {
+            return Optional.of(List.of());
+        }
+        int limit = query.getPageSize() < 0 ? total : (int) Math.min(total, offset + query.getPageSize());
+        ResultOrder order = new ResultOrder(columns, changedMatches, keys);
+        // only the first offset + size results are ordered, and DTOs are built for the page alone
+        int[] results = keys.size() <= 1
+                ? firstInOrder(columns, selection, order, keys.isEmpty() ? SortKey.BY_ID : keys.get(0), limit)
+                : smallest(columns, selection, order, limit);
+        List<StarDto> page = new ArrayList<>(limit - (int) offset);
+        for (int i = (int) offset; i < limit; i++) {
+            page.add(order.star(results[i]));
+        }
+        return Optional.of(Collections.unmodifiableList(page));
+    }
+
+    /**
+     * Returns the stars positioned inside the cone, nearest first, or nothing if the index cannot answer right now.
+     */
+    public Optional<List<StarDto>> findWithin(SkyCone cone) {
+        Generation current = generation;
+        if (current == null || !pendingReloads.isEmpty()) {
+            return Optional.empty();
+        }
+        StarColumns columns = current.columns;
+        IntStream.Builder found = IntStream.builder();
+        columns.forEachWithin(cone, row -> {
+            if (!current.changes.containsKey(columns.id(row))) {
+                found.add(row);
+            }
+        });
+        int[] rows = found.build().toArray();
+        List<StarDto> changedMatches = current.changes.values().stream()
+                .filter(star -> star != null && cone.contains(star))
+                .toList();
+        // positions below rows.length are rows, the others changed stars; ordered by their cosine to the center
+        int count = rows.length + changedMatches.size();
+        double[] cosines = new double[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < rows.length; i++) {
+            cosines[i] = cone.cosineTo(columns.rawValue(StarColumns.NumericColumn.RIGHT_ASCENSION, rows[i]),
+                    columns.rawValue(StarColumns.NumericColumn.DECLINATION, rows[i]));
+            ids[i] = columns.id(rows[i]);
+        }
+        for (int i = rows.length; i < count; i++) {
+            StarDto star = changedMatches.get(i - rows.length);
+            cosines[i] = cone.cosineTo(star.getRightAscension(), star.getDeclination());
+            ids[i] = star.getId();
+        }
+        BoundedIntHeap nearestFirst = new BoundedIntHeap(count, (first, second) -> {
+            int comparison = Double.compare(-cosines[first], -cosines[second]);
+            return comparison != 0 ? comparison : Integer.compare(ids[first], ids[second]);
+        });
+        for (int i = 0; i < count; i++) {
+            nearestFirst.offer(i);
+        }
+        List<StarDto> matches = new ArrayList<>(count);
+        for (int i : nearestFirst.drainSorted()) {
+            matches.add(i < rows.length ? columns.star(rows[i]) : copyOf(changedMatches.get(i - rows.length)));
+        }
+        return Optional.of(Collections.unmodifiableList(matches));
+    }
+
+    /**
+     * Returns the {@code k} stars nearest to the origin star on the sky with a luminosity of at least
+     * {@code minLuminosity}, nearest first, or nothing if the index cannot answer right now.
+     */
+    public Optional<List<StarDto>> findNearest(StarDto origin, int k, double minLuminosity) {
+        Generation current = generation;
+        if (current == null || !pendingReloads.isEmpty()) {
+            return Optional.empty();
+        }
+        StarColumns columns = current.columns;
+        double[] position = SkyCone.unitVector(origin.getRightAscension(), origin.getDeclination());
+        int[] rows = columns.nearest(position, k, minLuminosity, row -> {
+            int id = columns.id(row);
+            return id != origin.getId() && !current.changes.containsKey(id);
+        });
+        List<StarDto> nearest = new ArrayList<>(rows.length + current.changes.size());
+        for (int row : rows) {
+            nearest.add(columns.star(row));
+        }
+        current.changes.values().stream()
+                .filter(star -> star != null && star.getId() != origin.getId()
+                        && star.getRightAscension() != null && star.getDeclination() != null
+                        && star.getLuminosity() != null && star.getLuminosity() >= minLuminosity)
+                .map(StarColumnIndex::copyOf)
+                .forEach(nearest::add);
+        nearest.sort(SkyCone.of(origin.getRightAscension(), origin.getDeclination(), 180).byDistance());
+        return Optional.of(List.copyOf(nearest.subList(0, Math.min(k, nearest.size()))));
+    }
+
+    /**
+     * Returns up to {@code k} stars at most {@code maxDistance} from the comparable origin star in
+     * {@link StarFeatures} space, most similar first, or nothing if the index cannot answer right now.
+     */
+    public Optional<List<StarDto>> findSimilar(StarDto origin, int k, double maxDistance) {
+        Generation current = generation;
+        if (current == null || !pendingReloads.isEmpty()) {
+            return Optional.empty();
+        }
+        StarColumns columns = current.columns;
+        StarFeatures features = columns.getFeatures();
+        int[] rows = columns.mostSimilar(features.vector(origin), k, maxDistance, row -> {
+            int id = columns.id(row);
+            return id != origin.getId() && !current.changes.containsKey(id);
+        });
+        List<StarDto> similar = new ArrayList<>(rows.length + current.changes.size());
+        for (int row : rows) {
+            similar.add(columns.star(row));
+        }
+        current.changes.values().stream()
+                .filter(star -> star != null && star.getId() != origin.getId() && StarFeatures.isComparable(star)
+                        && features.distance(origin, star) <= maxDistance)
+                .map(StarColumnIndex::copyOf)
+                .forEach(similar::add);
+        similar.sort(features.byDistanceTo(origin));
+        return Optional.of(List.copyOf(similar.subList(0, Math.min(k, similar.size()))));
+    }
+
+    /**
+     * Stars are also written through their constellation, so the index follows change events rather than
+     * {@code StarsService} calls.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStarChanged(StarChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (changesDuringBuild != null) {
+            changesDuringBuild.put(event.getStarId(), event.getAfter());
+        }
+        if (generation != null) {
+            generation = generation.with(event.getStarId(), event.getAfter());
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    /**
+     * Marks a star changed by another instance. Searches go to the database until it is reloaded.
+     */
+    public void invalidate(int starId) {
+        if (!enabled) {
+            return;
+        }
+        pendingReloads.merge(starId, 1, Integer::sum);
+        executor.execute(this::reloadPending);
+    }
+
+    /**
+     * Drops the index and builds it again from the database. Searches go to the database meanwhile.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(this::build);
+    }
+
+    private void build() {
+        synchronized (this) {
+            generation = null;
+            changesDuringBuild = new HashMap<>();
+            // the stars read below include every change committed so far
+            pendingReloads.clear();
+        }
+        long startedAt = System.nanoTime();
+        List<StarDto> stars;
+        try {
+            stars = loadTransaction.execute(status -> starsRepository.findAll().stream()
+                    .map(starMapper::mapToDto)
+                    .toList());
+        } catch (RuntimeException exception) {
+            log.warn("Building the star column index failed, retrying in {}: {}", retryDelay, exception.getMessage());
+            executor.schedule(this::build, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        StarColumns columns = StarColumns.of(Objects.requireNonNull(stars));
+        synchronized (this) {
+            generation = new Generation(columns, changesDuringBuild);
+            changesDuringBuild = null;
+            scheduleCompactionIfNeeded();
+        }
+        log.info("Star column index built with {} stars in {} ms", columns.getSize(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    private void reloadPending() {
+        Generation reloadedFrom = generation;
+        Map<Integer, Integer> reloading = Map.copyOf(pendingReloads);
+        if (reloadedFrom == null || reloading.isEmpty()) {
+            return;
+        }
+        Map<Integer, StarDto> reloaded;
+        try {
+            reloaded = loadTransaction.execute(status -> starsRepository.findAllById(reloading.keySet()).stream()
+                    .map(starMapper::mapToDto)
+                    .collect(Collectors.toMap(StarDto::getId, Function.identity())));
+        } catch (RuntimeException exception) {
+            log.warn("Reloading {} stars into the column index failed, retrying in {}: {}",
+                    reloading.size(), retryDelay, exception.getMessage());
+            executor.schedule(this::reloadPending, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        synchronized (this) {
+            if (generation == null) {
+                return;
+            }
+            for (Integer id : reloading.keySet()) {
+                // a local write since the reload started is newer than what was read
+                if (generation.changes.get(id) == reloadedFrom.changes.get(id)) {
+                    generation = generation.with(id, Objects.requireNonNull(reloaded).get(id));
+                }
+            }
+            scheduleCompactionIfNeeded();
+        }
+        reloading.forEach(pendingReloads::remove);
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (!compactionScheduled && generation.changes.size() >= compactionThreshold) {
+            compactionScheduled = true;
+            executor.execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        Generation compacted;
+        synchronized (this) {
+            compactionScheduled = false;
+            compacted = generation;
+        }
+        if (compacted == null || compacted.changes.isEmpty()) {
+            return;
+        }
+        StarColumns columns = compacted.merge();
+        synchronized (this) {
+            if (generation == null) {
+                return;
+            }
+            Map<Integer, StarDto> laterChanges = new HashMap<>();
+            generation.changes.forEach((id, star) -> {
+                if (!compacted.changes.containsKey(id) || compacted.changes.get(id) != star) {
+                    laterChanges.put(id, star);
+                }
+            });
+            generation = new Generation(columns, laterChanges);
+        }
+        log.debug("Star column index compacted to {} stars", columns.getSize());
+    }
+
+    /**
+     * The first {@code limit} results of a single-key order, walking the rows in that order until they are found.
+     * Changed stars are few, so they are sorted on their own and merged into the walk.
+     */
+    private static int[] firstInOrder(StarColumns columns, long[] selection, ResultOrder order, SortKey key,
+                                      int limit) {
+        BoundedIntHeap changes = new BoundedIntHeap(order.changedCount(), order);
+        for (int i = 0; i < order.changedCount(); i++) {
+            changes.offer(~i);
+        }
+        int[] sortedChanges = changes.drainSorted();
+        int[] results = new int[limit];
+        // results found so far and changed stars merged so far
+        int[] counts = new int[2];
+        columns.forEachInOrder(key.column, key.ascending, row -> {
+            if ((selection[row >>> 6] & (1L << row)) == 0) {
+                return true;
+            }
+            while (counts[1] < sortedChanges.length && counts[0] < limit
+                    && order.compare(sortedChanges[counts[1]], row) < 0) {
+                results[counts[0]++] = sortedChanges[counts[1]++];
+            }
+            if (counts[0] < limit) {
+                results[counts[0]++] = row;
+            }
+            return counts[0] < limit;
+        });
+        while (counts[0] < limit && counts[1] < sortedChanges.length) {
+            results[counts[0]++] = sortedChanges[counts[1]++];
+        }
+        return results;
+    }
+
+    /**
+     * The first {@code limit} results of any order, kept in a bounded heap while the selection is walked.
+     */
+    private static int[] smallest(StarColumns columns, long[] selection, ResultOrder order, int limit) {
+        BoundedIntHeap heap = new BoundedIntHeap(limit, order);
+        StarColumns.forEachRow(selection, heap::offer);
+        for (int i = 0; i < order.changedCount(); i++) {
+            heap.offer(~i);
+        }
+        return heap.drainSorted();
+    }
+
+    /**
+     * Keys of the order of the results, before the implicit tie break by id. Text columns sort by database
+     * collation, which only the database applies, so orders by them return {@code null}.
+     */
+    private static List<SortKey> sortKeysOf(Sort sort) {
+        List<SortKey> keys = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (order.getNullHandling() != Sort.NullHandling.NATIVE) {
+                return null;
+            }
+            StarColumns.NumericColumn column = null;
+            if (!"id".equals(order.getProperty())) {
+                column = StarColumns.NumericColumn.ofProperty(order.getProperty());
+                if (column == null) {
+                    return null;
+                }
+            }
+            keys.add(new SortKey(column, order.isAscending()));
+        }
+        return keys;
+    }
+
+    private static StarDto copyOf(StarDto star) {
+        return new StarDto(star.getId(), star.getName(), star.getType(), star.getMass(), star.getRadius(),
+                star.getTemperature(), star.getLuminosity(), star.getRightAscension(), star.getDeclination(),
+                star.getPositionInConstellation(), star.getImageUrl(), star.getConstellationId());
+    }
+
+    /**
+     * A sort key on a numeric column, or on the id if {@code column} is {@code null}.
+     */
+    private static final class SortKey {
+        private static final SortKey BY_ID = new SortKey(null, true);
+
+        private final StarColumns.NumericColumn column;
+        private final boolean ascending;
+
+        private SortKey(StarColumns.NumericColumn column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+    }
+
+    /**
+     * Order of the search results, ties broken by id, over rows of the columns and changed stars, the changed star
+     * at index {@code i} being {@code ~i}. Null values sort as the largest, as in PostgreSQL.
+     */
+    private static final class ResultOrder implements BoundedIntHeap.IntOrder {
+        private final StarColumns columns;
+        private final List<StarDto> changedStars;
+        private final List<SortKey> keys;
+
+        private ResultOrder(StarColumns columns, List<StarDto> changedStars, List<SortKey> keys) {
+            this.columns = columns;
+            this.changedStars = changedStars;
+            this.keys = keys;
+        }
+
+        @Override
+        public int compare(int first, int second) {
+            for (SortKey key : keys) {
+                int comparison = key.column == null
+                        ? Integer.compare(id(first), id(second))
+                        : Double.compare(value(key.column, first), value(key.column, second));
+                if (comparison != 0) {
+                    return key.ascending ? comparison : -comparison;
+                }
+            }
+            return Integer.compare(id(first), id(second));
+        }
+
+        int changedCount() {
+            return changedStars.size();
+        }
+
+        StarDto star(int result) {
+            return result >= 0 ? columns.star(result) : copyOf(changedStars.get(~result));
+        }
+
+        private int id(int result) {
+            return result >= 0 ? columns.id(result) : changedStars.get(~result).getId();
+        }
+
+        private double value(StarColumns.NumericColumn column, int result) {
+            if (result >= 0) {
+                return columns.rawValue(column, result);
+            }
+            Double value = column.getValue().apply(changedStars.get(~result));
+            return value != null ? value : Double.NaN;
+        }
+    }
+
+    /**
+     * Columns and the stars changed since they were built, a {@code null} value marking a deleted star.
+     * Immutable: changes replace the generation.
+     */
+    private static final class Generation {
+        private final StarColumns columns;
+        private final Map<Integer, StarDto> changes;
+
+        private Generation(StarColumns columns, Map<Integer, StarDto> changes) {
+            this.columns = columns;
+            this.changes = changes;
+        }
+
+        Generation with(int id, StarDto star) {
+            Map<Integer, StarDto> newChanges = new HashMap<>(changes);
+            newChanges.put(id, star);
+            return new Generation(columns, newChanges);
+        }
+
+        StarColumns merge() {
+            List<StarDto> stars = new ArrayList<>(columns.getSize() + changes.size());
+            for (int row = 0; row < columns.getSize(); row++) {
+                if (!changes.containsKey(columns.id(row))) {
+                    stars.add(columns.star(row));
+                }
+            }
+            changes.values().stream().filter(Objects::nonNull).forEach(stars::add);
+            return StarColumns.of(stars);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.rememberconstellations.indexes;
+
+import com.example.rememberconstellations.cache.StarQuery;
+import com.example.rememberconstellations.dtos.StarDto;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import lombok.Getter;
+
+/**
+ * Immutable column-oriented copy of a set of stars. Rows are ordered by id. Every numeric column is kept as a
+ * {@code double[]} plus a permutation of the rows sorted by that column, so a {@code >=} filter is a binary search
+ * followed by either a walk over the tail of the permutation or a branch-free scan of the column, whichever touches
+ * fewer rows. Text filters are narrowed by a {@link TrigramIndex} before values are compared. Filters are combined
+ * as bitmaps of row numbers. Sky positions are indexed by a {@link SkyTree} and physical properties by a
+ * {@link SimilarityTree}. Only the columns are kept; {@link #star(int)} builds a new DTO for each result.
+ */
+final class StarColumns {
+    // a range matching more rows than this share is cheaper to scan than to gather from the permutation
+    private static final int GATHER_SELECTIVITY_DIVISOR = 16;
+    private static final int NO_CONSTELLATION = Integer.MIN_VALUE;
+
+    @Getter
+    enum NumericColumn {
+        MASS("mass", StarDto::getMass, StarQuery::getMass),
+        RADIUS("radius", StarDto::getRadius, StarQuery::getRadius),
+        TEMPERATURE("temperature", StarDto::getTemperature, StarQuery::getTemperature),
+        LUMINOSITY("luminosity", StarDto::getLuminosity, StarQuery::getLuminosity),
+        RIGHT_ASCENSION("rightAscension", StarDto::getRightAscension, StarQuery::getRightAscension),
+        DECLINATION("declination", StarDto::getDeclination, StarQuery::getDeclination);
+
+        private final String property;
+        private final Function<StarDto, Double> value;
+        private final Function<StarQuery, Double> lowerBound;
+
+        NumericColumn(String property, Function<StarDto, Double> value, Function<StarQuery, Double> lowerBound) {
+            this.property = property;
+            this.value = value;
+            this.lowerBound = lowerBound;
+        }
+
+        static NumericColumn ofProperty(String property) {
+            for (NumericColumn column : values()) {
+                if (column.property.equals(property)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Getter
+    private final int size;
+    private final int[] ids;
+    private final double[][] columns;
+    // rows with a value, ordered by it; null values (NaN in the column) never match a range
+    private final int[][] sortedRows;
+    private final double[][] sortedValues;
+    // rows without a value, in id order
+    private final int[][] missingRows;
+    private final int[] constellationIds;
+    private final String[] names;
+    private final String[] types;
+    private final String[] positions;
+    private final String[] imageUrls;
+    // lower-cased for the case-insensitive text filters
+    private final String[] lowerCaseNames;
+    private final String[] lowerCaseTypes;
+    private final String[] lowerCasePositions;
+    private final TrigramIndex nameTrigrams;
+    private final TrigramIndex typeTrigrams;
+    private final TrigramIndex positionTrigrams;
+    private final SkyTree skyTree;
+    @Getter
+    private final StarFeatures features;
+    private final SimilarityTree similarityTree;
+
+    private StarColumns(StarDto[] stars) {
+        NumericColumn[] numericColumns = NumericColumn.values();
+        this.size = stars.length;
+        this.ids = new int[size];
+        this.columns = new double[numericColumns.length][size];
+        this.sortedRows = new int[numericColumns.length][];
+        this.sortedValues = new double[numericColumns.length][];
+        this.missingRows = new int[numericColumns.length][];
+        this.constellationIds = new int[size];
+        this.names = new String[size];
+        this.types = new String[size];
+        this.positions = new String[size];
+        this.imageUrls = new String[size];
+        this.lowerCaseNames = new String[size];
+        this.lowerCaseTypes = new String[size];
+        this.lowerCasePositions = new String[size];
+        for (int row = 0; row < size; row++) {
+            StarDto star = stars[row];
+            ids[row] = star.getId();
+            for (NumericColumn column : numericColumns) {
+                Double value = column.value.apply(star);
+                columns[column.ordinal()][row] = value != null ? value : Double.NaN;
+            }
+            constellationIds[row] = star.getConstellationId() != null ? star.getConstellationId() : NO_CONSTELLATION;
+            names[row] = star.getName();
+            types[row] = star.getType();
+            positions[row] = star.getPositionInConstellation();
+            imageUrls[row] = star.getImageUrl();
+            lowerCaseNames[row] = lowerCase(star.getName());
+            lowerCaseTypes[row] = lowerCase(star.getType());
+            lowerCasePositions[row] = lowerCase(star.getPositionInConstellation());
+        }
+        this.nameTrigrams = new TrigramIndex(lowerCaseNames);
+        this.typeTrigrams = new TrigramIndex(lowerCaseTypes);
+        this.positionTrigrams = new TrigramIndex(lowerCasePositions);
+        for (NumericColumn column : numericColumns) {
+            double[] values = columns[column.ordinal()];
+            int[] rows = IntStream.range(0, size)
+                    .filter(row -> !Double.isNaN(values[row]))
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(row -> values[row]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            double[] sorted = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                sorted[i] = values[rows[i]];
+            }
+            sortedRows[column.ordinal()] = rows;
+            sortedValues[column.ordinal()] = sorted;
+            missingRows[column.ordinal()] = IntStream.range(0, size).filter(row -> Double.isNaN(values[row])).toArray();
+        }
+        this.skyTree = new SkyTree(columns[NumericColumn.RIGHT_ASCENSION.ordinal()],
+                columns[NumericColumn.DECLINATION.ordinal()], columns[NumericColumn.LUMINOSITY.ordinal()]);
+        this.features = StarFeatures.of(Arrays.asList(stars));
+        this.similarityTree = new SimilarityTree(Arrays.stream(stars).map(features::vector).toArray(double[][]::new));
+    }
+
+    static StarColumns of(Collection<StarDto> stars) {
+        StarDto[] rows = stars.toArray(new StarDto[0]);
+        Arrays.sort(rows, Comparator.comparingInt(StarDto::getId));
+        return new StarColumns(rows);
+    }
+
+    /**
+     * A new DTO of the star in the row.
+     */
+    StarDto star(int row) {
+        return new StarDto(ids[row], names[row], types[row], value(NumericColumn.MASS, row),
+                value(NumericColumn.RADIUS, row), value(NumericColumn.TEMPERATURE, row),
+                value(NumericColumn.LUMINOSITY, row), value(NumericColumn.RIGHT_ASCENSION, row),
+                value(NumericColumn.DECLINATION, row), positions[row], imageUrls[row],
+                constellationIds[row] != NO_CONSTELLATION ? constellationIds[row] : null);
+    }
+
+    int id(int row) {
+        return ids[row];
+    }
+
+    /**
+     * The value of the column in the row, {@code NaN} if it has none.
+     */
+    double rawValue(NumericColumn column, int row) {
+        return columns[column.ordinal()][row];
+    }
+
+    private Double value(NumericColumn column, int row) {
+        double value = columns[column.ordinal()][row];
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * Returns the row of the star with the given id, or a negative number if there is none.
+     */
+    int rowOf(int id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    /**
+     * Returns the rows matching the criteria of the query as a bitmap, one bit per row.
+     */
+    long[] select(StarQuery query) {
+        long[] selection = new long[words(size)];
+        NumericColumn[] ranges = Arrays.stream(NumericColumn.values())
+                .filter(column -> column.lowerBound.apply(query) != null)
+                .sorted(Comparator.comparingInt(column -> matchCount(column, column.lowerBound.apply(query))))
+                .toArray(NumericColumn[]::new);
+        if (ranges.length == 0) {
+            Arrays.fill(selection, -1L);
+            clearTail(selection);
+        } else {
+            // the most selective range seeds the selection, the others can only shrink it
+            gather(selection, ranges[0], query);
+        }
+        for (int i = 1; i < ranges.length && !isEmpty(selection); i++) {
+            NumericColumn column = ranges[i];
+            double bound = column.lowerBound.apply(query);
+            if (matchCount(column, bound) <= size / GATHER_SELECTIVITY_DIVISOR) {
+                long[] range = new long[selection.length];
+                gather(range, column, query);
+                for (int word = 0; word < selection.length; word++) {
+                    selection[word] &= range[word];
+                }
+            } else {
+                retainAtLeast(selection, columns[column.ordinal()], bound);
+            }
+        }
+        if (query.getConstellationId() != null) {
+            retainEqual(selection, constellationIds, query.getConstellationId());
+        }
+        retainContaining(selection, lowerCaseNames, nameTrigrams, query.getName());
+        retainContaining(selection, lowerCaseTypes, typeTrigrams, query.getType());
+        retainContaining(selection, lowerCasePositions, positionTrigrams, query.getPositionInConstellation());
+        return selection;
+    }
+
+    /**
+     * Calls the action for every row in the order of the column, or of the id if {@code column} is {@code null},
+     * until it returns {@code false}. Ties are in id order and rows without a value sort as the largest, as in
+     * PostgreSQL.
+     */
+    void forEachInOrder(NumericColumn column, boolean ascending, IntPredicate action) {
+        if (column == null) {
+            for (int i = 0; i < size; i++) {
+                if (!action.test(ascending ? i : size - 1 - i)) {
+                    return;
+                }
+            }
+            return;
+        }
+        int[] rows = sortedRows[column.ordinal()];
+        double[] sorted = sortedValues[column.ordinal()];
+        int[] missing = missingRows[column.ordinal()];
+        if (ascending) {
+            if (testAll(rows, 0, rows.length, action)) {
+                testAll(missing, 0, missing.length, action);
+            }
+            return;
+        }
+        if (!testAll(missing, 0, missing.length, action)) {
+            return;
+        }
+        // largest values first, each run of equal values still in id order
+        int end = rows.length;
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && Double.compare(sorted[start - 1], sorted[end - 1]) == 0) {
+                start--;
+            }
+            if (!testAll(rows, start, end, action)) {
+                return;
+            }
+            end = start;
+        }
+    }
+
+    private static boolean testAll(int[] rows, int from, int to, IntPredicate action) {
+        for (int i = from; i < to; i++) {
+            if (!action.test(rows[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calls the action for each row positioned inside the cone.
+     */
+    void forEachWithin(SkyCone cone, IntConsumer action) {
+        skyTree.forEachWithin(cone.center(), cone.chordSquared(), action);
+    }
+
+    /**
+     * Returns up to {@code k} accepted rows at least as luminous as given, nearest to the position first.
+     */
+    int[] nearest(double[] position, int k, double minLuminosity, IntPredicate accept) {
+        return skyTree.nearest(position, k, minLuminosity, accept);
+    }
+
+    /**
+     * Returns up to {@code k} accepted rows at most {@code maxDistance} from the feature vector, most similar first.
+     */
+    int[] mostSimilar(double[] vector, int k, double maxDistance, IntPredicate accept) {
+        return similarityTree.nearest(vector, k, maxDistance, accept);
+    }
+
+    static void forEachRow(long[] selection, IntConsumer action) {
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            while (bits != 0) {
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    static int cardinality(long[] selection) {
+        int count = 0;
+        for (long bits : selection) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    private int matchCount(NumericColumn column, double bound) {
+        double[] sorted = sortedValues[column.ordinal()];
+        return sorted.length - lowerBoundIndex(sorted, bound);
+    }
+
+    private void gather(long[] bitmap, NumericColumn column, StarQuery query) {
+        double[] sorted = sortedValues[column.ordinal()];
+        int[] rows = sortedRows[column.ordinal()];
+        for (int i = lowerBoundIndex(sorted, column.lowerBound.apply(query)); i < rows.length; i++) {
+            int row = rows[i];
+            bitmap[row >>> 6] |= 1L << row;
+        }
+    }
+
+    private static void retainAtLeast(long[] selection, double[] values, double bound) {
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            if (bits == 0) {
+                continue;
+            }
+            int base = word << 6;
+            int end = Math.min(64, values.length - base);
+            long matches = 0;
+            for (int bit = 0; bit < end; bit++) {
+                matches |= (values[base + bit] >= bound ? 1L : 0L) << bit;
+            }
+            selection[word] = bits & matches;
+        }
+    }
+
+    private static void retainEqual(long[] selection, int[] values, int expected) {
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            if (bits == 0) {
+                continue;
+            }
+            int base = word << 6;
+            int end = Math.min(64, values.length - base);
+            long matches = 0;
+            for (int bit = 0; bit < end; bit++) {
+                matches |= (values[base + bit] == expected ? 1L : 0L) << bit;
+            }
+            selection[word] = bits & matches;
+        }
+    }
+
+    private static void retainContaining(long[] selection, String[] values, TrigramIndex trigrams, String filter) {
+        if (filter == null) {
+            return;
+        }
+        trigrams.retainCandidates(selection, filter);
+        for (int word = 0; word < selection.length; word++) {
+            long bits = selection[word];
+            long remaining = bits;
+            while (remaining != 0) {
+                int bit = Long.numberOfTrailingZeros(remaining);
+                String value = values[(word << 6) + bit];
+                if (value == null || !value.contains(filter)) {
+                    bits &= ~(1L << bit);
+                }
+                remaining &= remaining - 1;
+            }
+            selection[word] = bits;
+        }
+    }
+
+    /**
+     * Index of the first value not less than the bound, in a column sorted in ascending order.
+     */
+    private static int lowerBoundIndex(double[] sorted, double bound) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void clearTail(long[] selection) {
+        int usedBits = size & 63;
+        if (usedBits != 0) {
+            selection[selection.length - 1] &= (1L << usedBits) - 1;
+        }
+    }
+
+    private static boolean isEmpty(long[] selection) {
+        for (long bits : selection) {
+            if (bits != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static String lowerCase(String value) {
+        return value != null ? value.toLowerCase() : null;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.rememberconstellations.indexes;
+
+import com.example.rememberconstellations.dtos.StarDto;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Physical likeness of stars: mass, radius, temperature and luminosity, each taken as a logarithm since they span
+ * orders of magnitude, and divided by its standard deviation over a set of stars so every property weighs the same.
+ * Stars are similar when the Euclidean distance between these vectors is small. Stars missing any of the properties,
+ * or with one that is not positive, are not comparable.
+ */
+public final class StarFeatures {
+    private static final List<Function<StarDto, Double>> PROPERTIES = List.of(
+            StarDto::getMass, StarDto::getRadius, StarDto::getTemperature, StarDto::getLuminosity);
+
+    private final double[] scales;
+
+    private StarFeatures(double[] scales) {
+        this.scales = scales;
+    }
+
+    /**
+     * Normalization by the spread of the given stars; a property without spread is left unscaled.
+     */
+    public static StarFeatures of(Collection<StarDto> stars) {
+        int dimensions = PROPERTIES.size();
+        double[] sums = new double[dimensions];
+        double[] squareSums = new double[dimensions];
+        long count = 0;
+        for (StarDto star : stars) {
+            if (!isComparable(star)) {
+                continue;
+            }
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                double value = Math.log10(PROPERTIES.get(dimension).apply(star));
+                sums[dimension] += value;
+                squareSums[dimension] += value * value;
+            }
+            count++;
+        }
+        return of(count, sums, squareSums);
+    }
+
+    /**
+     * Normalization from the number of comparable stars and the sums of the logarithms of their properties and of
+     * their squares, in the order mass, radius, temperature, luminosity.
+     */
+    public static StarFeatures of(long count, double[] sums, double[] squareSums) {
+        double[] scales = new double[PROPERTIES.size()];
+        for (int dimension = 0; dimension < scales.length; dimension++) {
+            double mean = count > 0 ? sums[dimension] / count : 0;
+            double variance = count > 0 ? squareSums[dimension] / count - mean * mean : 0;
+            scales[dimension] = variance > 1e-12 ? 1 / Math.sqrt(variance) : 1;
+        }
+        return new StarFeatures(scales);
+    }
+
+    public static boolean isComparable(StarDto star) {
+        for (Function<StarDto, Double> property : PROPERTIES) {
+            Double value = property.apply(star);
+            if (value == null || !(value > 0) || value.isInfinite()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The normalized vector of the star, or {@code null} if it is not comparable.
+     */
+    double[] vector(StarDto star) {
+        if (!isComparable(star)) {
+            return null;
+        }
+        double[] vector = new double[PROPERTIES.size()];
+        for (int dimension = 0; dimension < vector.length; dimension++) {
+            vector[dimension] = Math.log10(PROPERTIES.get(dimension).apply(star)) * scales[dimension];
+        }
+        return vector;
+    }
+
+    /**
+     * Lowest and highest value of each property, in the order mass, radius, temperature, luminosity, of the stars at
+     * most {@code distance} from the comparable origin; every such star lies within all four ranges.
+     */
+    public double[][] propertyRanges(StarDto origin, double distance) {
+        double[][] ranges = new double[PROPERTIES.size()][];
+        for (int dimension = 0; dimension < ranges.length; dimension++) {
+            double value = PROPERTIES.get(dimension).apply(origin);
+            double factor = Math.pow(10, distance / scales[dimension]);
+            ranges[dimension] = new double[] {value / factor, value * factor};
+        }
+        return ranges;
+    }
+
+    static double distance(double[] first, double[] second) {
+        double sum = 0;
+        for (int dimension = 0; dimension < first.length; dimension++) {
+            double difference = first[dimension] - second[dimension];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Distance between two comparable stars.
+     */
+    public double distance(StarDto first, StarDto second) {
+        return distance(vector(first), vector(second));
+    }
+
+    /**
+     * Most similar comparable stars first, ties broken by id.
+     */
+    public Comparator<StarDto> byDistanceTo(StarDto origin) {
+        double[] center = vector(origin);
+        return Comparator.comparingDouble((StarDto star) -> distance(center, vector(star)))
+                .thenComparingInt(StarDto::getId);
+    }
+}
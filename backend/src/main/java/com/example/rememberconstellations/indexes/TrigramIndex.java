@@ -0,0 +1,96 @@
+package com.example.rememberconstellations.indexes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Posting lists of the rows containing each three-character sequence of a text column, the in-memory counterpart of
+ * a {@code pg_trgm} index. Every row containing a substring contains all of its trigrams, so intersecting their
+ * posting lists narrows a substring filter to a few candidate rows, which are then checked exactly.
+ */
+final class TrigramIndex {
+    private static final int[] NO_ROWS = new int[0];
+
+    // rows in ascending order per trigram
+    private final Map<Long, int[]> postings;
+
+    /**
+     * Indexes the values by row number, {@code null} values matching no trigram.
+     */
+    TrigramIndex(String[] values) {
+        Map<Long, Integer> counts = new HashMap<>();
+        Map<Long, Integer> lastRows = new HashMap<>();
+        for (int row = 0; row < values.length; row++) {
+            forEachTrigram(values[row], row, lastRows, trigram -> counts.merge(trigram, 1, Integer::sum));
+        }
+        Map<Long, int[]> lists = new HashMap<>(counts.size() * 2);
+        Map<Long, Integer> filled = new HashMap<>(counts.size() * 2);
+        counts.forEach((trigram, count) -> lists.put(trigram, new int[count]));
+        lastRows.clear();
+        for (int row = 0; row < values.length; row++) {
+            int current = row;
+            forEachTrigram(values[row], row, lastRows, trigram ->
+                    lists.get(trigram)[filled.merge(trigram, 1, Integer::sum) - 1] = current);
+        }
+        this.postings = lists;
+    }
+
+    /**
+     * Clears from the selection the rows that cannot contain the filter. Filters shorter than a trigram leave it
+     * unchanged.
+     */
+    void retainCandidates(long[] selection, String filter) {
+        if (filter.length() < 3) {
+            return;
+        }
+        int[][] lists = new int[filter.length() - 2][];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.getOrDefault(trigram(filter, i), NO_ROWS);
+        }
+        // the shortest list bounds the candidates, the longer ones only shrink them
+        Arrays.sort(lists, (first, second) -> Integer.compare(first.length, second.length));
+        long[] candidates = new long[selection.length];
+        for (int row : lists[0]) {
+            candidates[row >>> 6] |= 1L << row;
+        }
+        for (int i = 1; i < lists.length; i++) {
+            if (lists[i] == lists[i - 1]) {
+                // a trigram repeated in the filter
+                continue;
+            }
+            long[] containing = new long[selection.length];
+            for (int row : lists[i]) {
+                containing[row >>> 6] |= 1L << row;
+            }
+            for (int word = 0; word < candidates.length; word++) {
+                candidates[word] &= containing[word];
+            }
+        }
+        for (int word = 0; word < selection.length; word++) {
+            selection[word] &= candidates[word];
+        }
+    }
+
+    /**
+     * Calls the action once for each distinct trigram of the value; {@code lastRows} remembers which row last
+     * reported a trigram so repeats within a value are skipped.
+     */
+    private static void forEachTrigram(String value, int row, Map<Long, Integer> lastRows, LongConsumer action) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            long trigram = trigram(value, i);
+            Integer lastRow = lastRows.put(trigram, row);
+            if (lastRow == null || lastRow != row) {
+                action.accept(trigram);
+            }
+        }
+    }
+
+    private static long trigram(String value, int from) {
+        return ((long) value.charAt(from) << 32) | ((long) value.charAt(from + 1) << 16) | value.charAt(from + 2);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.rememberconstellations.mappers;
+
+import com.example.rememberconstellations.cache.CacheStats;
+import com.example.rememberconstellations.dtos.CacheStatsDto;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CacheStatsMapper {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public CacheStatsDto mapToDto(CacheStats cacheStats) {
+        return new CacheStatsDto(
+                cacheStats.getName(),
+                cacheStats.getSize(),
+                cacheStats.getMaxSize(),
+                cacheStats.getWeight(),
+                cacheStats.getMaxWeight() == Long.MAX_VALUE ? null : cacheStats.getMaxWeight(),
+                cacheStats.getHitCount(),
+                cacheStats.getMissCount(),
+                cacheStats.getHitRate(),
+                cacheStats.getPutCount(),
+                cacheStats.getSizeEvictionCount(),
+                cacheStats.getExpiryEvictionCount(),
+                cacheStats.getLoadCount(),
+                cacheStats.getLoadFailureCount(),
+                cacheStats.getAverageLoadPenaltyNanos() / NANOS_PER_MILLI,
+                cacheStats.getRefreshCount(),
+                cacheStats.getStaleHitCount());
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.rememberconstellations.models;
 
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -13,12 +15,16 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Setter
 @Getter
@@ -26,6 +32,8 @@ import lombok.Setter;
 @AllArgsConstructor
 @Entity
 @Table(name = "constellations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CONSTELLATION_REGION)
 public class Constellation {
 
     @Id
@@ -52,10 +60,16 @@ public class Constellation {
     @Column(name = "image_url", nullable = true)
     private String imageUrl;
 
+    // null for rows not written by the application since the column was added
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = true)
+    private Instant updatedAt;
+
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
     @JsonManagedReference
     @OneToMany(mappedBy = "constellation", fetch = FetchType.LAZY,
             cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CONSTELLATION_STARS_REGION)
     @SuppressWarnings("java:S7027")
     private List<Star> stars = new ArrayList<>();
 }
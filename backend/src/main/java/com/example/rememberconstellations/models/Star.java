@@ -1,7 +1,9 @@
 package com.example.rememberconstellations.models;
 
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -15,10 +17,14 @@ import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import java.time.Instant;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Setter
 @Getter
@@ -26,6 +32,8 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "stars")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.STAR_REGION)
 public class Star {
 
     @Id
@@ -76,6 +84,11 @@ public class Star {
     @Column(name = "image_url", nullable = true)
     private String imageUrl;
 
+    // null for rows not written by the application since the column was added
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = true)
+    private Instant updatedAt;
+
     @JsonIdentityReference(alwaysAsId = true)
     @JsonBackReference
     @ManyToOne(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
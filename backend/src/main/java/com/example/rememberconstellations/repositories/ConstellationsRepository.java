@@ -1,12 +1,17 @@
 package com.example.rememberconstellations.repositories;
 
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
 import com.example.rememberconstellations.models.Constellation;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -21,8 +26,19 @@ public interface ConstellationsRepository extends JpaRepository<Constellation, I
            "JOIN stars ss ON const.id = ss.constellation_id " +
            "WHERE ss.type = :type", nativeQuery = true)
     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.STAR_TYPE_QUERY_REGION)
+    })
     @Query("SELECT const FROM Constellation const JOIN const.stars ss WHERE ss.type = :type")
     List<Constellation> findByStarType(@Param("type") String starType);
 
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.NAME_QUERY_REGION)
+    })
     boolean existsByName(String name);
+
+    @Query("SELECT c.id AS id, c.updatedAt AS updatedAt FROM Constellation c WHERE c.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Integer> ids);
 }
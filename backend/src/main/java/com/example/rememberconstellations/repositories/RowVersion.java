@@ -0,0 +1,13 @@
+package com.example.rememberconstellations.repositories;
+
+import java.time.Instant;
+
+/**
+ * Id of a row and the time it was last written by the application, {@code null} if unknown.
+ */
+public interface RowVersion {
+
+    int getId();
+
+    Instant getUpdatedAt();
+}
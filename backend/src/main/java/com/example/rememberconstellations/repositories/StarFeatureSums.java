@@ -0,0 +1,22 @@
+package com.example.rememberconstellations.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Number of stars with a positive mass, radius, temperature and luminosity, with the sums of the base-10 logarithms
+ * of these properties and of their squares.
+ */
+@Getter
+@AllArgsConstructor
+public class StarFeatureSums {
+    private final Long starCount;
+    private final Double massLogSum;
+    private final Double massLogSquareSum;
+    private final Double radiusLogSum;
+    private final Double radiusLogSquareSum;
+    private final Double temperatureLogSum;
+    private final Double temperatureLogSquareSum;
+    private final Double luminosityLogSum;
+    private final Double luminosityLogSquareSum;
+}
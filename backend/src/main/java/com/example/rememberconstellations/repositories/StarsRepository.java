@@ -1,12 +1,17 @@
 package com.example.rememberconstellations.repositories;
 
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
 import com.example.rememberconstellations.models.Star;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -16,6 +21,10 @@ public interface StarsRepository extends JpaRepository<Star, Integer>, JpaSpecif
     @EntityGraph(attributePaths = {"constellation"})
     Optional<Star> findById(int id);
 
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.STAR_NAME_QUERY_REGION)
+    })
     boolean existsByName(String name);
 
     @Query("SELECT s.name FROM Star s WHERE s.name IN :names")
@@ -23,4 +32,20 @@ public interface StarsRepository extends JpaRepository<Star, Integer>, JpaSpecif
 
     @Query("SELECT s FROM Star s WHERE s.id IN :ids AND s.constellation IS NULL")
     List<Star> findByIdAndConstellationIsNull(@Param("ids") List<Integer> ids);
+
+    @Query("SELECT s.id AS id, s.updatedAt AS updatedAt FROM Star s WHERE s.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // per constellation, the latest write of a star currently in it
+    @Query("SELECT s.constellation.id AS id, MAX(s.updatedAt) AS updatedAt FROM Star s "
+            + "WHERE s.constellation.id IN :constellationIds GROUP BY s.constellation.id")
+    List<RowVersion> findLatestVersionsByConstellationIdIn(@Param("constellationIds") Collection<Integer> constellationIds);
+
+    @Query("SELECT NEW com.example.rememberconstellations.repositories.StarFeatureSums(COUNT(s), "
+            + "COALESCE(SUM(LOG10(s.mass)), 0.0), COALESCE(SUM(LOG10(s.mass) * LOG10(s.mass)), 0.0), "
+            + "COALESCE(SUM(LOG10(s.radius)), 0.0), COALESCE(SUM(LOG10(s.radius) * LOG10(s.radius)), 0.0), "
+            + "COALESCE(SUM(LOG10(s.temperature)), 0.0), COALESCE(SUM(LOG10(s.temperature) * LOG10(s.temperature)), 0.0), "
+            + "COALESCE(SUM(LOG10(s.luminosity)), 0.0), COALESCE(SUM(LOG10(s.luminosity) * LOG10(s.luminosity)), 0.0)) "
+            + "FROM Star s WHERE s.mass > 0 AND s.radius > 0 AND s.temperature > 0 AND s.luminosity > 0")
+    StarFeatureSums sumFeatures();
 }
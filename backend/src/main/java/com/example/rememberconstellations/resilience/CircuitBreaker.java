@@ -0,0 +1,156 @@
+package com.example.rememberconstellations.resilience;
+
+import com.example.rememberconstellations.cache.Ticker;
+import com.example.rememberconstellations.exceptions.CircuitOpenException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stops calls to a failing dependency so callers can fall back right away instead of waiting on it.
+ * The circuit opens after {@code failureThreshold} consecutive failed or slow calls and then rejects every call
+ * with a {@link CircuitOpenException} for {@code openDuration}. After that it is half-open: at most
+ * {@code halfOpenMaxConcurrentProbes} calls go through at a time, and other calls keep being rejected.
+ * {@code halfOpenSuccessThreshold} successful probes close the circuit, a single failed one opens it again.
+ *
+ * <p>Exceptions matching the failure predicate count as failures; other exceptions mean the dependency answered
+ * and count as successes. Outcomes of calls admitted before the last state change are ignored.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Getter
+    private final String name;
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenMaxConcurrentProbes;
+    private final int halfOpenSuccessThreshold;
+    private final Predicate<? super RuntimeException> failurePredicate;
+    private final Ticker ticker;
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    // guarded by this
+    private State state = State.CLOSED;
+    // bumped on every state change
+    private long generation;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(String name, CircuitBreakerSettings settings, Predicate<? super RuntimeException> failurePredicate,
+                          Ticker ticker) {
+        if (settings.getFailureThreshold() <= 0 || settings.getHalfOpenMaxConcurrentProbes() <= 0
+                || settings.getHalfOpenSuccessThreshold() <= 0) {
+            throw new IllegalArgumentException("Circuit breaker " + name + " thresholds and probe limit must be positive");
+        }
+        this.name = name;
+        this.enabled = settings.isEnabled();
+        this.failureThreshold = settings.getFailureThreshold();
+        this.slowCallNanos = settings.getSlowCallThreshold().toNanos();
+        this.openNanos = settings.getOpenDuration().toNanos();
+        this.halfOpenMaxConcurrentProbes = settings.getHalfOpenMaxConcurrentProbes();
+        this.halfOpenSuccessThreshold = settings.getHalfOpenSuccessThreshold();
+        this.failurePredicate = failurePredicate;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Runs {@code call} if the circuit lets it through, otherwise throws a {@link CircuitOpenException}.
+     */
+    public <T> T execute(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        long permit = acquirePermit();
+        long start = ticker.read();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException exception) {
+            recordOutcome(permit, failurePredicate.test(exception) || ticker.read() - start > slowCallNanos);
+            throw exception;
+        } catch (Error error) {
+            recordOutcome(permit, true);
+            throw error;
+        }
+        recordOutcome(permit, ticker.read() - start > slowCallNanos);
+        return result;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getRejectedCallCount() {
+        return rejectedCalls.sum();
+    }
+
+    private synchronized long acquirePermit() {
+        long now = ticker.read();
+        if (state == State.OPEN) {
+            long openFor = now - openedAt;
+            if (openFor < openNanos) {
+                throw reject(Duration.ofNanos(openNanos - openFor));
+            }
+            transitionTo(State.HALF_OPEN);
+            log.info("Circuit {} is half-open, probing", name);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenMaxConcurrentProbes) {
+                throw reject(Duration.ZERO);
+            }
+            probesInFlight++;
+        }
+        return generation;
+    }
+
+    private CircuitOpenException reject(Duration retryAfter) {
+        rejectedCalls.increment();
+        return new CircuitOpenException("Circuit " + name + " is open", retryAfter);
+    }
+
+    private synchronized void recordOutcome(long permit, boolean failed) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (failed) {
+                open();
+            } else if (++probeSuccesses >= halfOpenSuccessThreshold) {
+                transitionTo(State.CLOSED);
+                log.info("Circuit {} closed", name);
+            }
+        } else if (state == State.CLOSED) {
+            if (!failed) {
+                consecutiveFailures = 0;
+            } else if (++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        log.warn("Circuit {} opened for {} ms", name, openNanos / 1_000_000);
+        transitionTo(State.OPEN);
+        openedAt = ticker.read();
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        generation++;
+        consecutiveFailures = 0;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.rememberconstellations.resilience;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class CircuitBreakerSettings {
+
+    private boolean enabled = true;
+    // consecutive failed or slow calls that open the circuit
+    private int failureThreshold = 5;
+    // successful calls slower than this count as failures
+    private Duration slowCallThreshold = Duration.ofSeconds(2);
+    // time the circuit stays open before probe calls are let through
+    private Duration openDuration = Duration.ofSeconds(10);
+    // probe calls allowed at the same time while half-open
+    private int halfOpenMaxConcurrentProbes = 1;
+    // successful probe calls that close the circuit again
+    private int halfOpenSuccessThreshold = 3;
+
+    public static CircuitBreakerSettings bind(Environment environment, String prefix) {
+        return Binder.get(environment)
+                .bind(prefix, CircuitBreakerSettings.class)
+                .orElseGet(CircuitBreakerSettings::new);
+    }
+}
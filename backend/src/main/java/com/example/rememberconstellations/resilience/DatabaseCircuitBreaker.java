@@ -0,0 +1,66 @@
+package com.example.rememberconstellations.resilience;
+
+import com.example.rememberconstellations.cache.Ticker;
+import com.example.rememberconstellations.exceptions.CircuitOpenException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Guards the repository reads of the services, which serve expired cache entries while the database
+ * is unavailable. Configured through {@code database.circuit-breaker.*}.
+ */
+@Component
+public class DatabaseCircuitBreaker extends CircuitBreaker implements MeterBinder {
+    public static final String NAME = "database";
+
+    @Autowired
+    public DatabaseCircuitBreaker(Environment environment) {
+        this(CircuitBreakerSettings.bind(environment, "database.circuit-breaker"));
+    }
+
+    public DatabaseCircuitBreaker(CircuitBreakerSettings settings) {
+        super(NAME, settings, DatabaseCircuitBreaker::isDatabaseFailure, Ticker.system());
+    }
+
+    /**
+     * Whether the exception means the database could not answer, as opposed to rejecting the statement.
+     */
+    public static boolean isDatabaseFailure(RuntimeException exception) {
+        // repository methods open their own read-only transaction, so a connection failure surfaces on its begin
+        return exception instanceof CannotCreateTransactionException
+                || exception instanceof DataAccessResourceFailureException
+                || exception instanceof TransientDataAccessResourceException
+                || exception instanceof QueryTimeoutException
+                || exception instanceof RecoverableDataAccessException;
+    }
+
+    /**
+     * Whether a read failed because the database is unavailable, either found out by the read itself
+     * or by the circuit rejecting it.
+     */
+    public static boolean isDatabaseUnavailable(RuntimeException exception) {
+        return exception instanceof CircuitOpenException || isDatabaseFailure(exception);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("circuit.breaker.state", this, circuitBreaker -> circuitBreaker.getState().ordinal())
+                .tag("name", getName())
+                .description("0 closed, 1 open, 2 half-open")
+                .register(registry);
+        FunctionCounter.builder("circuit.breaker.rejections", this, CircuitBreaker::getRejectedCallCount)
+                .tag("name", getName())
+                .description("Calls rejected while the circuit was open or out of probes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.rememberconstellations.resilience;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Marks the response of the current request as served from expired cache entries,
+ * with the {@code Warning: 110} header of RFC 7234. Does nothing outside a request.
+ */
+public final class StaleResponses {
+    public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private StaleResponses() {
+    }
+
+    public static void markStale() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(HttpHeaders.WARNING, STALE_WARNING);
+            }
+        }
+    }
+}
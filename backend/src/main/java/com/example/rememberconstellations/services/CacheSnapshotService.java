@@ -0,0 +1,196 @@
+package com.example.rememberconstellations.services;
+
+import com.example.rememberconstellations.cache.CacheSnapshot;
+import com.example.rememberconstellations.cache.CacheSnapshotSettings;
+import com.example.rememberconstellations.cache.ConstellationCache;
+import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.repositories.ConstellationsRepository;
+import com.example.rememberconstellations.repositories.RowVersion;
+import com.example.rememberconstellations.repositories.StarsRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes the star and constellation caches to a {@link CacheSnapshot} periodically and on shutdown, and reloads
+ * the last snapshot on startup, before the web server accepts requests. Restored entries are checked against the
+ * {@code updated_at} versions of their rows: an entry is kept only if none of the rows it was built from was
+ * written after the entry was cached, so a snapshot older than writes made by another instance is harmless.
+ */
+@Slf4j
+@Service
+public class CacheSnapshotService implements SmartInitializingSingleton {
+    // keeps IN lists well below database bind parameter limits
+    private static final int VERSION_QUERY_BATCH_SIZE = 1000;
+
+    private final StarCache starCache;
+    private final ConstellationCache constellationCache;
+    private final StarsRepository starsRepository;
+    private final ConstellationsRepository constellationsRepository;
+    private final CacheSnapshotSettings settings;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public CacheSnapshotService(StarCache starCache, ConstellationCache constellationCache,
+                                StarsRepository starsRepository, ConstellationsRepository constellationsRepository,
+                                Environment environment) {
+        this.starCache = starCache;
+        this.constellationCache = constellationCache;
+        this.starsRepository = starsRepository;
+        this.constellationsRepository = constellationsRepository;
+        this.settings = CacheSnapshotSettings.bind(environment);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        restore();
+        long interval = settings.getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        // a periodic snapshot still being written finishes first, the final one then replaces it
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        snapshotQuietly();
+    }
+
+    public synchronized void snapshot() throws IOException {
+        Instant takenAt = Instant.now();
+        List<CacheSnapshot.Entry<StarDto>> stars = new ArrayList<>();
+        starCache.forEachEntry((id, starDto, age) -> stars.add(new CacheSnapshot.Entry<>(id, takenAt.minus(age), starDto)));
+        List<CacheSnapshot.Entry<ConstellationDto>> constellations = new ArrayList<>();
+        constellationCache.forEachEntry((id, constellationDto, age) ->
+                constellations.add(new CacheSnapshot.Entry<>(id, takenAt.minus(age), constellationDto)));
+        new CacheSnapshot(takenAt, stars, constellations).writeTo(settings.getPath());
+        log.info("Cache snapshot with {} stars and {} constellations written to {}",
+                stars.size(), constellations.size(), settings.getPath());
+    }
+
+    /**
+     * Loads the current entries of the last snapshot into the caches, leaving keys that are already cached alone.
+     * Returns the number of restored entries; a missing or unreadable snapshot restores nothing.
+     */
+    public int restore() {
+        if (!Files.exists(settings.getPath())) {
+            return 0;
+        }
+        CacheSnapshot snapshot;
+        try {
+            snapshot = CacheSnapshot.readFrom(settings.getPath());
+        } catch (IOException exception) {
+            log.warn("Ignoring cache snapshot {}: {}", settings.getPath(), exception.getMessage());
+            return 0;
+        }
+        int restoredStars = restoreStars(snapshot.getStars());
+        int restoredConstellations = restoreConstellations(snapshot.getConstellations());
+        log.info("Restored {} of {} stars and {} of {} constellations from cache snapshot taken at {}",
+                restoredStars, snapshot.getStars().size(), restoredConstellations, snapshot.getConstellations().size(),
+                snapshot.getTakenAt());
+        return restoredStars + restoredConstellations;
+    }
+
+    private int restoreStars(List<CacheSnapshot.Entry<StarDto>> entries) {
+        Set<Integer> ids = new HashSet<>();
+        entries.forEach(entry -> ids.add(entry.getId()));
+        Map<Integer, Instant> starVersions = findVersions(ids, starsRepository::findVersionsByIdIn);
+        int restored = 0;
+        for (CacheSnapshot.Entry<StarDto> entry : entries) {
+            if (isCurrent(starVersions, entry.getId(), entry.getWrittenAt()) && !starCache.contains(entry.getId())) {
+                starCache.put(entry.getId(), entry.getValue());
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private int restoreConstellations(List<CacheSnapshot.Entry<ConstellationDto>> entries) {
+        Set<Integer> ids = new HashSet<>();
+        Set<Integer> starIds = new HashSet<>();
+        for (CacheSnapshot.Entry<ConstellationDto> entry : entries) {
+            ids.add(entry.getId());
+            if (entry.getValue().getStars() != null) {
+                entry.getValue().getStars().forEach(star -> starIds.add(star.getId()));
+            }
+        }
+        Map<Integer, Instant> constellationVersions = findVersions(ids, constellationsRepository::findVersionsByIdIn);
+        // catches stars that joined the constellation after it was cached
+        Map<Integer, Instant> latestStarVersions = findVersions(ids, starsRepository::findLatestVersionsByConstellationIdIn);
+        Map<Integer, Instant> starVersions = findVersions(starIds, starsRepository::findVersionsByIdIn);
+        int restored = 0;
+        for (CacheSnapshot.Entry<ConstellationDto> entry : entries) {
+            int id = entry.getId();
+            Instant writtenAt = entry.getWrittenAt();
+            boolean current = isCurrent(constellationVersions, id, writtenAt)
+                    && (!latestStarVersions.containsKey(id) || isCurrent(latestStarVersions, id, writtenAt))
+                    && (entry.getValue().getStars() == null || entry.getValue().getStars().stream()
+                            .allMatch(star -> isCurrent(starVersions, star.getId(), writtenAt)));
+            if (current && !constellationCache.contains(id)) {
+                constellationCache.put(id, entry.getValue());
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * A row that no longer exists is never current; one without a version has not been written by the application
+     * since versions were introduced, which predates any snapshot entry.
+     */
+    private boolean isCurrent(Map<Integer, Instant> versions, int id, Instant writtenAt) {
+        if (!versions.containsKey(id)) {
+            return false;
+        }
+        Instant updatedAt = versions.get(id);
+        return updatedAt == null || updatedAt.isBefore(writtenAt.minus(settings.getClockSkew()));
+    }
+
+    private static Map<Integer, Instant> findVersions(Set<Integer> ids, Function<List<Integer>, List<RowVersion>> query) {
+        Map<Integer, Instant> versions = new HashMap<>();
+        List<Integer> remainingIds = new ArrayList<>(ids);
+        for (int from = 0; from < remainingIds.size(); from += VERSION_QUERY_BATCH_SIZE) {
+            List<Integer> batch = remainingIds.subList(from, Math.min(from + VERSION_QUERY_BATCH_SIZE, remainingIds.size()));
+            for (RowVersion rowVersion : query.apply(batch)) {
+                versions.put(rowVersion.getId(), rowVersion.getUpdatedAt());
+            }
+        }
+        return versions;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException exception) {
+            log.error("Failed to write cache snapshot to {}", settings.getPath(), exception);
+        }
+    }
+}
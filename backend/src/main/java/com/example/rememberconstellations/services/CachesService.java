@@ -0,0 +1,39 @@
+package com.example.rememberconstellations.services;
+
+import com.example.rememberconstellations.cache.InMemoryCache;
+import com.example.rememberconstellations.dtos.CacheStatsDto;
+import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
+import com.example.rememberconstellations.mappers.CacheStatsMapper;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+public class CachesService {
+    private final List<InMemoryCache<?, ?>> caches;
+    private final CacheStatsMapper cacheStatsMapper;
+
+    @Autowired
+    public CachesService(List<InMemoryCache<?, ?>> caches, CacheStatsMapper cacheStatsMapper) {
+        this.caches = caches;
+        this.cacheStatsMapper = cacheStatsMapper;
+    }
+
+    public List<CacheStatsDto> getAllCacheStats() {
+        log.info("Getting statistics for all caches");
+        return caches.stream()
+                .map(cache -> cacheStatsMapper.mapToDto(cache.stats()))
+                .toList();
+    }
+
+    public CacheStatsDto getCacheStats(String name) {
+        log.info("Getting statistics for cache {}", name);
+        return caches.stream()
+                .filter(cache -> cache.getName().equals(name))
+                .findFirst()
+                .map(cache -> cacheStatsMapper.mapToDto(cache.stats()))
+                .orElseThrow(() -> new ResourceNotFoundException("Cache with name " + name + " was not found"));
+    }
+}
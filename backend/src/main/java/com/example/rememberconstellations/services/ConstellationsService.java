@@ -1,7 +1,14 @@
 package com.example.rememberconstellations.services;
 
 import com.example.rememberconstellations.cache.ConstellationCache;
+import com.example.rememberconstellations.cache.ConstellationQuery;
+import com.example.rememberconstellations.cache.ConstellationQueryCache;
+import com.example.rememberconstellations.cache.MissingConstellationsCache;
+import com.example.rememberconstellations.cache.TransactionalCacheBuffer;
 import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.ConstellationChangedEvent;
+import com.example.rememberconstellations.events.StarChangedEvent;
 import com.example.rememberconstellations.exceptions.ConstellationAlreadyExistsException;
 import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
 import com.example.rememberconstellations.mappers.ConstellationMapper;
@@ -10,14 +17,20 @@ import com.example.rememberconstellations.models.Constellation;
 import com.example.rememberconstellations.models.Star;
 import com.example.rememberconstellations.repositories.ConstellationsRepository;
 import com.example.rememberconstellations.repositories.StarsRepository;
+import com.example.rememberconstellations.resilience.DatabaseCircuitBreaker;
+import com.example.rememberconstellations.resilience.StaleResponses;
 import com.example.rememberconstellations.utilities.specifications.ConstellationSpecification;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -31,7 +44,11 @@ public class ConstellationsService {
     private final ConstellationMapper constellationMapper;
     private final StarMapper starMapper;
     private final ConstellationCache constellationCache;
+    private final ConstellationQueryCache constellationQueryCache;
+    private final MissingConstellationsCache missingConstellationsCache;
     private final StarsRepository starsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DatabaseCircuitBreaker databaseCircuitBreaker;
 
     @Value("${file.default-constellation-image}")
     private String defaultConstellationImage;
@@ -39,12 +56,20 @@ public class ConstellationsService {
     @Autowired
     public ConstellationsService(ConstellationsRepository constellationsRepository,
                                  ConstellationCache constellationCache,
-                                 StarsRepository starsRepository) {
+                                 ConstellationQueryCache constellationQueryCache,
+                                 MissingConstellationsCache missingConstellationsCache,
+                                 StarsRepository starsRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 DatabaseCircuitBreaker databaseCircuitBreaker) {
         this.constellationsRepository = constellationsRepository;
         this.starMapper = new StarMapper();
         this.constellationMapper = new ConstellationMapper(starMapper);
         this.constellationCache = constellationCache;
+        this.constellationQueryCache = constellationQueryCache;
+        this.missingConstellationsCache = missingConstellationsCache;
         this.starsRepository = starsRepository;
+        this.eventPublisher = eventPublisher;
+        this.databaseCircuitBreaker = databaseCircuitBreaker;
     }
 
     /* CREATE */
@@ -61,7 +86,8 @@ public class ConstellationsService {
         }
         Constellation savedConstellation = constellationsRepository.save(constellation);
         ConstellationDto savedConstellationDto = constellationMapper.mapToDto(savedConstellation);
-        constellationCache.put(savedConstellation.getId(), savedConstellationDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> constellationCache.put(savedConstellation.getId(), savedConstellationDto));
+        publishConstellationChanged(null, savedConstellationDto);
         log.info("Constellation with id {} was saved and cashed", savedConstellationDto.getId());
         return savedConstellationDto;
     }
@@ -80,6 +106,9 @@ public class ConstellationsService {
                     .toList();
             throw new ResourceNotFoundException("Stars not found or already assigned: " + missingStarIds);
         }
+        ConstellationDto previousConstellationDto = constellationMapper.mapToDto(constellation);
+        Map<Integer, StarDto> detachedStarDtos = stars.stream()
+                .collect(Collectors.toMap(Star::getId, starMapper::mapToDto));
         stars.forEach(star -> {
             star.setConstellation(constellation);
             constellation.getStars().add(star);
@@ -87,28 +116,62 @@ public class ConstellationsService {
         starsRepository.saveAll(stars);
         Constellation savedConstellation = constellationsRepository.save(constellation);
         ConstellationDto savedConstellationDto = constellationMapper.mapToDto(savedConstellation);
-        constellationCache.put(savedConstellation.getId(), savedConstellationDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> constellationCache.put(savedConstellation.getId(), savedConstellationDto));
+        publishConstellationChanged(previousConstellationDto, savedConstellationDto, detachedStarDtos);
         return savedConstellationDto;
     }
 
     /* READ */
 
     public ConstellationDto getConstellationById(int id) {
-        ConstellationDto cashedConstellationDto = constellationCache.get(id);
-        if (cashedConstellationDto != null) {
-            log.info("Constellation with id {} was retrieved from cache", id);
-            return cashedConstellationDto;
+        if (missingConstellationsCache.isMissing(id)) {
+            throw new ResourceNotFoundException("Constellation with id " + id + " was not found (getConstellationById)", false);
+        }
+        long lookupEpoch = missingConstellationsCache.currentEpoch();
+        ConstellationDto constellationDto;
+        try {
+            constellationDto = constellationCache.getOrLoad(id,
+                    key -> databaseCircuitBreaker.execute(() -> loadConstellation(key)));
+        } catch (RuntimeException exception) {
+            constellationDto = getStaleConstellationOrRethrow(id, exception);
+        }
+        if (constellationDto == null) {
+            missingConstellationsCache.markMissing(id, lookupEpoch);
+            throw new ResourceNotFoundException("Constellation with id " + id + " was not found (getConstellationById)", false);
         }
-        Constellation constellation = constellationsRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Constellation with id " + id + " was not found (getConstellationById)"));
-        ConstellationDto constellationDto = constellationMapper.mapToDto(constellation);
-        constellationCache.put(id, constellationDto);
-        log.info("Constellation with id {} was retrieved from repository and cached", id);
         return constellationDto;
     }
 
+    private ConstellationDto loadConstellation(int id) {
+        Constellation constellation = constellationsRepository.findById(id).orElse(null);
+        if (constellation == null) {
+            return null;
+        }
+        log.info("Constellation with id {} was retrieved from repository and cached", id);
+        return constellationMapper.mapToDto(constellation);
+    }
+
+    private ConstellationDto getStaleConstellationOrRethrow(int id, RuntimeException exception) {
+        ConstellationDto staleConstellationDto = DatabaseCircuitBreaker.isDatabaseUnavailable(exception)
+                ? constellationCache.getStale(id) : null;
+        if (staleConstellationDto == null) {
+            throw exception;
+        }
+        log.warn("Serving stale constellation with id {}, database is unavailable: {}", id, exception.getMessage());
+        StaleResponses.markStale();
+        return staleConstellationDto;
+    }
+
     public List<ConstellationDto> getConstellationsByCriteria(String name, String abbreviation,
                                                            String family, String region, Pageable pageable) {
+        ConstellationQuery query = ConstellationQuery.of(name, abbreviation, family, region, pageable);
+        List<Integer> cachedIds = constellationQueryCache.get(query);
+        if (cachedIds != null) {
+            log.info("Result of constellation search {} was retrieved from cache", query);
+            return getConstellationsByIds(cachedIds);
+        }
+        long queryEpoch = constellationQueryCache.currentEpoch();
+
         Specification<Constellation> specification = Specification.where(null);
 
         if (name != null) {
@@ -124,19 +187,7 @@ public class ConstellationsService {
             specification = specification.and(ConstellationSpecification.withRegion(region));
         }
 
-        List<ConstellationDto> constellationDtos;
-        if (pageable != null) {
-            constellationDtos = constellationsRepository.findAll(specification, pageable)
-                    .getContent()
-                    .stream()
-                    .map(constellationMapper::mapToDto)
-                    .collect(Collectors.toList());
-        } else {
-            constellationDtos = constellationsRepository.findAll(specification)
-                    .stream()
-                    .map(constellationMapper::mapToDto)
-                    .collect(Collectors.toList());
-        }
+        List<ConstellationDto> constellationDtos = findConstellations(specification, pageable);
 
         for (ConstellationDto constellationDto : constellationDtos) {
             if (constellationCache.get(constellationDto.getId()) == null) {
@@ -146,23 +197,70 @@ public class ConstellationsService {
                 log.info("Constellation with id {} was already in the cache (getConstellationsByCriteria)", constellationDto.getId());
             }
         }
+        constellationQueryCache.putIfCurrent(query,
+                constellationDtos.stream().map(ConstellationDto::getId).toList(), queryEpoch);
         return constellationDtos;
     }
 
+    private List<ConstellationDto> findConstellations(Specification<Constellation> specification, Pageable pageable) {
+        return databaseCircuitBreaker.execute(() -> {
+            if (pageable != null) {
+                return constellationsRepository.findAll(specification, pageable)
+                        .getContent()
+                        .stream()
+                        .map(constellationMapper::mapToDto)
+                        .collect(Collectors.toList());
+            }
+            return constellationsRepository.findAll(specification)
+                    .stream()
+                    .map(constellationMapper::mapToDto)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private List<ConstellationDto> getConstellationsByIds(List<Integer> ids) {
+        List<ConstellationDto> constellationDtos = new ArrayList<>(ids.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            ConstellationDto constellationDto = constellationCache.get(id);
+            if (constellationDto == null) {
+                missingIds.add(id);
+            }
+            constellationDtos.add(constellationDto);
+        }
+        if (missingIds.isEmpty()) {
+            return constellationDtos;
+        }
+        Map<Integer, ConstellationDto> loadedConstellationDtos = databaseCircuitBreaker.execute(() ->
+                constellationsRepository.findAllById(missingIds).stream()
+                        .map(constellationMapper::mapToDto)
+                        .collect(Collectors.toMap(ConstellationDto::getId, Function.identity())));
+        loadedConstellationDtos.forEach(constellationCache::put);
+        List<ConstellationDto> resolvedConstellationDtos = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            ConstellationDto constellationDto = constellationDtos.get(i) != null
+                    ? constellationDtos.get(i) : loadedConstellationDtos.get(ids.get(i));
+            if (constellationDto != null) {
+                resolvedConstellationDtos.add(constellationDto);
+            }
+        }
+        return resolvedConstellationDtos;
+    }
+
     public List<ConstellationDto> getConstellationsByStarType(String starType) {
-        List<Constellation> constellations = constellationsRepository.findByStarType(starType);
-        if (constellations.isEmpty()) {
+        List<ConstellationDto> constellationDtos = databaseCircuitBreaker.execute(() ->
+                constellationsRepository.findByStarType(starType).stream()
+                        .map(constellationMapper::mapToDto)
+                        .collect(Collectors.toList()));
+        if (constellationDtos.isEmpty()) {
             throw new ResourceNotFoundException("No constellation with star type " + starType + " was found");
         }
-        List<ConstellationDto> constellationDtos = new ArrayList<>();
-        for (Constellation constellation : constellations) {
-            ConstellationDto constellationDto = constellationMapper.mapToDto(constellation);
-            constellationDtos.add(constellationDto);
-            if (constellationCache.get(constellation.getId()) == null) {
-                constellationCache.put(constellation.getId(), constellationDto);
-                log.info("Constellation with id {} was added to cache (getConstellationsByStarType)", constellation.getId());
+        for (ConstellationDto constellationDto : constellationDtos) {
+            if (constellationCache.get(constellationDto.getId()) == null) {
+                constellationCache.put(constellationDto.getId(), constellationDto);
+                log.info("Constellation with id {} was added to cache (getConstellationsByStarType)", constellationDto.getId());
             } else {
-                log.info("Constellation with id {} was already in the cache (getConstellationsByStarType)", constellation.getId());
+                log.info("Constellation with id {} was already in the cache (getConstellationsByStarType)", constellationDto.getId());
             }
         }
         return constellationDtos;
@@ -172,15 +270,16 @@ public class ConstellationsService {
 
     @Transactional
     public ConstellationDto putConstellation(int id, ConstellationDto constellationDto) {
-        if (constellationsRepository.findById(id).isEmpty()) {
-            throw new ResourceNotFoundException("Constellation with id " + id + " was not found for updating(put)");
-        }
+        Constellation existingConstellation = constellationsRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Constellation with id " + id + " was not found for updating(put)"));
+        ConstellationDto previousConstellationDto = constellationMapper.mapToDto(existingConstellation);
         log.info("Updating(put) constellation with id {}", id);
         Constellation constellationToPut = constellationMapper.mapToEntity(constellationDto);
         constellationToPut.setId(id);
         Constellation updatedConstellation = constellationsRepository.save(constellationToPut);
         ConstellationDto updatedConstellationDto = constellationMapper.mapToDto(updatedConstellation);
-        constellationCache.put(id, updatedConstellationDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> constellationCache.put(id, updatedConstellationDto));
+        publishConstellationChanged(previousConstellationDto, updatedConstellationDto);
         log.info("Constellation with id {} was updated(put) and cache was refreshed", id);
         return updatedConstellationDto;
     }
@@ -189,6 +288,7 @@ public class ConstellationsService {
     public ConstellationDto patchConstellation(int id, ConstellationDto constellationDto) {
         Constellation constellation = constellationsRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No constellation with id " + id + " was found for updating(patch)"));
+        ConstellationDto previousConstellationDto = constellationMapper.mapToDto(constellation);
         log.info("Updating(patch) constellation with id {}", id);
         if (constellationDto.getName() != null) {
             constellation.setName(constellationDto.getName());
@@ -218,7 +318,8 @@ public class ConstellationsService {
         }
         Constellation patchedConstellation = constellationsRepository.save(constellation);
         ConstellationDto patchedConstellationDto = constellationMapper.mapToDto(patchedConstellation);
-        constellationCache.put(id, patchedConstellationDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> constellationCache.put(id, patchedConstellationDto));
+        publishConstellationChanged(previousConstellationDto, patchedConstellationDto);
         log.info("Constellation with id {} was updated(patch) and cache was refreshed", id);
         return patchedConstellationDto;
     }
@@ -229,8 +330,50 @@ public class ConstellationsService {
     public void deleteConstellation(int id) {
         Constellation constellation = constellationsRepository.findById(id)
                         .orElseThrow(() -> new ResourceNotFoundException("No constellation with id " + id + " was found for deleting"));
+        ConstellationDto deletedConstellationDto = constellationMapper.mapToDto(constellation);
         constellationsRepository.delete(constellation);
-        constellationCache.remove(id);
+        TransactionalCacheBuffer.runAfterCommit(() -> constellationCache.remove(id));
+        publishConstellationChanged(deletedConstellationDto, null);
         log.info("Constellation with id {} was deleted and removed from cache", id);
     }
+
+    /*
+     * Stars are saved through the constellation (attach, cascade on put/patch, orphan removal on delete),
+     * so star change events are derived from the star lists before and after the write, for the stars added,
+     * removed or actually modified.
+     */
+    private void publishConstellationChanged(ConstellationDto before, ConstellationDto after) {
+        publishConstellationChanged(before, after, Map.of());
+    }
+
+    /**
+     * As above, {@code previousStars} holding the state before the write of existing stars that joined the
+     * constellation, so their events carry it instead of reading as created stars.
+     */
+    private void publishConstellationChanged(ConstellationDto before, ConstellationDto after,
+                                             Map<Integer, StarDto> previousStars) {
+        eventPublisher.publishEvent(new ConstellationChangedEvent(before, after));
+        Map<Integer, StarDto> starsBefore = starsById(before);
+        Map<Integer, StarDto> starsAfter = starsById(after);
+        starsBefore.forEach((starId, starBefore) -> {
+            StarDto starAfter = starsAfter.get(starId);
+            if (!Objects.equals(starBefore, starAfter)) {
+                eventPublisher.publishEvent(new StarChangedEvent(starBefore, starAfter));
+            }
+        });
+        starsAfter.forEach((starId, starAfter) -> {
+            StarDto previousStar = previousStars.get(starId);
+            if (!starsBefore.containsKey(starId) && !Objects.equals(previousStar, starAfter)) {
+                eventPublisher.publishEvent(new StarChangedEvent(previousStar, starAfter));
+            }
+        });
+    }
+
+    private static Map<Integer, StarDto> starsById(ConstellationDto constellationDto) {
+        if (constellationDto == null || constellationDto.getStars() == null) {
+            return Map.of();
+        }
+        return constellationDto.getStars().stream()
+                .collect(Collectors.toMap(StarDto::getId, Function.identity(), (first, second) -> second));
+    }
 }
@@ -1,17 +1,35 @@
 package com.example.rememberconstellations.services;
 
+import com.example.rememberconstellations.cache.MissingStarsCache;
 import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.cache.StarQuery;
+import com.example.rememberconstellations.cache.StarQueryCache;
+import com.example.rememberconstellations.cache.TransactionalCacheBuffer;
 import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import com.example.rememberconstellations.exceptions.InvalidInputException;
 import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
 import com.example.rememberconstellations.exceptions.StarAlreadyExistsException;
+import com.example.rememberconstellations.indexes.SkyCone;
+import com.example.rememberconstellations.indexes.StarColumnIndex;
+import com.example.rememberconstellations.indexes.StarFeatures;
 import com.example.rememberconstellations.mappers.StarMapper;
 import com.example.rememberconstellations.models.Star;
+import com.example.rememberconstellations.repositories.StarFeatureSums;
 import com.example.rememberconstellations.repositories.StarsRepository;
+import com.example.rememberconstellations.resilience.DatabaseCircuitBreaker;
+import com.example.rememberconstellations.resilience.StaleResponses;
 import com.example.rememberconstellations.utilities.specifications.StarSpecification;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -20,18 +38,34 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 @Service
 public class StarsService {
+    private static final int MAX_NEAREST_STARS = 1000;
+
     private final StarsRepository starsRepository;
     private final StarMapper starMapper;
     private final StarCache starCache;
+    private final StarQueryCache starQueryCache;
+    private final MissingStarsCache missingStarsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DatabaseCircuitBreaker databaseCircuitBreaker;
+    private final StarColumnIndex starColumnIndex;
 
     @Value("${file.default-star-image}")
     private String defaultStarImage;
 
     @Autowired
-    public StarsService(StarsRepository starsRepository, StarMapper starMapper, StarCache starCache) {
+    @SuppressWarnings("java:S107")
+    public StarsService(StarsRepository starsRepository, StarMapper starMapper, StarCache starCache,
+                        StarQueryCache starQueryCache, MissingStarsCache missingStarsCache,
+                        ApplicationEventPublisher eventPublisher, DatabaseCircuitBreaker databaseCircuitBreaker,
+                        StarColumnIndex starColumnIndex) {
         this.starsRepository = starsRepository;
         this.starMapper = starMapper;
         this.starCache = starCache;
+        this.starQueryCache = starQueryCache;
+        this.missingStarsCache = missingStarsCache;
+        this.eventPublisher = eventPublisher;
+        this.databaseCircuitBreaker = databaseCircuitBreaker;
+        this.starColumnIndex = starColumnIndex;
     }
 
     /* CREATE */
@@ -48,7 +82,8 @@ public class StarsService {
         }
         Star savedStar = starsRepository.save(star);
         StarDto savedStarDto = starMapper.mapToDto(savedStar);
-        starCache.put(savedStar.getId(), savedStarDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> starCache.put(savedStar.getId(), savedStarDto));
+        eventPublisher.publishEvent(new StarChangedEvent(null, savedStarDto));
         log.info("Star with id {} was saved and cached", savedStarDto.getId());
         return savedStarDto;
     }
@@ -76,7 +111,8 @@ public class StarsService {
         List<StarDto> savedStarDtos = savedStars.stream()
                 .map(star -> {
                     StarDto savedStarDto = starMapper.mapToDto(star);
-                    starCache.put(savedStarDto.getId(), savedStarDto);
+                    TransactionalCacheBuffer.runAfterCommit(() -> starCache.put(savedStarDto.getId(), savedStarDto));
+                    eventPublisher.publishEvent(new StarChangedEvent(null, savedStarDto));
                     return savedStarDto;
                 })
                 .toList();
@@ -87,24 +123,72 @@ public class StarsService {
     /* READ */
 
     public StarDto getStarById(final int id) {
-        StarDto cashedStarDto = starCache.get(id);
-        if (cashedStarDto != null) {
-            log.info("Star with id {} was retrieved from cache", id);
-            return cashedStarDto;
+        return getStarById(id, starId -> starCache.getOrLoad(starId, this::loadStar));
+    }
+
+    /**
+     * Serves a lookup routed here by another instance because this one owns the star's cache partition.
+     */
+    public StarDto getOwnedStarById(final int id) {
+        return getStarById(id, starId -> starCache.getOrLoadLocally(starId, this::loadStar));
+    }
+
+    private StarDto getStarById(int id, Function<Integer, StarDto> cacheLookup) {
+        if (missingStarsCache.isMissing(id)) {
+            throw new ResourceNotFoundException("Star with id " + id + " was not found", false);
+        }
+        long lookupEpoch = missingStarsCache.currentEpoch();
+        StarDto starDto;
+        try {
+            starDto = cacheLookup.apply(id);
+        } catch (RuntimeException exception) {
+            starDto = getStaleStarOrRethrow(id, exception);
+        }
+        if (starDto == null) {
+            missingStarsCache.markMissing(id, lookupEpoch);
+            throw new ResourceNotFoundException("Star with id " + id + " was not found", false);
         }
-        Star star = starsRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Star with id " + id + " was not found"));
-        StarDto starDto = starMapper.mapToDto(star);
-        starCache.put(id, starDto);
-        log.info("Star with id {} was retrieved from repository and cashed", id);
         return starDto;
     }
 
+    private StarDto loadStar(int id) {
+        Star star = databaseCircuitBreaker.execute(() -> starsRepository.findById(id)).orElse(null);
+        if (star == null) {
+            return null;
+        }
+        log.info("Star with id {} was retrieved from repository and cached", id);
+        return starMapper.mapToDto(star);
+    }
+
+    private StarDto getStaleStarOrRethrow(int id, RuntimeException exception) {
+        StarDto staleStarDto = DatabaseCircuitBreaker.isDatabaseUnavailable(exception) ? starCache.getStale(id) : null;
+        if (staleStarDto == null) {
+            throw exception;
+        }
+        log.warn("Serving stale star with id {}, database is unavailable: {}", id, exception.getMessage());
+        StaleResponses.markStale();
+        return staleStarDto;
+    }
+
     @SuppressWarnings("java:S107")
     public List<StarDto> getStarsByCriteria(String name, String type, Double mass, Double radius,
                                          Double temperature, Double luminosity, Double rightAscension,
                                          Double declination, String positionInConstellation,
                                          Integer constellationId, Pageable pageable) {
+        StarQuery query = StarQuery.of(name, type, mass, radius, temperature, luminosity, rightAscension,
+                declination, positionInConstellation, constellationId, pageable);
+        Optional<List<StarDto>> indexedStarDtos = starColumnIndex.search(query);
+        if (indexedStarDtos.isPresent()) {
+            log.info("Star search {} was answered from the column index", query);
+            return indexedStarDtos.get();
+        }
+        List<Integer> cachedIds = starQueryCache.get(query);
+        if (cachedIds != null) {
+            log.info("Result of star search {} was retrieved from cache", query);
+            return getStarsByIds(cachedIds);
+        }
+        long queryEpoch = starQueryCache.currentEpoch();
+
         Specification<Star> specification = Specification.where(null);
 
         if (name != null) {
@@ -138,19 +222,7 @@ public class StarsService {
             specification = specification.and(StarSpecification.withConstellationId(constellationId));
         }
 
-        List<StarDto> starDtos;
-        if (pageable != null) {
-            starDtos = starsRepository.findAll(specification, pageable)
-                    .getContent()
-                    .stream()
-                    .map(starMapper::mapToDto)
-                    .toList();
-        } else {
-            starDtos = starsRepository.findAll(specification)
-                    .stream()
-                    .map(starMapper::mapToDto)
-                    .toList();
-        }
+        List<StarDto> starDtos = findStars(specification, pageable);
 
         for (StarDto starDto : starDtos) {
             if (starCache.get(starDto.getId()) == null) {
@@ -160,22 +232,215 @@ public class StarsService {
                 log.info("Star with id {} was already in the cache (getStarsByCriteria)", starDto.getId());
             }
         }
+        starQueryCache.putIfCurrent(query, starDtos.stream().map(StarDto::getId).toList(), queryEpoch);
         return starDtos;
     }
 
+    /**
+     * Stars within {@code radius} degrees of the sky position, nearest first. Coordinates are in degrees.
+     */
+    public List<StarDto> getStarsNear(double rightAscension, double declination, double radius) {
+        if (!(rightAscension >= 0 && rightAscension < 360)) {
+            throw new InvalidInputException("Right ascension must be in [0, 360) degrees");
+        }
+        if (!(declination >= -90 && declination <= 90)) {
+            throw new InvalidInputException("Declination must be in [-90, 90] degrees");
+        }
+        if (!(radius > 0 && radius <= 180)) {
+            throw new InvalidInputException("Radius must be in (0, 180] degrees");
+        }
+        SkyCone cone = SkyCone.of(rightAscension, declination, radius);
+        Optional<List<StarDto>> indexedStarDtos = starColumnIndex.findWithin(cone);
+        if (indexedStarDtos.isPresent()) {
+            return indexedStarDtos.get();
+        }
+        log.info("Star column index is not ready, searching stars near ({}, {}) in repository", rightAscension, declination);
+        return findStars(withinBoundingBox(cone), null).stream()
+                .filter(cone::contains)
+                .sorted(cone.byDistance())
+                .toList();
+    }
+
+    /**
+     * The {@code k} stars nearest to the star on the sky, nearest first, optionally only those with a luminosity
+     * of at least {@code minLuminosity}.
+     */
+    public List<StarDto> getNearestStars(int id, int k, Double minLuminosity) {
+        if (k < 1 || k > MAX_NEAREST_STARS) {
+            throw new InvalidInputException("Number of stars must be in [1, " + MAX_NEAREST_STARS + "]");
+        }
+        StarDto origin = getStarById(id);
+        if (origin.getRightAscension() == null || origin.getDeclination() == null) {
+            throw new InvalidInputException("Star with id " + id + " has no position on the sky");
+        }
+        double luminosityBound = minLuminosity != null ? minLuminosity : Double.NEGATIVE_INFINITY;
+        Optional<List<StarDto>> indexedStarDtos = starColumnIndex.findNearest(origin, k, luminosityBound);
+        if (indexedStarDtos.isPresent()) {
+            return indexedStarDtos.get();
+        }
+        log.info("Star column index is not ready, searching stars nearest to star with id {} in repository", id);
+        // widening cones until one holds k stars, which are then the nearest ones
+        for (double radius = 1; ; radius = Math.min(180, radius * 4)) {
+            SkyCone cone = SkyCone.of(origin.getRightAscension(), origin.getDeclination(), radius);
+            Specification<Star> specification = withinBoundingBox(cone);
+            if (minLuminosity != null) {
+                specification = specification.and(StarSpecification.withLuminosityGreaterThanOrEqual(minLuminosity));
+            }
+            List<StarDto> starDtos = findStars(specification, null).stream()
+                    .filter(starDto -> starDto.getId() != id && cone.contains(starDto))
+                    .sorted(cone.byDistance())
+                    .toList();
+            if (starDtos.size() >= k || radius >= 180) {
+                return starDtos.subList(0, Math.min(k, starDtos.size()));
+            }
+        }
+    }
+
+    /**
+     * Up to {@code k} stars most similar to the star in mass, radius, temperature and luminosity, most similar first,
+     * optionally only those within {@code maxDistance} in {@link StarFeatures} space.
+     */
+    public List<StarDto> getSimilarStars(int id, int k, Double maxDistance) {
+        if (k < 1 || k > MAX_NEAREST_STARS) {
+            throw new InvalidInputException("Number of stars must be in [1, " + MAX_NEAREST_STARS + "]");
+        }
+        if (maxDistance != null && !(maxDistance >= 0)) {
+            throw new InvalidInputException("Distance must not be negative");
+        }
+        StarDto origin = getStarById(id);
+        if (!StarFeatures.isComparable(origin)) {
+            throw new InvalidInputException(
+                    "Star with id " + id + " needs a positive mass, radius, temperature and luminosity");
+        }
+        double distanceBound = maxDistance != null ? maxDistance : Double.POSITIVE_INFINITY;
+        Optional<List<StarDto>> indexedStarDtos = starColumnIndex.findSimilar(origin, k, distanceBound);
+        if (indexedStarDtos.isPresent()) {
+            return indexedStarDtos.get();
+        }
+        log.info("Star column index is not ready, searching stars similar to star with id {} in repository", id);
+        StarFeatureSums sums = databaseCircuitBreaker.execute(starsRepository::sumFeatures);
+        StarFeatures features = featuresOf(sums);
+        // widening boxes around the star until the k-th most similar one found lies within the box's distance,
+        // so no star outside it can be more similar
+        for (double radius = 1; ; radius *= 4) {
+            double boxRadius = Math.min(radius, distanceBound);
+            double[][] ranges = features.propertyRanges(origin, boxRadius);
+            List<StarDto> candidates = findStars(withinPropertyRanges(ranges), null).stream()
+                    .filter(StarFeatures::isComparable)
+                    .toList();
+            List<StarDto> starDtos = candidates.stream()
+                    .filter(starDto -> starDto.getId() != id && features.distance(origin, starDto) <= distanceBound)
+                    .sorted(features.byDistanceTo(origin))
+                    .limit(k)
+                    .toList();
+            boolean allCandidates = boxRadius >= distanceBound || candidates.size() >= sums.getStarCount()
+                    || isUnbounded(ranges);
+            if (allCandidates
+                    || starDtos.size() >= k && features.distance(origin, starDtos.get(k - 1)) <= boxRadius) {
+                return starDtos;
+            }
+        }
+    }
+
+    private static StarFeatures featuresOf(StarFeatureSums sums) {
+        return StarFeatures.of(sums.getStarCount(),
+                new double[] {sums.getMassLogSum(), sums.getRadiusLogSum(), sums.getTemperatureLogSum(),
+                        sums.getLuminosityLogSum()},
+                new double[] {sums.getMassLogSquareSum(), sums.getRadiusLogSquareSum(),
+                        sums.getTemperatureLogSquareSum(), sums.getLuminosityLogSquareSum()});
+    }
+
+    /**
+     * The ranges of mass, radius, temperature and luminosity from {@link StarFeatures#propertyRanges}.
+     */
+    private static Specification<Star> withinPropertyRanges(double[][] ranges) {
+        return Specification.where(StarSpecification.withMassBetween(ranges[0][0], ranges[0][1]))
+                .and(StarSpecification.withRadiusBetween(ranges[1][0], ranges[1][1]))
+                .and(StarSpecification.withTemperatureBetween(ranges[2][0], ranges[2][1]))
+                .and(StarSpecification.withLuminosityBetween(ranges[3][0], ranges[3][1]));
+    }
+
+    private static boolean isUnbounded(double[][] ranges) {
+        for (double[] range : ranges) {
+            if (range[0] > 0 || range[1] < Double.POSITIVE_INFINITY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The bounding box of the cone in equatorial coordinates; the exact distance is checked on the results.
+     */
+    private static Specification<Star> withinBoundingBox(SkyCone cone) {
+        Specification<Star> specification = Specification.where(
+                StarSpecification.withDeclinationBetween(cone.getMinDeclination(), cone.getMaxDeclination()));
+        double halfWidth = cone.getRightAscensionHalfWidth();
+        if (halfWidth < 180) {
+            specification = specification.and(StarSpecification.withRightAscensionBetween(
+                    cone.getRightAscension() - halfWidth, cone.getRightAscension() + halfWidth));
+        }
+        return specification;
+    }
+
+    private List<StarDto> findStars(Specification<Star> specification, Pageable pageable) {
+        return databaseCircuitBreaker.execute(() -> {
+            if (pageable != null) {
+                return starsRepository.findAll(specification, pageable)
+                        .getContent()
+                        .stream()
+                        .map(starMapper::mapToDto)
+                        .toList();
+            }
+            return starsRepository.findAll(specification)
+                    .stream()
+                    .map(starMapper::mapToDto)
+                    .toList();
+        });
+    }
+
+    private List<StarDto> getStarsByIds(List<Integer> ids) {
+        List<StarDto> starDtos = new ArrayList<>(ids.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            StarDto starDto = starCache.get(id);
+            if (starDto == null) {
+                missingIds.add(id);
+            }
+            starDtos.add(starDto);
+        }
+        if (missingIds.isEmpty()) {
+            return starDtos;
+        }
+        Map<Integer, StarDto> loadedStarDtos = databaseCircuitBreaker.execute(() ->
+                starsRepository.findAllById(missingIds).stream()
+                        .map(starMapper::mapToDto)
+                        .collect(Collectors.toMap(StarDto::getId, Function.identity())));
+        loadedStarDtos.forEach(starCache::put);
+        List<StarDto> resolvedStarDtos = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            StarDto starDto = starDtos.get(i) != null ? starDtos.get(i) : loadedStarDtos.get(ids.get(i));
+            if (starDto != null) {
+                resolvedStarDtos.add(starDto);
+            }
+        }
+        return resolvedStarDtos;
+    }
+
     /* UPDATE */
 
     @Transactional
     public StarDto putStar(int id, StarDto starDto) {
-        if (starsRepository.findById(id).isEmpty()) {
-            throw new ResourceNotFoundException("Star with id " + id + " was not found for updating(put)");
-        }
+        Star existingStar = starsRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Star with id " + id + " was not found for updating(put)"));
+        StarDto previousStarDto = starMapper.mapToDto(existingStar);
         log.info("Updating(put) star with id {}", id);
         Star starToPut = starMapper.mapToEntity(starDto);
         starToPut.setId(id);
         Star updatedStar = starsRepository.save(starToPut);
         StarDto updatedStarDto = starMapper.mapToDto(updatedStar);
-        starCache.put(id, updatedStarDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> starCache.put(id, updatedStarDto));
+        eventPublisher.publishEvent(new StarChangedEvent(previousStarDto, updatedStarDto));
         log.info("Star with id {} was updated(put) and cache was refreshed", id);
         return updatedStarDto;
     }
@@ -184,6 +449,7 @@ public class StarsService {
     public StarDto patchStar(int id, StarDto starDto) {
         Star starToPatch = starsRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No star with id " + id + " was found for updating(patch)"));
+        StarDto previousStarDto = starMapper.mapToDto(starToPatch);
         log.info("Updating(patch) star with id {}", id);
         if (starDto.getName() != null) {
             starToPatch.setName(starDto.getName());
@@ -217,7 +483,8 @@ public class StarsService {
         }
         Star patchedStar = starsRepository.save(starToPatch);
         StarDto patchedStarDto = starMapper.mapToDto(patchedStar);
-        starCache.put(id, patchedStarDto);
+        TransactionalCacheBuffer.runAfterCommit(() -> starCache.put(id, patchedStarDto));
+        eventPublisher.publishEvent(new StarChangedEvent(previousStarDto, patchedStarDto));
         log.info("Star with id {} was updated(patch) and cache was refreshed", id);
         return patchedStarDto;
     }
@@ -228,8 +495,10 @@ public class StarsService {
     public void deleteStar(int id) {
         Star star = starsRepository.findById(id)
                         .orElseThrow(() -> new ResourceNotFoundException("No star with id " + id + " was found for delete"));
+        StarDto deletedStarDto = starMapper.mapToDto(star);
         starsRepository.delete(star);
-        starCache.remove(id);
+        TransactionalCacheBuffer.runAfterCommit(() -> starCache.remove(id));
+        eventPublisher.publishEvent(new StarChangedEvent(deletedStarDto, null));
         log.info("Star with id {} was deleted and removed from cache", id);
     }
 }
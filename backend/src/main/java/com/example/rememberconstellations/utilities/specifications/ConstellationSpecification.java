@@ -13,24 +13,28 @@ public class ConstellationSpecification {
     public static Specification<Constellation> withName(String name) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(name)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("name")), "%" + name.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
+                        LikePatterns.containing(name), LikePatterns.ESCAPE) : null;
     }
 
     public static Specification<Constellation> withAbbreviation(String abbreviation) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(abbreviation)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("abbreviation")), "%" + abbreviation.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("abbreviation")),
+                        LikePatterns.containing(abbreviation), LikePatterns.ESCAPE) : null;
     }
 
     public static Specification<Constellation> withFamily(String family) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(family)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("family")), "%" + family.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("family")),
+                        LikePatterns.containing(family), LikePatterns.ESCAPE) : null;
     }
 
     public static Specification<Constellation> withRegion(String region) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(region)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("region")), "%" + region.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("region")),
+                        LikePatterns.containing(region), LikePatterns.ESCAPE) : null;
     }
 }
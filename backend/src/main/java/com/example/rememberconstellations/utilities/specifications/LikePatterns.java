@@ -0,0 +1,29 @@
+package com.example.rememberconstellations.utilities.specifications;
+
+/**
+ * Substring filters as {@code LIKE} patterns. Wildcards typed by users are escaped, so the database matches the text
+ * literally, as the cached query invalidation and the star column index do.
+ */
+final class LikePatterns {
+    static final char ESCAPE = '\\';
+
+    private LikePatterns() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Pattern matching lower-cased values that contain the lower-cased text.
+     */
+    static String containing(String text) {
+        String lowerCaseText = text.toLowerCase();
+        StringBuilder pattern = new StringBuilder(lowerCaseText.length() + 2).append('%');
+        for (int i = 0; i < lowerCaseText.length(); i++) {
+            char character = lowerCaseText.charAt(i);
+            if (character == '%' || character == '_' || character == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(character);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -13,13 +13,15 @@ public class StarSpecification {
     public static Specification<Star> withName(String name) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(name)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("name")), "%" + name.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
+                        LikePatterns.containing(name), LikePatterns.ESCAPE) : null;
     }
 
     public static Specification<Star> withType(String type) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(type)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("type")), "%" + type.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("type")),
+                        LikePatterns.containing(type), LikePatterns.ESCAPE) : null;
     }
 
     public static Specification<Star> withMassGreaterThanOrEqual(Double mass) {
@@ -58,11 +60,51 @@ public class StarSpecification {
                 ? criteriaBuilder.greaterThanOrEqualTo(root.get("declination"), declination) : null;
     }
 
+    public static Specification<Star> withMassBetween(double minMass, double maxMass) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.between(root.get("mass"), minMass, maxMass);
+    }
+
+    public static Specification<Star> withRadiusBetween(double minRadius, double maxRadius) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.between(root.get("radius"), minRadius, maxRadius);
+    }
+
+    public static Specification<Star> withTemperatureBetween(double minTemperature, double maxTemperature) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.between(root.get("temperature"), minTemperature, maxTemperature);
+    }
+
+    public static Specification<Star> withLuminosityBetween(double minLuminosity, double maxLuminosity) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.between(root.get("luminosity"), minLuminosity, maxLuminosity);
+    }
+
+    public static Specification<Star> withDeclinationBetween(double minDeclination, double maxDeclination) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.between(root.get("declination"), minDeclination, maxDeclination);
+    }
+
+    /**
+     * Right ascension in [from, to] degrees, the range wrapping around 0/360 if it extends past either end.
+     */
+    public static Specification<Star> withRightAscensionBetween(double from, double to) {
+        return (root, query, criteriaBuilder) -> {
+            if (from < 0) {
+                return criteriaBuilder.or(criteriaBuilder.greaterThanOrEqualTo(root.get("rightAscension"), from + 360),
+                        criteriaBuilder.lessThanOrEqualTo(root.get("rightAscension"), to));
+            }
+            if (to >= 360) {
+                return criteriaBuilder.or(criteriaBuilder.greaterThanOrEqualTo(root.get("rightAscension"), from),
+                        criteriaBuilder.lessThanOrEqualTo(root.get("rightAscension"), to - 360));
+            }
+            return criteriaBuilder.between(root.get("rightAscension"), from, to);
+        };
+    }
+
     public static Specification<Star> withPositionInConstellation(String positionInConstellation) {
         return (root, query, criteriaBuilder) ->
                 StringUtils.hasText(positionInConstellation)
-                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("positionInConstellation")), "%"
-                        + positionInConstellation.toLowerCase() + "%") : null;
+                ? criteriaBuilder.like(criteriaBuilder.lower(root.get("positionInConstellation")),
+                        LikePatterns.containing(positionInConstellation), LikePatterns.ESCAPE) : null;
     }
 
     public static Specification<Star> withConstellationId(Integer constellationId) {
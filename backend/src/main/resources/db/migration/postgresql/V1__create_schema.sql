@@ -0,0 +1,27 @@
+-- Tables as Hibernate maps the entities. Databases whose tables Hibernate created already are baselined at this
+-- version, so this only runs on an empty schema.
+CREATE TABLE IF NOT EXISTS constellations (
+    id           integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         varchar(255) NOT NULL,
+    abbreviation varchar(255) NOT NULL,
+    family       varchar(255) NOT NULL,
+    region       varchar(255) NOT NULL,
+    image_url    varchar(255),
+    updated_at   timestamp(6) with time zone
+);
+
+CREATE TABLE IF NOT EXISTS stars (
+    id                        integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                      varchar(255) NOT NULL,
+    type                      varchar(255) NOT NULL,
+    mass                      float(53) NOT NULL,
+    radius                    float(53) NOT NULL,
+    temperature               float(53) NOT NULL,
+    luminosity                float(53) NOT NULL,
+    right_ascension           float(53) NOT NULL,
+    declination               float(53) NOT NULL,
+    position_in_constellation varchar(255),
+    image_url                 varchar(255),
+    updated_at                timestamp(6) with time zone,
+    constellation_id          integer REFERENCES constellations (id)
+);
@@ -0,0 +1,15 @@
+-- Substring searches filter on lower(column) LIKE '%text%', which a B-tree cannot serve because of the leading
+-- wildcard. Trigram GIN indexes on the same expressions can. Creating the extension needs a role allowed to.
+-- The indexes are built concurrently so existing tables stay writable, which is why this script runs outside a
+-- transaction (see the .conf file next to it). A build that fails leaves an invalid index behind, which has to be
+-- dropped before the migration is repaired and run again.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS stars_name_trgm_idx
+    ON stars USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS stars_type_trgm_idx
+    ON stars USING gin (lower(type) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS stars_position_in_constellation_trgm_idx
+    ON stars USING gin (lower(position_in_constellation) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS constellations_name_trgm_idx
+    ON constellations USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,147 @@
+package com.example.rememberconstellations;
+
+import com.example.rememberconstellations.cache.NearStarCache;
+import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.cache.StarPartitioner;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.services.StarsService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs three instances with a partitioned star cache in one JVM. They share an in-memory H2 database
+ * and exchange invalidations through the loopback transport.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PartitionedStarCacheTest {
+
+    private static final int NODE_COUNT = 3;
+    private static final int STAR_COUNT = 30;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final List<Integer> starIds = new ArrayList<>();
+
+    @BeforeAll
+    void startNodes() throws IOException {
+        List<String> members = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+                members.add("http://localhost:" + socket.getLocalPort());
+            }
+        }
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(new SpringApplicationBuilder(RememberConstellationsApplication.class).run(
+                    "--server.port=" + ports.get(i),
+                    "--spring.datasource.url=jdbc:h2:mem:partitioned-star-cache;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.show-sql=false",
+                    "--cache.snapshot.enabled=false",
+                    "--cache.invalidation.transport=loopback",
+                    "--cache.invalidation.flush-interval=20ms",
+                    "--cache.partitioning.enabled=true",
+                    "--cache.partitioning.timeout=5s",
+                    "--cache.partitioning.self=" + members.get(i),
+                    "--cache.partitioning.members=" + String.join(",", members)));
+        }
+        StarsService starsService = node(0).getBean(StarsService.class);
+        for (int i = 0; i < STAR_COUNT; i++) {
+            StarDto starDto = new StarDto(0, "Partitioned star " + i, "G", 1.0, 1.0, 5800.0, 1.0, 10.0 + i, 5.0,
+                    null, null, null);
+            starIds.add(starsService.createStar(starDto).getId());
+        }
+        nodes.forEach(node -> node.getBean(StarCache.class).clear());
+    }
+
+    @AfterAll
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    private ConfigurableApplicationContext node(int index) {
+        return nodes.get(index);
+    }
+
+    private int ownerOf(int starId) {
+        return IntStream.range(0, NODE_COUNT)
+                .filter(i -> node(i).getBean(StarPartitioner.class).isOwnedLocally(starId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    @Order(1)
+    void getStarById_EveryNode_CachesEachStarOnlyAtItsOwner() {
+        for (ConfigurableApplicationContext node : nodes) {
+            StarsService starsService = node.getBean(StarsService.class);
+            for (int i = 0; i < STAR_COUNT; i++) {
+                assertEquals("Partitioned star " + i, starsService.getStarById(starIds.get(i)).getName());
+            }
+        }
+
+        int cachedStars = 0;
+        for (int i = 0; i < NODE_COUNT; i++) {
+            StarCache starCache = node(i).getBean(StarCache.class);
+            cachedStars += starCache.size();
+            for (int starId : starIds) {
+                StarPartitioner partitioner = node(i).getBean(StarPartitioner.class);
+                assertEquals(partitioner.isOwnedLocally(starId), node(i).getBean(NearStarCache.class).get(starId) == null);
+            }
+        }
+        assertEquals(STAR_COUNT, cachedStars);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            int node = i;
+            assertTrue(starIds.stream().anyMatch(starId -> ownerOf(starId) == node), "every node owns a partition");
+        }
+    }
+
+    @Test
+    @Order(2)
+    void patchStar_OnNonOwner_InvalidatesOwnerAndNearCaches() throws InterruptedException {
+        int starId = starIds.stream().filter(id -> ownerOf(id) == 1).findFirst().orElseThrow();
+        StarDto patch = new StarDto();
+        patch.setName("Renamed star");
+
+        node(0).getBean(StarsService.class).patchStar(starId, patch);
+
+        for (int i = 0; i < NODE_COUNT; i++) {
+            StarsService starsService = node(i).getBean(StarsService.class);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (!"Renamed star".equals(starsService.getStarById(starId).getName()) && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("Renamed star", starsService.getStarById(starId).getName(), "node " + i);
+        }
+    }
+
+    @Test
+    @Order(3)
+    void getStarById_OwnerDown_FallsBackToDatabase() {
+        int starId = starIds.stream().filter(id -> ownerOf(id) == 2).findFirst().orElseThrow();
+        int index = starIds.indexOf(starId);
+        node(2).close();
+        node(0).getBean(StarCache.class).remove(starId);
+
+        assertEquals("Partitioned star " + index, node(0).getBean(StarsService.class).getStarById(starId).getName());
+    }
+}
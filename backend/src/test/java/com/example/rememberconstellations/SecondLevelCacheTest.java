@@ -0,0 +1,125 @@
+package com.example.rememberconstellations;
+
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
+import com.example.rememberconstellations.models.Constellation;
+import com.example.rememberconstellations.models.Star;
+import com.example.rememberconstellations.repositories.ConstellationsRepository;
+import com.example.rememberconstellations.repositories.StarsRepository;
+import com.example.rememberconstellations.utilities.specifications.ConstellationSpecification;
+import com.example.rememberconstellations.utilities.specifications.StarSpecification;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "cache.snapshot.enabled=false"
+})
+class SecondLevelCacheTest {
+
+    @Autowired
+    private StarsRepository starsRepository;
+
+    @Autowired
+    private ConstellationsRepository constellationsRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        starsRepository.deleteAll();
+        constellationsRepository.deleteAll();
+    }
+
+    private Constellation saveConstellationWithStar(String name, String starName) {
+        return transactionTemplate.execute(status -> {
+            Constellation constellation = new Constellation();
+            constellation.setName(name);
+            constellation.setAbbreviation(name.substring(0, 3).toUpperCase());
+            constellation.setFamily("Orion");
+            constellation.setRegion("Equatorial");
+            Star star = new Star(starName, "Red", 12.0, 800.0, 3500.0, 100000.0, 5.92, 7.41, "Shoulder");
+            star.setConstellation(constellation);
+            constellation.getStars().add(star);
+            return constellationsRepository.save(constellation);
+        });
+    }
+
+    @Test
+    void findById_SecondLookup_ServedFromSecondLevelCache() {
+        Constellation constellation = saveConstellationWithStar("Orion", "Betelgeuse");
+        int starId = constellation.getStars().get(0).getId();
+        statistics.clear();
+
+        starsRepository.findById(starId);
+        starsRepository.findById(starId);
+
+        assertTrue(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.STAR_REGION).getHitCount() >= 1);
+    }
+
+    @Test
+    void findConstellationById_SecondLookup_ServedFromSecondLevelCache() {
+        int constellationId = saveConstellationWithStar("Cygnus", "Deneb").getId();
+        statistics.clear();
+
+        constellationsRepository.findById(constellationId);
+        // like a request, whose open session lets the mapper walk the lazy star collection
+        String starName = transactionTemplate.execute(status ->
+                constellationsRepository.findById(constellationId).orElseThrow().getStars().get(0).getName());
+
+        assertEquals("Deneb", starName);
+        assertTrue(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.CONSTELLATION_REGION).getHitCount() >= 1);
+        assertTrue(statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.CONSTELLATION_STARS_REGION).getHitCount() >= 1);
+    }
+
+    @Test
+    void existsByName_RepeatedQuery_ServedFromQueryCache() {
+        saveConstellationWithStar("Lyra", "Vega");
+        statistics.clear();
+
+        assertTrue(starsRepository.existsByName("Vega"));
+        assertTrue(starsRepository.existsByName("Vega"));
+
+        assertEquals(1, statistics.getQueryRegionStatistics(SecondLevelCacheConfig.STAR_NAME_QUERY_REGION).getHitCount());
+    }
+
+    @Test
+    void findByStarType_AfterWrite_QueryCacheInvalidated() {
+        saveConstellationWithStar("Taurus", "Aldebaran");
+        assertEquals(1, constellationsRepository.findByStarType("Red").size());
+
+        saveConstellationWithStar("Scorpius", "Antares");
+
+        assertEquals(2, constellationsRepository.findByStarType("Red").size());
+    }
+
+    @Test
+    void findAll_FilterWithLikeWildcards_MatchedLiterally() {
+        saveConstellationWithStar("Canis Major", "Sirius");
+        saveConstellationWithStar("Canis_Minor", "Procyon%B");
+
+        assertEquals(0, starsRepository.findAll(StarSpecification.withName("_")).size());
+        assertEquals(1, starsRepository.findAll(StarSpecification.withName("n%b")).size());
+        assertEquals(1, constellationsRepository.findAll(ConstellationSpecification.withName("s_m")).size());
+        assertEquals(0, constellationsRepository.findAll(ConstellationSpecification.withName("%")).size());
+    }
+}
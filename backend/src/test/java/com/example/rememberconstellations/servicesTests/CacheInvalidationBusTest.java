@@ -0,0 +1,257 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CacheInvalidationBus;
+import com.example.rememberconstellations.cache.ConstellationCache;
+import com.example.rememberconstellations.cache.ConstellationQueryCache;
+import com.example.rememberconstellations.cache.InvalidationTransport;
+import com.example.rememberconstellations.cache.LoopbackInvalidationTransport;
+import com.example.rememberconstellations.cache.MissingConstellationsCache;
+import com.example.rememberconstellations.cache.MissingStarsCache;
+import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.cache.StarQueryCache;
+import com.example.rememberconstellations.config.SecondLevelCacheConfig;
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.ConstellationChangedEvent;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import com.example.rememberconstellations.indexes.StarColumnIndex;
+import com.example.rememberconstellations.models.Constellation;
+import com.example.rememberconstellations.models.Star;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CacheInvalidationBusTest {
+
+    @Mock
+    private StarCache starCache;
+
+    @Mock
+    private ConstellationCache constellationCache;
+
+    @Mock
+    private StarQueryCache starQueryCache;
+
+    @Mock
+    private ConstellationQueryCache constellationQueryCache;
+
+    @Mock
+    private MissingStarsCache missingStarsCache;
+
+    @Mock
+    private MissingConstellationsCache missingConstellationsCache;
+
+    @Mock
+    private StarColumnIndex starColumnIndex;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private jakarta.persistence.Cache persistenceCache;
+
+    @Mock
+    private Cache secondLevelCache;
+
+    @Mock
+    private StarCache peerStarCache;
+
+    @Mock
+    private ConstellationCache peerConstellationCache;
+
+    @Mock
+    private StarQueryCache peerStarQueryCache;
+
+    @Mock
+    private ConstellationQueryCache peerConstellationQueryCache;
+
+    @Mock
+    private MissingStarsCache peerMissingStarsCache;
+
+    @Mock
+    private MissingConstellationsCache peerMissingConstellationsCache;
+
+    @Mock
+    private StarColumnIndex peerStarColumnIndex;
+
+    private final List<String> sentMessages = new ArrayList<>();
+    private CacheInvalidationBus bus;
+    private CacheInvalidationBus peerBus;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(entityManagerFactory.getCache()).thenReturn(persistenceCache);
+        when(persistenceCache.unwrap(Cache.class)).thenReturn(secondLevelCache);
+        LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport() {
+            @Override
+            public void send(String message) {
+                sentMessages.add(message);
+                super.send(message);
+            }
+        };
+        bus = new CacheInvalidationBus(Optional.of(transport), starCache, constellationCache, starQueryCache,
+                constellationQueryCache, missingStarsCache, missingConstellationsCache, starColumnIndex, entityManagerFactory,
+                Duration.ofHours(1));
+        peerBus = new CacheInvalidationBus(Optional.of(new LoopbackInvalidationTransport()), peerStarCache,
+                peerConstellationCache, peerStarQueryCache, peerConstellationQueryCache, peerMissingStarsCache,
+                peerMissingConstellationsCache, peerStarColumnIndex, entityManagerFactory, Duration.ofHours(1));
+        bus.start();
+        peerBus.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bus.stop();
+        peerBus.stop();
+    }
+
+    private static StarDto createStar(int id, Integer constellationId) {
+        StarDto starDto = new StarDto();
+        starDto.setId(id);
+        starDto.setName("Star " + id);
+        starDto.setConstellationId(constellationId);
+        return starDto;
+    }
+
+    @Test
+    void flush_StarMovedBetweenConstellations_InvalidatesPeerOnly() throws IOException {
+        bus.onStarChanged(new StarChangedEvent(createStar(10, 1), createStar(10, 2)));
+
+        bus.flush();
+
+        verify(peerStarCache).remove(10);
+        verify(peerMissingStarsCache).forget(10);
+        verify(peerStarColumnIndex).invalidate(10);
+        verify(peerConstellationCache).remove(1);
+        verify(peerConstellationCache).remove(2);
+        verify(peerStarQueryCache).invalidateAll();
+        verify(peerConstellationQueryCache).invalidateAll();
+        verifyNoInteractions(starCache, constellationCache, starQueryCache, constellationQueryCache);
+    }
+
+    @Test
+    void flush_StarChanged_EvictsPeerSecondLevelCache() throws IOException {
+        bus.onStarChanged(new StarChangedEvent(createStar(10, null), createStar(10, 1)));
+
+        bus.flush();
+
+        verify(secondLevelCache).evictEntityData(Star.class, 10);
+        verify(secondLevelCache).evictEntityData(Constellation.class, 1);
+        verify(secondLevelCache).evictCollectionData(Constellation.class.getName() + ".stars", 1);
+        verify(secondLevelCache).evictQueryRegion(SecondLevelCacheConfig.STAR_TYPE_QUERY_REGION);
+        verify(secondLevelCache).evictQueryRegion(SecondLevelCacheConfig.NAME_QUERY_REGION);
+    }
+
+    @Test
+    void flush_StarCreatedOutsideConstellations_EvictsPeerStarNameQueries() throws IOException {
+        // a peer may have cached existsByName = false for this star
+        bus.onStarChanged(new StarChangedEvent(null, createStar(10, null)));
+
+        bus.flush();
+
+        verify(secondLevelCache).evictEntityData(Star.class, 10);
+        verify(secondLevelCache).evictQueryRegion(SecondLevelCacheConfig.STAR_NAME_QUERY_REGION);
+        verify(secondLevelCache, never()).evictQueryRegion(SecondLevelCacheConfig.NAME_QUERY_REGION);
+    }
+
+    @Test
+    void flush_RepeatedWrites_CoalescedIntoOneMessage() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            bus.onStarChanged(new StarChangedEvent(createStar(10, null), createStar(10, null)));
+        }
+        bus.onConstellationChanged(new ConstellationChangedEvent(
+                null, new ConstellationDto(3, "Lyra", "LYR", "Hercules", "Northern", null, List.of())));
+
+        bus.flush();
+        bus.flush();
+
+        assertEquals(1, sentMessages.size());
+        verify(peerStarCache, times(1)).remove(10);
+        verify(peerConstellationCache, times(1)).remove(3);
+        verify(peerMissingConstellationsCache).forget(3);
+    }
+
+    @Test
+    void flush_ManyKeys_SplitsIntoMessagesWithinTransportLimit() throws IOException {
+        InvalidationTransport transport = mock(InvalidationTransport.class);
+        when(transport.getMaxMessageLength()).thenReturn(100);
+        CacheInvalidationBus smallBus = new CacheInvalidationBus(Optional.of(transport), starCache, constellationCache,
+                starQueryCache, constellationQueryCache, missingStarsCache, missingConstellationsCache, starColumnIndex, entityManagerFactory,
+                Duration.ofHours(1));
+        for (int id = 1000; id < 1100; id++) {
+            smallBus.onStarChanged(new StarChangedEvent(null, createStar(id, null)));
+        }
+
+        smallBus.flush();
+
+        verify(transport, atLeast(10)).send(argThat(message -> message.length() <= 100));
+    }
+
+    @Test
+    void flush_SendFails_KeepsKeysPending() throws IOException {
+        InvalidationTransport transport = mock(InvalidationTransport.class);
+        when(transport.getMaxMessageLength()).thenReturn(1000);
+        doThrow(new IOException("network unreachable")).doNothing().when(transport).send(anyString());
+        CacheInvalidationBus failingBus = new CacheInvalidationBus(Optional.of(transport), starCache, constellationCache,
+                starQueryCache, constellationQueryCache, missingStarsCache, missingConstellationsCache, starColumnIndex, entityManagerFactory,
+                Duration.ofHours(1));
+        failingBus.onStarChanged(new StarChangedEvent(null, createStar(7, null)));
+
+        assertThrows(IOException.class, failingBus::flush);
+        failingBus.flush();
+
+        verify(transport, times(2)).send(argThat(message -> message.endsWith(";S7")));
+    }
+
+    @Test
+    void onMessage_SequenceGap_ClearsCaches() {
+        peerBus.onMessage("1;other;1;S1");
+        peerBus.onMessage("1;other;3;S2");
+
+        verify(peerStarCache).remove(1);
+        verify(peerStarCache, never()).remove(2);
+        verify(peerStarCache).clear();
+        verify(peerConstellationCache).clear();
+        verify(peerStarColumnIndex).rebuild();
+        verify(peerMissingStarsCache).clear();
+    }
+
+    @Test
+    void onMessage_UnknownFormat_Ignored() {
+        peerBus.onMessage("2;other;1;S1");
+        peerBus.onMessage("1;other;x;S1");
+
+        verifyNoInteractions(peerStarCache);
+    }
+
+    @Test
+    void withoutTransport_DoesNothing() throws IOException, InterruptedException {
+        CacheInvalidationBus localBus = new CacheInvalidationBus(Optional.empty(), starCache, constellationCache,
+                starQueryCache, constellationQueryCache, missingStarsCache, missingConstellationsCache, starColumnIndex, entityManagerFactory,
+                Duration.ofHours(1));
+        localBus.start();
+        localBus.onStarChanged(new StarChangedEvent(null, createStar(1, null)));
+        localBus.flush();
+        localBus.stop();
+
+        assertTrue(sentMessages.isEmpty());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CacheSnapshot;
+import com.example.rememberconstellations.cache.ConstellationCache;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.repositories.ConstellationsRepository;
+import com.example.rememberconstellations.repositories.RowVersion;
+import com.example.rememberconstellations.repositories.StarsRepository;
+import com.example.rememberconstellations.services.CacheSnapshotService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheSnapshotServiceTest {
+
+    private static final Instant CACHED_AT = Instant.parse("2026-01-01T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private StarCache starCache;
+
+    @Mock
+    private StarsRepository starsRepository;
+
+    @Mock
+    private ConstellationsRepository constellationsRepository;
+
+    private ConstellationCache constellationCache;
+    private Path snapshotPath;
+    private CacheSnapshotService cacheSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        snapshotPath = directory.resolve("caches.snapshot");
+        constellationCache = new ConstellationCache(new MockEnvironment());
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.snapshot.path", snapshotPath.toString())
+                .withProperty("cache.snapshot.clock-skew", "5s");
+        cacheSnapshotService = new CacheSnapshotService(starCache, constellationCache,
+                starsRepository, constellationsRepository, environment);
+    }
+
+    private static StarDto createStar(int id, String name, Integer constellationId) {
+        return new StarDto(id, name, "Red supergiant", 16.5, 764.0, 3600.0, 126000.0, 88.79, 7.41,
+                "Shoulder", null, constellationId);
+    }
+
+    private static ConstellationDto createConstellation(int id, StarDto... stars) {
+        return new ConstellationDto(id, "Orion", "ORI", "Orion", "Equatorial", "orion.svg", List.of(stars));
+    }
+
+    private static RowVersion version(int id, Instant updatedAt) {
+        return new RowVersion() {
+            @Override
+            public int getId() {
+                return id;
+            }
+
+            @Override
+            public Instant getUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+
+    private void writeSnapshot(List<CacheSnapshot.Entry<StarDto>> stars,
+                               List<CacheSnapshot.Entry<ConstellationDto>> constellations) throws IOException {
+        new CacheSnapshot(CACHED_AT.plusSeconds(60), stars, constellations).writeTo(snapshotPath);
+    }
+
+    @Test
+    void writeTo_ReadFrom_RoundTripsEntries() throws IOException {
+        StarDto starWithNulls = new StarDto(3, "Nameless", "Unknown", null, 1.0, null, 2.0, 3.0, null, null, null, null);
+        writeSnapshot(List.of(new CacheSnapshot.Entry<>(3, CACHED_AT, starWithNulls)),
+                List.of(new CacheSnapshot.Entry<>(1, CACHED_AT, createConstellation(1, createStar(10, "Betelgeuse", 1)))));
+
+        CacheSnapshot snapshot = CacheSnapshot.readFrom(snapshotPath);
+
+        StarDto star = snapshot.getStars().get(0).getValue();
+        ConstellationDto constellation = snapshot.getConstellations().get(0).getValue();
+        assertAll(
+                () -> assertEquals(CACHED_AT.plusSeconds(60), snapshot.getTakenAt()),
+                () -> assertEquals(CACHED_AT, snapshot.getStars().get(0).getWrittenAt()),
+                () -> assertEquals("Nameless", star.getName()),
+                () -> assertNull(star.getMass()),
+                () -> assertEquals(2.0, star.getLuminosity()),
+                () -> assertNull(star.getConstellationId()),
+                () -> assertEquals("orion.svg", constellation.getImageUrl()),
+                () -> assertEquals("Betelgeuse", constellation.getStars().get(0).getName()),
+                () -> assertEquals(1, constellation.getStars().get(0).getConstellationId())
+        );
+    }
+
+    @Test
+    void readFrom_CorruptedFile_Throws() throws IOException {
+        writeSnapshot(List.of(new CacheSnapshot.Entry<>(10, CACHED_AT, createStar(10, "Betelgeuse", 1))), List.of());
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshotPath, bytes);
+
+        assertThrows(IOException.class, () -> CacheSnapshot.readFrom(snapshotPath));
+        assertEquals(0, cacheSnapshotService.restore());
+    }
+
+    @Test
+    void restore_NoSnapshot_RestoresNothing() {
+        assertEquals(0, cacheSnapshotService.restore());
+        verifyNoInteractions(starsRepository, constellationsRepository);
+    }
+
+    @Test
+    void restore_Stars_KeepsOnlyRowsUnchangedSinceCached() throws IOException {
+        writeSnapshot(List.of(
+                new CacheSnapshot.Entry<>(10, CACHED_AT, createStar(10, "Betelgeuse", 1)),
+                new CacheSnapshot.Entry<>(11, CACHED_AT, createStar(11, "Rigel", 1)),
+                new CacheSnapshot.Entry<>(12, CACHED_AT, createStar(12, "Bellatrix", 1)),
+                new CacheSnapshot.Entry<>(13, CACHED_AT, createStar(13, "Saiph", 1))), List.of());
+        when(starsRepository.findVersionsByIdIn(anyCollection())).thenReturn(List.of(
+                version(10, CACHED_AT.minus(Duration.ofHours(1))),
+                version(11, CACHED_AT.plusSeconds(30)),
+                version(13, null)));
+
+        cacheSnapshotService.restore();
+
+        verify(starCache).put(eq(10), any(StarDto.class));
+        verify(starCache).put(eq(13), any(StarDto.class));
+        verify(starCache, never()).put(eq(11), any());
+        verify(starCache, never()).put(eq(12), any());
+    }
+
+    @Test
+    void restore_Constellations_DropsEntriesWithChangedStars() throws IOException {
+        writeSnapshot(List.of(), List.of(
+                new CacheSnapshot.Entry<>(1, CACHED_AT, createConstellation(1, createStar(10, "Betelgeuse", 1))),
+                new CacheSnapshot.Entry<>(2, CACHED_AT, createConstellation(2, createStar(20, "Sirius", 2))),
+                new CacheSnapshot.Entry<>(3, CACHED_AT, createConstellation(3, createStar(30, "Vega", 3)))));
+        Instant before = CACHED_AT.minus(Duration.ofDays(1));
+        when(constellationsRepository.findVersionsByIdIn(anyCollection()))
+                .thenReturn(List.of(version(1, before), version(2, before), version(3, before)));
+        // a star joined constellation 2 after it was cached
+        when(starsRepository.findLatestVersionsByConstellationIdIn(anyCollection()))
+                .thenReturn(List.of(version(1, before), version(2, CACHED_AT.plusSeconds(10)), version(3, before)));
+        // star 30 was deleted
+        when(starsRepository.findVersionsByIdIn(anyCollection()))
+                .thenReturn(List.of(version(10, before), version(20, before)));
+
+        assertEquals(1, cacheSnapshotService.restore());
+
+        assertTrue(constellationCache.contains(1));
+        assertFalse(constellationCache.contains(2));
+        assertFalse(constellationCache.contains(3));
+        assertEquals(Set.of(1), constellationCache.getConstellationIdsContainingStar(10));
+    }
+
+    @Test
+    void snapshot_WritesCachedEntries() throws IOException {
+        constellationCache.put(1, createConstellation(1, createStar(10, "Betelgeuse", 1)));
+        doAnswer(invocation -> {
+            InMemoryCache.EntryVisitor<Integer, StarDto> visitor = invocation.getArgument(0);
+            visitor.visit(10, createStar(10, "Betelgeuse", 1), Duration.ofMinutes(3));
+            return null;
+        }).when(starCache).forEachEntry(any());
+
+        Instant before = Instant.now();
+        cacheSnapshotService.snapshot();
+
+        CacheSnapshot snapshot = CacheSnapshot.readFrom(snapshotPath);
+        assertEquals(1, snapshot.getStars().size());
+        assertEquals(1, snapshot.getConstellations().size());
+        Instant writtenAt = snapshot.getStars().get(0).getWrittenAt();
+        assertFalse(writtenAt.isAfter(snapshot.getTakenAt().minus(Duration.ofMinutes(3))));
+        assertFalse(snapshot.getTakenAt().isBefore(before.minusMillis(1)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import com.example.rememberconstellations.dtos.CacheStatsDto;
+import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
+import com.example.rememberconstellations.mappers.CacheStatsMapper;
+import com.example.rememberconstellations.services.CachesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachesServiceTest {
+
+    private InMemoryCache<Integer, String> starsCache;
+    private CachesService cachesService;
+
+    @BeforeEach
+    void setUp() {
+        starsCache = new InMemoryCache<>("stars", new CacheSettings(2, Duration.ofHours(1), true));
+        InMemoryCache<Integer, String> constellationsCache =
+                new InMemoryCache<>("constellations", new CacheSettings(10, Duration.ofHours(1), true));
+        cachesService = new CachesService(List.of(starsCache, constellationsCache), new CacheStatsMapper());
+    }
+
+    @Test
+    void getCacheStats_CountsHitsMissesAndEvictions() {
+        starsCache.put(1, "Sun");
+        starsCache.get(1);
+        starsCache.get(2);
+        starsCache.put(2, "Sirius");
+        starsCache.getOrLoad(3, id -> "Vega");
+
+        CacheStatsDto stats = cachesService.getCacheStats("stars");
+
+        assertAll(
+                () -> assertEquals(1, stats.getHits()),
+                () -> assertEquals(1.0 / 3, stats.getHitRate()),
+                () -> assertEquals(3, stats.getPuts()),
+                () -> assertEquals(2, stats.getMaxSize()),
+                () -> assertTrue(stats.getSize() <= 2),
+                () -> assertEquals(3 - stats.getSize(), stats.getSizeEvictions()),
+                () -> assertEquals(2, stats.getMisses()),
+                () -> assertEquals(1, stats.getLoads()),
+                () -> assertEquals(0, stats.getLoadFailures())
+        );
+    }
+
+    @Test
+    void getAllCacheStats_ReturnsEveryCache() {
+        List<CacheStatsDto> stats = cachesService.getAllCacheStats();
+
+        assertEquals(List.of("stars", "constellations"), stats.stream().map(CacheStatsDto::getName).toList());
+    }
+
+    @Test
+    void getCacheStats_WeightBoundedCache_StaysWithinBudget() {
+        CacheSettings settings = new CacheSettings(1000, Duration.ofHours(1), true);
+        settings.setMaxWeight(DataSize.ofBytes(512));
+        InMemoryCache<Integer, String> namesCache = new InMemoryCache<>("names", settings, (id, name) -> name.length());
+        cachesService = new CachesService(List.of(namesCache), new CacheStatsMapper());
+
+        for (int i = 0; i < 100; i++) {
+            namesCache.put(i, "Star number " + i);
+        }
+        CacheStatsDto stats = cachesService.getCacheStats("names");
+
+        assertAll(
+                () -> assertEquals(512L, stats.getMaxWeight()),
+                () -> assertTrue(stats.getWeight() <= 512),
+                () -> assertTrue(stats.getWeight() > 0),
+                () -> assertTrue(stats.getSizeEvictions() > 0),
+                () -> assertEquals(100 - stats.getSize(), stats.getSizeEvictions())
+        );
+    }
+
+    @Test
+    void getCacheStats_UnknownName_ThrowsException() {
+        assertThrows(ResourceNotFoundException.class, () -> cachesService.getCacheStats("planets"));
+    }
+}
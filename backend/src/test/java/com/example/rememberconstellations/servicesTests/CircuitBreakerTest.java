@@ -0,0 +1,151 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import com.example.rememberconstellations.exceptions.CircuitOpenException;
+import com.example.rememberconstellations.resilience.CircuitBreaker;
+import com.example.rememberconstellations.resilience.CircuitBreakerSettings;
+import com.example.rememberconstellations.resilience.DatabaseCircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerSettings settings = new CircuitBreakerSettings();
+        settings.setFailureThreshold(3);
+        settings.setSlowCallThreshold(Duration.ofSeconds(1));
+        settings.setOpenDuration(Duration.ofSeconds(10));
+        settings.setHalfOpenMaxConcurrentProbes(1);
+        settings.setHalfOpenSuccessThreshold(2);
+        circuitBreaker = new CircuitBreaker("database", settings, DatabaseCircuitBreaker::isDatabaseFailure, nanos::get);
+    }
+
+    private String refuseConnection() {
+        throw new CannotCreateTransactionException("Connection refused");
+    }
+
+    private String slow() {
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        return "slow";
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(CannotCreateTransactionException.class, () -> circuitBreaker.execute(this::refuseConnection));
+        }
+    }
+
+    @Test
+    void execute_ConsecutiveFailures_OpensAndRejectsWithoutCalling() {
+        open();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        CircuitOpenException exception = assertThrows(CircuitOpenException.class,
+                () -> circuitBreaker.execute(() -> fail("rejected calls must not run")));
+        assertEquals(Duration.ofSeconds(10), exception.getRetryAfter());
+        assertEquals(1, circuitBreaker.getRejectedCallCount());
+    }
+
+    @Test
+    void execute_SuccessBetweenFailures_StaysClosed() {
+        assertThrows(CannotCreateTransactionException.class, () -> circuitBreaker.execute(this::refuseConnection));
+        assertThrows(CannotCreateTransactionException.class, () -> circuitBreaker.execute(this::refuseConnection));
+        circuitBreaker.execute(() -> "ok");
+        assertThrows(CannotCreateTransactionException.class, () -> circuitBreaker.execute(this::refuseConnection));
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_RejectedStatements_DoNotOpen() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(DataIntegrityViolationException.class, () -> circuitBreaker.execute(() -> {
+                throw new DataIntegrityViolationException("duplicate key");
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_SlowCalls_OpenButReturnTheirResults() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("slow", circuitBreaker.execute(this::slow));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_HalfOpen_LimitsConcurrentProbesAndClosesAfterSuccesses() {
+        open();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        String result = circuitBreaker.execute(() -> {
+            assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+            assertThrows(CircuitOpenException.class, () -> circuitBreaker.execute(() -> "second probe"));
+            return "first probe";
+        });
+
+        assertEquals("first probe", result);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.execute(() -> "ok");
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_HalfOpenProbeFails_OpensAgain() {
+        open();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertEquals("slow", circuitBreaker.execute(this::slow));
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(CircuitOpenException.class, () -> circuitBreaker.execute(() -> "ok"));
+    }
+
+    @Test
+    void getStale_ExpiredEntry_ServedUntilStalePeriodEnds() {
+        CacheSettings settings = new CacheSettings(10, Duration.ofMinutes(10), false);
+        settings.setServeStaleFor(Duration.ofMinutes(30));
+        InMemoryCache<Integer, String> cache = new InMemoryCache<>("stars", settings, nanos::get);
+        cache.put(1, "Sirius");
+
+        nanos.addAndGet(Duration.ofMinutes(20).toNanos());
+        cache.cleanUp();
+
+        assertNull(cache.get(1));
+        assertFalse(cache.contains(1));
+        assertEquals("Sirius", cache.getStale(1));
+        assertEquals(1, cache.stats().getStaleHitCount());
+
+        nanos.addAndGet(Duration.ofMinutes(21).toNanos());
+        cache.cleanUp();
+
+        assertNull(cache.getStale(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void getStale_WithoutStalePeriod_OnlyLiveEntries() {
+        InMemoryCache<Integer, String> cache =
+                new InMemoryCache<>("stars", new CacheSettings(10, Duration.ofMinutes(10), false), nanos::get);
+        cache.put(1, "Sirius");
+
+        assertEquals("Sirius", cache.getStale(1));
+        nanos.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertNull(cache.getStale(1));
+    }
+}
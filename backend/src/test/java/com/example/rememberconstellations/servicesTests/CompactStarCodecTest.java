@@ -0,0 +1,80 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CompactStar;
+import com.example.rememberconstellations.cache.CompactStarCodec;
+import com.example.rememberconstellations.dtos.StarDto;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactStarCodecTest {
+
+    private final CompactStarCodec codec = new CompactStarCodec();
+
+    @Test
+    void decode_EncodedStar_RestoresAllFields() {
+        StarDto star = new StarDto(4, "Sirius", "A1V", 2.06, 1.71, 9940.0, 25.4, 101.29, -16.72,
+                "Alpha", "star_placeholder.svg", 12);
+
+        StarDto result = codec.decode(codec.encode(star));
+
+        assertAll(
+                () -> assertEquals(4, result.getId()),
+                () -> assertEquals("Sirius", result.getName()),
+                () -> assertEquals("A1V", result.getType()),
+                () -> assertEquals(2.06, result.getMass()),
+                () -> assertEquals(1.71, result.getRadius()),
+                () -> assertEquals(9940.0, result.getTemperature()),
+                () -> assertEquals(25.4, result.getLuminosity()),
+                () -> assertEquals(101.29, result.getRightAscension()),
+                () -> assertEquals(-16.72, result.getDeclination()),
+                () -> assertEquals("Alpha", result.getPositionInConstellation()),
+                () -> assertEquals("star_placeholder.svg", result.getImageUrl()),
+                () -> assertEquals(12, result.getConstellationId())
+        );
+    }
+
+    @Test
+    void decode_NullFields_StayNull() {
+        StarDto star = new StarDto();
+        star.setId(5);
+        star.setTemperature(3500.0);
+
+        StarDto result = codec.decode(codec.encode(star));
+
+        assertAll(
+                () -> assertNull(result.getName()),
+                () -> assertNull(result.getType()),
+                () -> assertNull(result.getMass()),
+                () -> assertEquals(3500.0, result.getTemperature()),
+                () -> assertNull(result.getImageUrl()),
+                () -> assertNull(result.getConstellationId())
+        );
+    }
+
+    @Test
+    void encode_RepeatedStrings_ShareDictionaryCodes() {
+        CompactStar first = codec.encode(new StarDto(1, "Vega", "A0V", 2.1, 2.4, 9600.0, 40.0, 279.2, 38.8, "Alpha", "star_placeholder.svg", 1));
+        CompactStar second = codec.encode(new StarDto(2, "Altair", "A0V", 1.8, 1.6, 7700.0, 10.6, 297.7, 8.9, "Alpha", "star_placeholder.svg", 2));
+
+        assertEquals(first.getTypeCode(), second.getTypeCode());
+        assertEquals(first.getImageUrlCode(), second.getImageUrlCode());
+    }
+
+    @Test
+    void decode_DictionaryFull_KeepsStringsInline() {
+        for (int i = 0; i < 5000; i++) {
+            codec.encode(new StarDto(i, "Star " + i, "Type " + i, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, null, "image-" + i + ".png", null));
+        }
+        StarDto star = new StarDto(6000, "Rare", "Type 6000", 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, "Gamma", "image-6000.png", null);
+
+        StarDto result = codec.decode(codec.encode(star));
+
+        assertAll(
+                () -> assertEquals("Rare", result.getName()),
+                () -> assertEquals("Type 6000", result.getType()),
+                () -> assertEquals("Gamma", result.getPositionInConstellation()),
+                () -> assertEquals("image-6000.png", result.getImageUrl())
+        );
+    }
+}
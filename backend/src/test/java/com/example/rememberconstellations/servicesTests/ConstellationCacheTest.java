@@ -0,0 +1,78 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.ConstellationCache;
+import com.example.rememberconstellations.dtos.ConstellationDto;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstellationCacheTest {
+
+    private ConstellationCache constellationCache;
+
+    @BeforeEach
+    void setUp() {
+        constellationCache = new ConstellationCache(new MockEnvironment());
+        constellationCache.put(1, createConstellation(1, createStar(10, "Betelgeuse", 1), createStar(11, "Rigel", 1)));
+        constellationCache.put(2, createConstellation(2, createStar(20, "Sirius", 2)));
+    }
+
+    private ConstellationDto createConstellation(int id, StarDto... stars) {
+        return new ConstellationDto(id, "Orion", "ORI", "Orion", "Equatorial", null, List.of(stars));
+    }
+
+    private StarDto createStar(int id, String name, Integer constellationId) {
+        StarDto starDto = new StarDto();
+        starDto.setId(id);
+        starDto.setName(name);
+        starDto.setConstellationId(constellationId);
+        return starDto;
+    }
+
+    @Test
+    void onStarChanged_UpdatedStar_PatchesOnlyContainingConstellation() {
+        ConstellationDto untouched = constellationCache.get(2);
+
+        constellationCache.onStarChanged(new StarChangedEvent(createStar(10, "Betelgeuse", 1),
+                createStar(10, "Alpha Orionis", 1)));
+
+        List<StarDto> stars = constellationCache.get(1).getStars();
+        assertAll(
+                () -> assertEquals(List.of("Alpha Orionis", "Rigel"), stars.stream().map(StarDto::getName).toList()),
+                () -> assertSame(untouched, constellationCache.get(2))
+        );
+    }
+
+    @Test
+    void onStarChanged_DeletedStar_RemovesStarAndIndex() {
+        constellationCache.onStarChanged(new StarChangedEvent(createStar(11, "Rigel", 1), null));
+
+        assertAll(
+                () -> assertEquals(List.of(10), constellationCache.get(1).getStars().stream().map(StarDto::getId).toList()),
+                () -> assertEquals(Set.of(), constellationCache.getConstellationIdsContainingStar(11))
+        );
+    }
+
+    @Test
+    void onStarChanged_StarJoinedCachedConstellation_InvalidatesIt() {
+        constellationCache.onStarChanged(new StarChangedEvent(createStar(30, "Vega", null), createStar(30, "Vega", 2)));
+
+        assertNull(constellationCache.get(2));
+        assertEquals(Set.of(), constellationCache.getConstellationIdsContainingStar(20));
+    }
+
+    @Test
+    void remove_Constellation_ClearsReverseIndex() {
+        constellationCache.remove(1);
+
+        assertEquals(Set.of(), constellationCache.getConstellationIdsContainingStar(10));
+        assertEquals(Set.of(2), constellationCache.getConstellationIdsContainingStar(20));
+    }
+}
@@ -1,20 +1,28 @@
 package com.example.rememberconstellations.servicesTests;
 
 import com.example.rememberconstellations.cache.ConstellationCache;
+import com.example.rememberconstellations.cache.ConstellationQueryCache;
+import com.example.rememberconstellations.cache.MissingConstellationsCache;
 import com.example.rememberconstellations.dtos.ConstellationDto;
 import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
 import com.example.rememberconstellations.exceptions.ConstellationAlreadyExistsException;
 import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
 import com.example.rememberconstellations.models.Constellation;
 import com.example.rememberconstellations.models.Star;
 import com.example.rememberconstellations.repositories.ConstellationsRepository;
 import com.example.rememberconstellations.repositories.StarsRepository;
+import com.example.rememberconstellations.resilience.CircuitBreakerSettings;
+import com.example.rememberconstellations.resilience.DatabaseCircuitBreaker;
 import com.example.rememberconstellations.services.ConstellationsService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -23,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -40,6 +49,18 @@ class ConstellationsServiceTest {
     @Mock
     private ConstellationCache constellationCache;
 
+    @Mock
+    private ConstellationQueryCache constellationQueryCache;
+
+    @Mock
+    private MissingConstellationsCache missingConstellationsCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private DatabaseCircuitBreaker databaseCircuitBreaker = new DatabaseCircuitBreaker(new CircuitBreakerSettings());
+
     @InjectMocks
     private ConstellationsService constellationsService;
 
@@ -109,6 +130,31 @@ class ConstellationsServiceTest {
         assertTrue(availableStars.stream().allMatch(star -> star.getConstellation() == constellation));
     }
 
+    @Test
+    void attachStars_FreeStar_PublishesItsStateBeforeAttaching() {
+        Constellation constellation = createBaseConstellation();
+        constellation.setId(1);
+        Star star = new Star("Betelgeuse", "Red", 12.0, 800.0, 3500.0, 100000.0, 5.92, 7.41, "Shoulder");
+        star.setId(7);
+
+        when(constellationsRepository.findById(1)).thenReturn(Optional.of(constellation));
+        when(starsRepository.findByIdAndConstellationIsNull(List.of(7))).thenReturn(List.of(star));
+        when(constellationsRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        constellationsService.attachStars(1, List.of(7));
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        List<StarChangedEvent> starEvents = events.getAllValues().stream()
+                .filter(StarChangedEvent.class::isInstance)
+                .map(StarChangedEvent.class::cast)
+                .toList();
+        assertEquals(1, starEvents.size());
+        assertEquals("Betelgeuse", starEvents.get(0).getBefore().getName());
+        assertNull(starEvents.get(0).getBefore().getConstellationId());
+        assertEquals(1, starEvents.get(0).getAfter().getConstellationId());
+    }
+
     @Test
     void attachStars_SomeStarsUnavailable_ThrowsException() {
         List<Star> availableStars = Collections.singletonList(new Star());
@@ -130,7 +176,7 @@ class ConstellationsServiceTest {
     @Test
     void getConstellationById_Cached_ReturnsFromCache() {
         ConstellationDto cachedDto = new ConstellationDto(1, "Orion", "ORI", "Winter", "Equatorial", null,  List.of());
-        when(constellationCache.get(1)).thenReturn(cachedDto);
+        when(constellationCache.getOrLoad(eq(1), any())).thenReturn(cachedDto);
 
         ConstellationDto result = constellationsService.getConstellationById(1);
 
@@ -144,14 +190,38 @@ class ConstellationsServiceTest {
         entity.setId(1);
         ConstellationDto expectedDto = new ConstellationDto(1, "Orion", "ORI", "Winter", "Equatorial", null, Collections.emptyList());
 
-        when(constellationCache.get(1)).thenReturn(null);
+        when(constellationCache.getOrLoad(eq(1), any())).thenAnswer(invocation -> {
+            Function<Integer, ConstellationDto> loader = invocation.getArgument(1);
+            return loader.apply(invocation.getArgument(0));
+        });
         when(constellationsRepository.findById(1)).thenReturn(Optional.of(entity));
 
         ConstellationDto result = constellationsService.getConstellationById(1);
 
+        verify(constellationsRepository).findById(1);
         assertEquals(expectedDto.getName(), result.getName());
     }
 
+    @Test
+    void getConstellationById_NotFound_RemembersMissingId() {
+        when(constellationCache.getOrLoad(eq(1), any())).thenAnswer(invocation -> {
+            Function<Integer, ConstellationDto> loader = invocation.getArgument(1);
+            return loader.apply(invocation.getArgument(0));
+        });
+        when(constellationsRepository.findById(1)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> constellationsService.getConstellationById(1));
+        verify(missingConstellationsCache).markMissing(1, 0L);
+    }
+
+    @Test
+    void getConstellationById_KnownMissing_SkipsRepository() {
+        when(missingConstellationsCache.isMissing(1)).thenReturn(true);
+
+        assertThrows(ResourceNotFoundException.class, () -> constellationsService.getConstellationById(1));
+        verify(constellationsRepository, never()).findById(anyInt());
+    }
+
     @Test
     void getConstellationsByCriteria_WithPaging_ReturnsPageResults() {
         Constellation c1 = createBaseConstellation();
@@ -539,6 +609,34 @@ class ConstellationsServiceTest {
         assertTrue(result.getStars().stream().anyMatch(s -> s.getName().equals("NewStar")));
     }
 
+    @Test
+    void patchConstellation_AddStars_PublishesStarEventsOnlyForAddedStars() {
+        Constellation original = createBaseConstellation();
+        original.setId(1);
+        Star existingStar = new Star("OldStar", "Type", 1.0, 1.0, 5000.0, 1.0, 0.0, 0.0, "Pos");
+        existingStar.setId(1);
+        original.getStars().add(existingStar);
+
+        StarDto newStarDto = new StarDto(2, "NewStar", "Type", 2.0, 2.0, 6000.0, 2.0, 1.0, 1.0, "NewPos", null, 1);
+        ConstellationDto patchDto = new ConstellationDto();
+        patchDto.setStars(List.of(newStarDto));
+
+        when(constellationsRepository.findById(1)).thenReturn(Optional.of(original));
+        when(constellationsRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        constellationsService.patchConstellation(1, patchDto);
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        List<StarChangedEvent> starEvents = events.getAllValues().stream()
+                .filter(StarChangedEvent.class::isInstance)
+                .map(StarChangedEvent.class::cast)
+                .toList();
+        assertEquals(1, starEvents.size());
+        assertNull(starEvents.get(0).getBefore());
+        assertEquals("NewStar", starEvents.get(0).getAfter().getName());
+    }
+
     @Test
     void putConstellation_ReplaceStars_UpdatesCollection() {
         Constellation existing = createBaseConstellation();
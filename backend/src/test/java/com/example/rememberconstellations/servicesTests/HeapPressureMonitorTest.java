@@ -0,0 +1,74 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import com.example.rememberconstellations.cache.HeapPressureMonitor;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapPressureMonitorTest {
+
+    private InMemoryCache<Integer, String> cache;
+    private HeapPressureMonitor heapPressureMonitor;
+    private int initialSize;
+
+    @BeforeEach
+    void setUp() {
+        cache = new InMemoryCache<>("stars", new CacheSettings(100, Duration.ofHours(1), true));
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.heap-pressure.min-interval", "0s")
+                .withProperty("cache.heap-pressure.shrink-ratio", "0.5")
+                .withProperty("cache.heap-pressure.grow-step", "0.25");
+        heapPressureMonitor = new HeapPressureMonitor(List.of(cache), environment);
+        fillCache();
+        initialSize = cache.size();
+    }
+
+    private void fillCache() {
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "Star " + i);
+        }
+    }
+
+    @Test
+    void onOldGenOccupancy_AboveHighWater_ShrinksCachesGradually() {
+        heapPressureMonitor.onOldGenOccupancy(0.9);
+
+        assertEquals(0.5, cache.getCapacityFactor());
+        assertTrue(cache.size() <= 50);
+
+        heapPressureMonitor.onOldGenOccupancy(0.9);
+
+        assertEquals(0.25, cache.getCapacityFactor());
+        assertTrue(cache.size() <= 25);
+    }
+
+    @Test
+    void onOldGenOccupancy_BelowLowWater_GrowsBackToConfiguredBounds() {
+        heapPressureMonitor.onOldGenOccupancy(0.9);
+        heapPressureMonitor.onOldGenOccupancy(0.3);
+
+        assertEquals(0.75, cache.getCapacityFactor());
+
+        heapPressureMonitor.onOldGenOccupancy(0.3);
+        heapPressureMonitor.onOldGenOccupancy(0.3);
+
+        assertEquals(1.0, cache.getCapacityFactor());
+        fillCache();
+        assertEquals(initialSize, cache.size());
+    }
+
+    @Test
+    void onOldGenOccupancy_BetweenWaterMarks_KeepsCurrentSize() {
+        heapPressureMonitor.onOldGenOccupancy(0.7);
+
+        assertEquals(1.0, heapPressureMonitor.getCapacityFactor());
+        assertEquals(initialSize, cache.size());
+    }
+}
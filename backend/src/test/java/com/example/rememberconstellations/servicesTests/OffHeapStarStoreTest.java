@@ -0,0 +1,134 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.OffHeapSettings;
+import com.example.rememberconstellations.cache.OffHeapStarStore;
+import com.example.rememberconstellations.dtos.StarDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStarStoreTest {
+
+    private OffHeapStarStore offHeapStarStore;
+
+    @BeforeEach
+    void setUp() {
+        OffHeapSettings settings = new OffHeapSettings();
+        settings.setCapacity(DataSize.ofKilobytes(4));
+        settings.setSlabSize(DataSize.ofKilobytes(1));
+        offHeapStarStore = new OffHeapStarStore(settings);
+    }
+
+    private StarDto createStar(int id, String name) {
+        return new StarDto(id, name, "G-type", 1.0, 1.0, 5778.0, 1.0, 12.5, -7.25, "Center", "star_placeholder.svg", 3);
+    }
+
+    @Test
+    void get_StoredStar_DecodesAllFields() {
+        StarDto star = createStar(1, "Sun");
+        star.setMass(null);
+        star.setPositionInConstellation(null);
+        star.setConstellationId(null);
+        offHeapStarStore.put(star);
+
+        StarDto result = offHeapStarStore.get(1);
+
+        assertAll(
+                () -> assertEquals(1, result.getId()),
+                () -> assertEquals("Sun", result.getName()),
+                () -> assertEquals("G-type", result.getType()),
+                () -> assertNull(result.getMass()),
+                () -> assertEquals(5778.0, result.getTemperature()),
+                () -> assertEquals(-7.25, result.getDeclination()),
+                () -> assertNull(result.getPositionInConstellation()),
+                () -> assertEquals("star_placeholder.svg", result.getImageUrl()),
+                () -> assertNull(result.getConstellationId())
+        );
+    }
+
+    @Test
+    void put_ExistingStar_ReplacesAndRemoveForgets() {
+        offHeapStarStore.put(createStar(1, "Sun"));
+        offHeapStarStore.put(createStar(1, "Sol"));
+
+        assertEquals("Sol", offHeapStarStore.get(1).getName());
+        assertEquals(1, offHeapStarStore.size());
+
+        offHeapStarStore.remove(1);
+
+        assertNull(offHeapStarStore.get(1));
+        assertEquals(0, offHeapStarStore.getLiveBytes());
+    }
+
+    @Test
+    void put_RepeatedUpdates_CompactsInsteadOfRunningOutOfSlabs() {
+        for (int i = 0; i < 500; i++) {
+            assertTrue(offHeapStarStore.put(createStar(i % 5, "Star " + i)));
+        }
+
+        assertAll(
+                () -> assertEquals(5, offHeapStarStore.size()),
+                () -> assertEquals("Star 499", offHeapStarStore.get(4).getName()),
+                () -> assertEquals("Star 495", offHeapStarStore.get(0).getName()),
+                () -> assertTrue(offHeapStarStore.getAllocatedBytes() <= DataSize.ofKilobytes(4).toBytes())
+        );
+    }
+
+    @Test
+    void put_StoreFullOfLiveStars_RejectsNewStars() {
+        int stored = 0;
+        while (offHeapStarStore.put(createStar(stored, "Star " + stored))) {
+            stored++;
+        }
+
+        assertTrue(stored > 10);
+        assertEquals(stored, offHeapStarStore.size());
+        assertEquals("Star 0", offHeapStarStore.get(0).getName());
+    }
+
+    @Test
+    void get_RecordOlderThanMaxAge_RefusedUntilRewritten() {
+        AtomicLong time = new AtomicLong();
+        OffHeapSettings settings = new OffHeapSettings();
+        settings.setCapacity(DataSize.ofKilobytes(4));
+        settings.setSlabSize(DataSize.ofKilobytes(1));
+        OffHeapStarStore store = new OffHeapStarStore(settings, Duration.ofHours(1), time::get);
+        store.put(createStar(1, "Sun"));
+
+        time.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertEquals(Duration.ofMinutes(10).toNanos(), store.get(1, Duration.ofMinutes(10).toNanos()).getAgeNanos());
+        assertNull(store.get(1, Duration.ofMinutes(5).toNanos()));
+
+        // an identical star only moves the write time forward
+        store.put(createStar(1, "Sun"));
+        assertEquals(0, store.get(1, Duration.ofMinutes(5).toNanos()).getAgeNanos());
+        store.put(createStar(1, "Sun"), Duration.ofMinutes(30).toNanos());
+        assertEquals(0, store.get(1, Duration.ofMinutes(5).toNanos()).getAgeNanos());
+    }
+
+    @Test
+    void put_StoreFullOfExpiredStars_DropsThemForNewStars() {
+        AtomicLong time = new AtomicLong();
+        OffHeapSettings settings = new OffHeapSettings();
+        settings.setCapacity(DataSize.ofKilobytes(4));
+        settings.setSlabSize(DataSize.ofKilobytes(1));
+        OffHeapStarStore store = new OffHeapStarStore(settings, Duration.ofHours(1), time::get);
+        int stored = 0;
+        while (store.put(createStar(stored, "Star " + stored))) {
+            stored++;
+        }
+
+        time.addAndGet(Duration.ofHours(2).toNanos());
+
+        for (int i = 0; i < stored; i++) {
+            assertTrue(store.put(createStar(stored + i, "Star " + (stored + i))));
+        }
+        assertNull(store.get(0));
+        assertEquals(stored, store.size());
+    }
+}
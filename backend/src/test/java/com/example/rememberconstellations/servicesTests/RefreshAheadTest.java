@@ -0,0 +1,105 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshAheadTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Runnable> refreshTasks = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private InMemoryCache<Integer, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        CacheSettings settings = new CacheSettings(10, Duration.ofMinutes(10), false);
+        settings.setRefreshAfter(Duration.ofMinutes(5));
+        cache = new InMemoryCache<>("constellations", settings, nanos::get);
+        cache.setRefreshExecutor(refreshTasks::add);
+    }
+
+    private String load(int id) {
+        return "Orion v" + loads.incrementAndGet();
+    }
+
+    @Test
+    void getOrLoad_FreshEntry_DoesNotRefresh() {
+        cache.getOrLoad(1, this::load);
+        nanos.addAndGet(Duration.ofMinutes(4).toNanos());
+
+        assertEquals("Orion v1", cache.getOrLoad(1, this::load));
+        assertTrue(refreshTasks.isEmpty());
+    }
+
+    @Test
+    void getOrLoad_StaleEntry_ServesCurrentValueAndRefreshesOnce() {
+        cache.getOrLoad(1, this::load);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertEquals("Orion v1", cache.getOrLoad(1, this::load));
+        assertEquals("Orion v1", cache.getOrLoad(1, this::load));
+        assertEquals(1, refreshTasks.size());
+
+        refreshTasks.get(0).run();
+
+        assertEquals("Orion v2", cache.get(1));
+        assertEquals(1, cache.stats().getRefreshCount());
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        assertEquals("Orion v2", cache.get(1), "refreshed entry gets a new TTL");
+    }
+
+    @Test
+    void refresh_KeyWrittenMeanwhile_KeepsWrittenValue() {
+        cache.getOrLoad(1, this::load);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        cache.getOrLoad(1, this::load);
+
+        cache.put(1, "Orion edited");
+        refreshTasks.get(0).run();
+
+        assertEquals("Orion edited", cache.get(1));
+    }
+
+    @Test
+    void refresh_KeyDeletedFromSource_RemovesEntry() {
+        cache.getOrLoad(1, this::load);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        cache.getOrLoad(1, id -> null);
+
+        refreshTasks.get(0).run();
+
+        assertFalse(cache.contains(1));
+    }
+
+    @Test
+    void refresh_LoaderFails_KeepsCurrentValue() {
+        cache.getOrLoad(1, this::load);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        cache.getOrLoad(1, id -> {
+            throw new IllegalStateException("database unavailable");
+        });
+
+        refreshTasks.get(0).run();
+
+        assertEquals("Orion v1", cache.get(1));
+        assertEquals(1, cache.stats().getLoadFailureCount());
+    }
+
+    @Test
+    void constructor_RefreshAfterNotBelowTtl_Throws() {
+        CacheSettings settings = new CacheSettings(10, Duration.ofMinutes(10), false);
+        settings.setRefreshAfter(Duration.ofMinutes(10));
+
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryCache<Integer, String>("constellations", settings));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.CompactStarCodec;
+import com.example.rememberconstellations.cache.NearStarCache;
+import com.example.rememberconstellations.cache.OffHeapSettings;
+import com.example.rememberconstellations.cache.OffHeapStarStore;
+import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.cache.StarPartitioner;
+import com.example.rememberconstellations.dtos.StarDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StarCacheTest {
+
+    @Mock
+    private StarPartitioner partitioner;
+
+    private final AtomicLong time = new AtomicLong();
+    private StarCache starCache;
+
+    @BeforeEach
+    void setUp() {
+        // a single heap slot, so a second star moves the first one to the off-heap tier only
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cache.stars.max-size", "1")
+                .withProperty("cache.stars.ttl", "1h")
+                .withProperty("cache.stars.expire-after-access", "false")
+                .withProperty("cache.stars.serve-stale-for", "1h");
+        OffHeapSettings offHeapSettings = new OffHeapSettings();
+        offHeapSettings.setCapacity(DataSize.ofKilobytes(8));
+        offHeapSettings.setSlabSize(DataSize.ofKilobytes(1));
+        OffHeapStarStore offHeapStore = new OffHeapStarStore(offHeapSettings, Duration.ofHours(2), time::get);
+        lenient().when(partitioner.isOwnedLocally(anyInt())).thenReturn(true);
+        starCache = new StarCache(environment, new CompactStarCodec(), offHeapStore, new NearStarCache(environment),
+                partitioner, time::get);
+    }
+
+    private static StarDto createStar(int id) {
+        return new StarDto(id, "Star " + id, "G-type", 1.0, 1.0, 5778.0, 1.0, 12.5, -7.25, "Center", null, null);
+    }
+
+    private void advance(Duration duration) {
+        time.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void get_OffHeapStarOlderThanTtl_Missed() {
+        starCache.put(1, createStar(1));
+        starCache.put(2, createStar(2));
+        advance(Duration.ofMinutes(30));
+
+        assertEquals("Star 1", starCache.get(1).getName());
+
+        // promoted with its original write time, not a fresh TTL
+        advance(Duration.ofMinutes(31));
+        assertNull(starCache.get(1));
+    }
+
+    @Test
+    void getStale_OffHeapStarOlderThanStaleWindow_Missed() {
+        starCache.put(1, createStar(1));
+        starCache.put(2, createStar(2));
+
+        advance(Duration.ofMinutes(90));
+        assertNull(starCache.get(1));
+        assertEquals("Star 1", starCache.getStale(1).getName());
+
+        advance(Duration.ofMinutes(31));
+        assertNull(starCache.getStale(1));
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.StarQuery;
+import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.events.StarChangedEvent;
+import com.example.rememberconstellations.indexes.SkyCone;
+import com.example.rememberconstellations.indexes.StarColumnIndex;
+import com.example.rememberconstellations.indexes.StarFeatures;
+import com.example.rememberconstellations.mappers.StarMapper;
+import com.example.rememberconstellations.models.Constellation;
+import com.example.rememberconstellations.models.Star;
+import com.example.rememberconstellations.repositories.StarsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StarColumnIndexTest {
+    private static final String[] TYPES = {"Red dwarf", "Main sequence", "Red giant", "White dwarf"};
+
+    @Mock
+    private StarsRepository starsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final StarMapper starMapper = new StarMapper();
+    private final List<Star> stars = new ArrayList<>();
+    private StarColumnIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        for (int id = 1; id <= 500; id++) {
+            Star star = new Star("Star " + id, TYPES[random.nextInt(TYPES.length)], random.nextDouble() * 20,
+                    random.nextDouble() * 50, 2000 + random.nextDouble() * 30000, random.nextDouble() * 1000,
+                    random.nextDouble() * 360, random.nextDouble() * 180 - 90, id % 3 == 0 ? null : "Alpha");
+            star.setId(id);
+            Constellation constellation = new Constellation();
+            constellation.setId(1 + random.nextInt(10));
+            star.setConstellation(id % 5 == 0 ? null : constellation);
+            stars.add(star);
+        }
+        when(starsRepository.findAll()).thenReturn(stars);
+        index = new StarColumnIndex(starsRepository, starMapper, transactionManager, true, 3, Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.stop();
+    }
+
+    private void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private List<StarDto> expected(StarQuery query, List<StarDto> starDtos, Comparator<StarDto> order) {
+        List<StarDto> matches = new ArrayList<>(starDtos.stream().filter(query::matches).sorted(order).toList());
+        if (query.getPageSize() < 0) {
+            return matches;
+        }
+        int from = Math.min(matches.size(), query.getPageNumber() * query.getPageSize());
+        return matches.subList(from, Math.min(matches.size(), from + query.getPageSize()));
+    }
+
+    private static List<Integer> ids(List<StarDto> starDtos) {
+        return starDtos.stream().map(StarDto::getId).toList();
+    }
+
+    private static StarQuery query(Double mass, Double temperature, Double declination, Integer constellationId,
+                                   Pageable pageable) {
+        return StarQuery.of(null, null, mass, null, temperature, null, null, declination, null, constellationId,
+                pageable);
+    }
+
+    @Test
+    void search_BeforeBuilt_ReturnsNothing() {
+        assertTrue(index.search(query(1.0, null, null, null, null)).isEmpty());
+        assertFalse(index.isReady());
+    }
+
+    @Test
+    void search_RandomCriteria_MatchesFilteringEveryStar() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = stars.stream().map(starMapper::mapToDto).toList();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 300; i++) {
+            StarQuery query = StarQuery.of(
+                    random.nextInt(4) == 0 ? "star " + random.nextInt(10) : null,
+                    random.nextInt(4) == 0 ? TYPES[random.nextInt(TYPES.length)].substring(4) : null,
+                    random.nextBoolean() ? random.nextDouble() * 20 : null,
+                    random.nextBoolean() ? random.nextDouble() * 50 : null,
+                    random.nextBoolean() ? 2000 + random.nextDouble() * 30000 : null,
+                    random.nextInt(3) == 0 ? random.nextDouble() * 1000 : null,
+                    random.nextInt(3) == 0 ? random.nextDouble() * 360 : null,
+                    random.nextInt(3) == 0 ? random.nextDouble() * 180 - 90 : null,
+                    random.nextInt(5) == 0 ? "alp" : null,
+                    random.nextInt(4) == 0 ? 1 + random.nextInt(10) : null,
+                    null);
+
+            assertEquals(ids(expected(query, starDtos, Comparator.comparingInt(StarDto::getId))),
+                    ids(index.search(query).orElseThrow()), query.toString());
+        }
+    }
+
+    @Test
+    void search_TextFilters_MatchSubstringsExactly() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = stars.stream().map(starMapper::mapToDto).toList();
+
+        for (String name : List.of("ar 1", "star 4", "r 12", "STAR 333", "star 3333", "zzz", "st", "11")) {
+            StarQuery query = StarQuery.of(name, null, null, null, null, null, null, null, null, null, null);
+
+            assertEquals(ids(expected(query, starDtos, Comparator.comparingInt(StarDto::getId))),
+                    ids(index.search(query).orElseThrow()), name);
+        }
+    }
+
+    @Test
+    void findWithin_RandomCones_MatchesDistanceToEveryStar() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = stars.stream().map(starMapper::mapToDto).toList();
+        Random random = new Random(13);
+        List<SkyCone> cones = new ArrayList<>(List.of(SkyCone.of(359.5, 0, 20), SkyCone.of(0, 89, 15),
+                SkyCone.of(120, -90, 30), SkyCone.of(200, 10, 180)));
+        for (int i = 0; i < 200; i++) {
+            cones.add(SkyCone.of(random.nextDouble() * 360, random.nextDouble() * 180 - 90, random.nextDouble() * 40));
+        }
+
+        for (SkyCone cone : cones) {
+            List<StarDto> expected = starDtos.stream().filter(cone::contains).sorted(cone.byDistance()).toList();
+
+            assertEquals(ids(expected), ids(index.findWithin(cone).orElseThrow()),
+                    cone.getRightAscension() + ", " + cone.getDeclination() + ", " + cone.getRadius());
+        }
+    }
+
+    @Test
+    void findWithin_ChangedStars_FoundAtNewPosition() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        StarDto moved = starMapper.mapToDto(stars.get(4));
+        moved.setRightAscension(45.0);
+        moved.setDeclination(45.0);
+
+        index.onStarChanged(new StarChangedEvent(starMapper.mapToDto(stars.get(4)), moved));
+
+        assertTrue(ids(index.findWithin(SkyCone.of(45.0, 45.0, 0.01)).orElseThrow()).contains(moved.getId()));
+        assertEquals(List.of(), ids(index.findWithin(SkyCone.of(stars.get(4).getRightAscension(),
+                stars.get(4).getDeclination(), 0.0001)).orElseThrow()));
+    }
+
+    @Test
+    void findNearest_RandomOrigins_MatchesDistanceToEveryStar() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = stars.stream().map(starMapper::mapToDto).toList();
+        Random random = new Random(17);
+
+        for (int i = 0; i < 200; i++) {
+            StarDto origin = starDtos.get(random.nextInt(starDtos.size()));
+            int k = 1 + random.nextInt(i % 10 == 0 ? 600 : 20);
+            double minLuminosity = random.nextBoolean() ? random.nextDouble() * 1000 : Double.NEGATIVE_INFINITY;
+            List<StarDto> expected = starDtos.stream()
+                    .filter(star -> star.getId() != origin.getId() && star.getLuminosity() >= minLuminosity)
+                    .sorted(SkyCone.of(origin.getRightAscension(), origin.getDeclination(), 180).byDistance())
+                    .limit(k)
+                    .toList();
+
+            assertEquals(ids(expected), ids(index.findNearest(origin, k, minLuminosity).orElseThrow()),
+                    origin.getId() + ", " + k + ", " + minLuminosity);
+        }
+    }
+
+    @Test
+    void findNearest_ChangedStars_FoundAtNewPosition() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        StarDto origin = starMapper.mapToDto(stars.get(0));
+        StarDto moved = starMapper.mapToDto(stars.get(4));
+        moved.setRightAscension(origin.getRightAscension());
+        moved.setDeclination(origin.getDeclination());
+
+        index.onStarChanged(new StarChangedEvent(starMapper.mapToDto(stars.get(4)), moved));
+
+        assertEquals(List.of(moved.getId()), ids(index.findNearest(origin, 1, Double.NEGATIVE_INFINITY).orElseThrow()));
+    }
+
+    @Test
+    void findSimilar_RandomOrigins_MatchesDistanceToEveryStar() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = stars.stream().map(starMapper::mapToDto).toList();
+        StarFeatures features = StarFeatures.of(starDtos);
+        Random random = new Random(19);
+
+        for (int i = 0; i < 200; i++) {
+            StarDto origin = starDtos.get(random.nextInt(starDtos.size()));
+            int k = 1 + random.nextInt(i % 10 == 0 ? 600 : 20);
+            double maxDistance = random.nextBoolean() ? random.nextDouble() * 2 : Double.POSITIVE_INFINITY;
+            List<StarDto> expected = starDtos.stream()
+                    .filter(star -> star.getId() != origin.getId() && features.distance(origin, star) <= maxDistance)
+                    .sorted(features.byDistanceTo(origin))
+                    .limit(k)
+                    .toList();
+
+            assertEquals(ids(expected), ids(index.findSimilar(origin, k, maxDistance).orElseThrow()),
+                    origin.getId() + ", " + k + ", " + maxDistance);
+        }
+    }
+
+    @Test
+    void findSimilar_ChangedStars_FoundWithNewProperties() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        StarDto origin = starMapper.mapToDto(stars.get(0));
+        StarDto twin = starMapper.mapToDto(stars.get(4));
+        twin.setMass(origin.getMass());
+        twin.setRadius(origin.getRadius());
+        twin.setTemperature(origin.getTemperature());
+        twin.setLuminosity(origin.getLuminosity());
+        StarDto removed = starMapper.mapToDto(stars.get(5));
+
+        index.onStarChanged(new StarChangedEvent(starMapper.mapToDto(stars.get(4)), twin));
+        index.onStarChanged(new StarChangedEvent(removed, null));
+
+        List<Integer> similar = ids(index.findSimilar(origin, 500, Double.POSITIVE_INFINITY).orElseThrow());
+        assertEquals(twin.getId(), similar.get(0));
+        assertFalse(similar.contains(removed.getId()));
+        assertEquals(498, similar.size());
+    }
+
+    @Test
+    void search_SortedPage_ReturnsPageInRequestedOrder() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = stars.stream().map(starMapper::mapToDto).toList();
+        StarQuery query = query(5.0, null, -30.0, null,
+                PageRequest.of(2, 15, Sort.by(Sort.Direction.DESC, "mass")));
+
+        List<StarDto> result = index.search(query).orElseThrow();
+
+        assertEquals(15, result.size());
+        assertEquals(ids(expected(query, starDtos, Comparator.comparing(StarDto::getMass).reversed())), ids(result));
+    }
+
+    @Test
+    void search_RandomOrdersWithChangedStars_MatchSortingEveryStar() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        List<StarDto> starDtos = new ArrayList<>(stars.stream().map(starMapper::mapToDto).toList());
+        // a star losing its mass sorts with the nulls, a new one ties with an indexed star
+        StarDto massless = starMapper.mapToDto(stars.get(4));
+        massless.setMass(null);
+        StarDto twin = new StarDto(1001, "Twin", "Red dwarf", stars.get(10).getMass(), 1.0, 3000.0, 1.0, 10.0, 10.0,
+                null, null, null);
+        index.onStarChanged(new StarChangedEvent(starMapper.mapToDto(stars.get(4)), massless));
+        index.onStarChanged(new StarChangedEvent(null, twin));
+        starDtos.set(4, massless);
+        starDtos.add(twin);
+        List<Sort> sorts = List.of(Sort.unsorted(), Sort.by("mass"), Sort.by(Sort.Direction.DESC, "mass"),
+                Sort.by(Sort.Direction.DESC, "id"), Sort.by("temperature").and(Sort.by(Sort.Direction.DESC, "mass")),
+                Sort.by(Sort.Direction.DESC, "mass").and(Sort.by(Sort.Direction.DESC, "id")));
+        Random random = new Random(13);
+
+        for (int i = 0; i < 100; i++) {
+            Sort sort = sorts.get(random.nextInt(sorts.size()));
+            Pageable pageable = random.nextInt(5) == 0 ? Pageable.unpaged(sort)
+                    : PageRequest.of(random.nextInt(8), 1 + random.nextInt(40), sort);
+            StarQuery query = query(random.nextBoolean() ? random.nextDouble() * 20 : null, null, null, null, pageable);
+
+            assertEquals(ids(expected(query, starDtos, comparatorOf(sort))), ids(index.search(query).orElseThrow()),
+                    query.toString());
+        }
+    }
+
+    @Test
+    void search_ResultChangedByCaller_IndexUnaffected() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        StarQuery query = query(null, null, null, null, PageRequest.of(0, 1));
+
+        StarDto first = index.search(query).orElseThrow().get(0);
+        first.setName("Renamed");
+
+        StarDto again = index.search(query).orElseThrow().get(0);
+        assertNotSame(first, again);
+        assertEquals("Star 1", again.getName());
+    }
+
+    private static Comparator<StarDto> comparatorOf(Sort sort) {
+        Comparator<StarDto> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            Function<StarDto, Double> value = switch (order.getProperty()) {
+                case "id" -> star -> (double) star.getId();
+                case "mass" -> StarDto::getMass;
+                default -> StarDto::getTemperature;
+            };
+            Comparator<StarDto> property = Comparator.comparing(value, Comparator.nullsLast(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? property : property.reversed());
+        }
+        return comparator.thenComparingInt(StarDto::getId);
+    }
+
+    @Test
+    void search_OrderOnlyDatabaseApplies_ReturnsNothing() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+
+        assertTrue(index.search(query(null, null, null, null, PageRequest.of(0, 10, Sort.by("name")))).isEmpty());
+    }
+
+    @Test
+    void search_LikeWildcardsInFilter_MatchedLiterally() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+
+        for (String name : List.of("star_1", "star%1", "star\\1", "%", "_")) {
+            StarQuery query = StarQuery.of(name, null, null, null, null, null, null, null, null, null, null);
+
+            assertEquals(List.of(), index.search(query).orElseThrow(), name);
+        }
+    }
+
+    @Test
+    void onStarChanged_WritesVisibleBeforeAndAfterCompaction() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        StarDto moved = starMapper.mapToDto(stars.get(0));
+        moved.setMass(1000.0);
+        StarDto created = new StarDto(1000, "Nova", "Red giant", 2000.0, 1.0, 3000.0, 1.0, 10.0, 10.0, null, null, null);
+        StarDto removed = starMapper.mapToDto(stars.get(1));
+        removed.setMass(1500.0);
+        index.onStarChanged(new StarChangedEvent(null, removed));
+        StarQuery heavyStars = query(500.0, null, null, null, null);
+
+        index.onStarChanged(new StarChangedEvent(starMapper.mapToDto(stars.get(0)), moved));
+        index.onStarChanged(new StarChangedEvent(null, created));
+        assertEquals(List.of(1, 2, 1000), ids(index.search(heavyStars).orElseThrow()));
+
+        // the third changed star reached the compaction threshold, this change lands on whichever columns are current
+        index.onStarChanged(new StarChangedEvent(removed, null));
+        assertEquals(List.of(1, 1000), ids(index.search(heavyStars).orElseThrow()));
+        Thread.sleep(100);
+        assertEquals(List.of(1, 1000), ids(index.search(heavyStars).orElseThrow()));
+    }
+
+    @Test
+    void invalidate_StarChangedByAnotherInstance_ReloadedBeforeSearchesResume() throws InterruptedException {
+        index.start();
+        awaitUntil(index::isReady);
+        Star changed = stars.get(9);
+        changed.setMass(5000.0);
+        when(starsRepository.findAllById(anyIterable())).thenReturn(List.of(changed));
+
+        index.invalidate(changed.getId());
+        awaitUntil(index::isReady);
+
+        assertEquals(List.of(changed.getId()), ids(index.search(query(1000.0, null, null, null, null)).orElseThrow()));
+        verify(starsRepository).findAllById(anyIterable());
+    }
+}
@@ -1,28 +1,42 @@
 package com.example.rememberconstellations.servicesTests;
 
+import com.example.rememberconstellations.cache.MissingStarsCache;
 import com.example.rememberconstellations.cache.StarCache;
+import com.example.rememberconstellations.cache.StarQueryCache;
 import com.example.rememberconstellations.dtos.StarDto;
+import com.example.rememberconstellations.exceptions.InvalidInputException;
 import com.example.rememberconstellations.exceptions.ResourceNotFoundException;
 import com.example.rememberconstellations.exceptions.StarAlreadyExistsException;
+import com.example.rememberconstellations.indexes.StarColumnIndex;
 import com.example.rememberconstellations.mappers.StarMapper;
 import com.example.rememberconstellations.models.Star;
+import com.example.rememberconstellations.repositories.StarFeatureSums;
 import com.example.rememberconstellations.repositories.StarsRepository;
+import com.example.rememberconstellations.resilience.CircuitBreakerSettings;
+import com.example.rememberconstellations.resilience.DatabaseCircuitBreaker;
 import com.example.rememberconstellations.services.StarsService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.CannotCreateTransactionException;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +51,21 @@ class StarsServiceTest {
     @Mock
     private StarCache starCache;
 
+    @Mock
+    private StarQueryCache starQueryCache;
+
+    @Mock
+    private MissingStarsCache missingStarsCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private DatabaseCircuitBreaker databaseCircuitBreaker = new DatabaseCircuitBreaker(new CircuitBreakerSettings());
+
+    @Mock
+    private StarColumnIndex starColumnIndex;
+
     @InjectMocks
     private StarsService starsService;
 
@@ -123,7 +152,7 @@ class StarsServiceTest {
     @Test
     void getStarById_InCache_ReturnsCached() {
         StarDto cachedDto = new StarDto(1, "Sun", "G-type", 1.0, 1.0, 5778.0, 1.0, 0.0, 0.0, "Center", null, null);
-        when(starCache.get(1)).thenReturn(cachedDto);
+        when(starCache.getOrLoad(eq(1), any())).thenReturn(cachedDto);
 
         StarDto result = starsService.getStarById(1);
 
@@ -137,23 +166,74 @@ class StarsServiceTest {
         entity.setId(1);
         StarDto dto = new StarDto(1, "Sun", "G-type", 1.0, 1.0, 5778.0, 1.0, 0.0, 0.0, "Center", null, null);
 
-        when(starCache.get(1)).thenReturn(null);
+        when(starCache.getOrLoad(eq(1), any())).thenAnswer(this::loadThroughCache);
         when(starsRepository.findById(1)).thenReturn(Optional.of(entity));
         when(starMapper.mapToDto(entity)).thenReturn(dto);
 
         StarDto result = starsService.getStarById(1);
 
-        verify(starCache).put(1, dto);
+        verify(starsRepository).findById(1);
         assertEquals(dto, result);
     }
 
     @Test
     void getStarById_NotFound_ThrowsException() {
-        when(starCache.get(1)).thenReturn(null);
+        when(starCache.getOrLoad(eq(1), any())).thenAnswer(this::loadThroughCache);
         when(starsRepository.findById(1)).thenReturn(Optional.empty());
+        when(missingStarsCache.currentEpoch()).thenReturn(7L);
 
         assertThrows(ResourceNotFoundException.class, () -> starsService.getStarById(1));
+        verify(missingStarsCache).markMissing(1, 7L);
+    }
+
+    @Test
+    void getStarById_KnownMissing_SkipsCacheAndRepository() {
+        when(missingStarsCache.isMissing(1)).thenReturn(true);
+
+        ResourceNotFoundException exception =
+                assertThrows(ResourceNotFoundException.class, () -> starsService.getStarById(1));
+
+        assertEquals(0, exception.getStackTrace().length);
+        verify(starCache, never()).getOrLoad(anyInt(), any());
+        verify(starsRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void getStarById_DatabaseUnavailable_ServesStaleEntry() {
+        StarDto staleDto = new StarDto(1, "Sun", "G-type", 1.0, 1.0, 5778.0, 1.0, 0.0, 0.0, "Center", null, null);
+        when(starCache.getOrLoad(eq(1), any())).thenAnswer(this::loadThroughCache);
+        when(starsRepository.findById(1)).thenThrow(new CannotCreateTransactionException("Connection refused"));
+        when(starCache.getStale(1)).thenReturn(staleDto);
+
+        assertEquals(staleDto, starsService.getStarById(1));
+        verify(missingStarsCache, never()).markMissing(anyInt(), anyLong());
     }
+
+    @Test
+    void getStarById_DatabaseUnavailableWithoutStaleEntry_Rethrows() {
+        when(starCache.getOrLoad(eq(1), any())).thenAnswer(this::loadThroughCache);
+        when(starsRepository.findById(1)).thenThrow(new CannotCreateTransactionException("Connection refused"));
+
+        assertThrows(CannotCreateTransactionException.class, () -> starsService.getStarById(1));
+    }
+
+    /**
+     * Lets the mocked mapper copy every field of the entity but the image and constellation.
+     */
+    private void mapStarsToDtos() {
+        when(starMapper.mapToDto(any(Star.class))).thenAnswer(invocation -> {
+            Star star = invocation.getArgument(0);
+            return new StarDto(star.getId(), star.getName(), star.getType(), star.getMass(), star.getRadius(),
+                    star.getTemperature(), star.getLuminosity(), star.getRightAscension(), star.getDeclination(),
+                    star.getPositionInConstellation(), null, null);
+        });
+    }
+
+    private StarDto loadThroughCache(InvocationOnMock invocation) {
+        Function<Integer, StarDto> loader = invocation.getArgument(1);
+        return loader.apply(invocation.getArgument(0));
+    }
+
     @Test
     void putStar_NonExistentId_ThrowsResourceNotFound() {
         StarDto inputDto = new StarDto(999, "NewStar", "Type", 1.0, 1.0, 5000.0, 1.0, 0.0, 0.0, "Pos", null, null);
@@ -223,6 +303,144 @@ class StarsServiceTest {
         verify(starCache).put(1, result.get(0));
     }
 
+    @Test
+    void getStarsByCriteria_IndexReady_SkipsRepository() {
+        // Setup
+        StarDto starDto = new StarDto(1, "Star", "Type", 1.0, 1.0, 5000.0, 1.0, 0.0, 0.0, "Pos", null, null);
+        when(starColumnIndex.search(any())).thenReturn(Optional.of(List.of(starDto)));
+
+        // Execute
+        List<StarDto> result = starsService.getStarsByCriteria(
+                "Star", null, 1.0, null, null, null, null, null, null, null, null
+        );
+
+        // Verify
+        assertEquals(List.of(starDto), result);
+        verifyNoInteractions(starsRepository, starQueryCache);
+    }
+
+    @Test
+    void getStarsNear_IndexNotReady_FiltersRepositoryResultsByDistance() {
+        // Setup
+        Star near = new Star("Near", "Type", 1.0, 1.0, 5000.0, 1.0, 359.0, 1.0, "Pos");
+        near.setId(1);
+        Star inBoundingBoxOnly = new Star("Corner", "Type", 1.0, 1.0, 5000.0, 1.0, 1.9, 1.9, "Pos");
+        inBoundingBoxOnly.setId(2);
+        Star nearest = new Star("Nearest", "Type", 1.0, 1.0, 5000.0, 1.0, 0.5, 0.0, "Pos");
+        nearest.setId(3);
+        when(starColumnIndex.findWithin(any())).thenReturn(Optional.empty());
+        when(starsRepository.findAll(any(Specification.class))).thenReturn(List.of(near, inBoundingBoxOnly, nearest));
+        mapStarsToDtos();
+
+        // Execute
+        List<StarDto> result = starsService.getStarsNear(0.0, 0.0, 2.0);
+
+        // Verify
+        assertEquals(List.of(3, 1), result.stream().map(StarDto::getId).toList());
+    }
+
+    @Test
+    void getStarsNear_InvalidPosition_ThrowsException() {
+        assertThrows(InvalidInputException.class, () -> starsService.getStarsNear(360.0, 0.0, 1.0));
+        assertThrows(InvalidInputException.class, () -> starsService.getStarsNear(10.0, -91.0, 1.0));
+        assertThrows(InvalidInputException.class, () -> starsService.getStarsNear(10.0, 0.0, 0.0));
+        verifyNoInteractions(starsRepository, starColumnIndex);
+    }
+
+    @Test
+    void getNearestStars_IndexNotReady_WidensConeUntilEnoughStars() {
+        // Setup
+        StarDto origin = new StarDto(1, "Origin", "Type", 1.0, 1.0, 5000.0, 1.0, 0.0, 0.0, "Pos", null, null);
+        Star self = new Star("Origin", "Type", 1.0, 1.0, 5000.0, 1.0, 0.0, 0.0, "Pos");
+        self.setId(1);
+        Star near = new Star("Near", "Type", 1.0, 1.0, 5000.0, 1.0, 359.5, 0.0, "Pos");
+        near.setId(2);
+        Star far = new Star("Far", "Type", 1.0, 1.0, 5000.0, 1.0, 3.0, 0.0, "Pos");
+        far.setId(3);
+        Star farther = new Star("Farther", "Type", 1.0, 1.0, 5000.0, 1.0, 0.0, 3.5, "Pos");
+        farther.setId(4);
+        when(starCache.getOrLoad(eq(1), any())).thenReturn(origin);
+        when(starColumnIndex.findNearest(origin, 2, Double.NEGATIVE_INFINITY)).thenReturn(Optional.empty());
+        when(starsRepository.findAll(any(Specification.class)))
+                .thenReturn(List.of(self, near), List.of(self, near, farther, far));
+        mapStarsToDtos();
+
+        // Execute
+        List<StarDto> result = starsService.getNearestStars(1, 2, null);
+
+        // Verify
+        assertEquals(List.of(2, 3), result.stream().map(StarDto::getId).toList());
+        verify(starsRepository, times(2)).findAll(any(Specification.class));
+    }
+
+    @Test
+    void getNearestStars_InvalidCountOrNoPosition_ThrowsException() {
+        StarDto unplaced = new StarDto(1, "Origin", "Type", 1.0, 1.0, 5000.0, 1.0, null, null, "Pos", null, null);
+        when(starCache.getOrLoad(eq(1), any())).thenReturn(unplaced);
+
+        assertThrows(InvalidInputException.class, () -> starsService.getNearestStars(1, 0, null));
+        assertThrows(InvalidInputException.class, () -> starsService.getNearestStars(1, 1001, null));
+        assertThrows(InvalidInputException.class, () -> starsService.getNearestStars(1, 5, null));
+        verifyNoInteractions(starsRepository, starColumnIndex);
+    }
+
+    @Test
+    void getSimilarStars_IndexNotReady_WidensRepositorySearchUntilKStarsFound() {
+        // Setup
+        StarDto origin = new StarDto(1, "Sun", "G-type", 1.0, 1.0, 5778.0, 1.0, 0.0, 0.0, "Pos", null, null);
+        Star self = new Star("Sun", "G-type", 1.0, 1.0, 5778.0, 1.0, 0.0, 0.0, "Pos");
+        self.setId(1);
+        Star twin = new Star("Twin", "G-type", 1.1, 1.0, 5800.0, 1.2, 10.0, 10.0, "Pos");
+        twin.setId(2);
+        Star giant = new Star("Giant", "M-type", 15.0, 900.0, 3500.0, 100000.0, 20.0, 20.0, "Pos");
+        giant.setId(3);
+        Star dwarf = new Star("Dwarf", "M-type", 0.2, 0.2, 3000.0, 0.005, 30.0, 30.0, "Pos");
+        dwarf.setId(4);
+        Star unmeasured = new Star("Unmeasured", "G-type", 1.0, 1.0, 5778.0, 0.0, 40.0, 40.0, "Pos");
+        unmeasured.setId(5);
+        when(starCache.getOrLoad(eq(1), any())).thenReturn(origin);
+        when(starColumnIndex.findSimilar(origin, 2, Double.POSITIVE_INFINITY)).thenReturn(Optional.empty());
+        when(starsRepository.sumFeatures()).thenReturn(featureSums(List.of(self, twin, giant, dwarf)));
+        // the first box only holds the twin, the wider one every star
+        when(starsRepository.findAll(any(Specification.class)))
+                .thenReturn(List.of(self, twin))
+                .thenReturn(List.of(self, twin, giant, dwarf, unmeasured));
+        mapStarsToDtos();
+
+        // Execute
+        List<StarDto> result = starsService.getSimilarStars(1, 2, null);
+
+        // Verify
+        assertEquals(List.of(2, 4), result.stream().map(StarDto::getId).toList());
+        verify(starsRepository, times(2)).findAll(any(Specification.class));
+    }
+
+    private static StarFeatureSums featureSums(List<Star> stars) {
+        List<Function<Star, Double>> properties = List.of(Star::getMass, Star::getRadius, Star::getTemperature,
+                Star::getLuminosity);
+        double[] sums = new double[8];
+        for (Star star : stars) {
+            for (int i = 0; i < properties.size(); i++) {
+                double value = Math.log10(properties.get(i).apply(star));
+                sums[2 * i] += value;
+                sums[2 * i + 1] += value * value;
+            }
+        }
+        return new StarFeatureSums((long) stars.size(), sums[0], sums[1], sums[2], sums[3], sums[4], sums[5], sums[6],
+                sums[7]);
+    }
+
+    @Test
+    void getSimilarStars_InvalidArgumentsOrIncomparableStar_ThrowsException() {
+        StarDto unmeasured = new StarDto(1, "Sun", "G-type", 1.0, 1.0, 5778.0, null, 0.0, 0.0, "Pos", null, null);
+        when(starCache.getOrLoad(eq(1), any())).thenReturn(unmeasured);
+
+        assertThrows(InvalidInputException.class, () -> starsService.getSimilarStars(1, 0, null));
+        assertThrows(InvalidInputException.class, () -> starsService.getSimilarStars(1, 5, -1.0));
+        assertThrows(InvalidInputException.class, () -> starsService.getSimilarStars(1, 5, null));
+        verifyNoInteractions(starsRepository, starColumnIndex);
+    }
+
     /* CACHE VERIFICATION TESTS */
     @Test
     void getStarsByCriteria_UpdatesCacheForNewEntries() {
@@ -510,12 +728,7 @@ class StarsServiceTest {
 
         when(starsRepository.findById(1)).thenReturn(Optional.of(existingStar));
         when(starsRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
-        when(starMapper.mapToDto(any())).thenAnswer(inv -> {
-            Star s = inv.getArgument(0);
-            return new StarDto(s.getId(), s.getName(), s.getType(), s.getMass(),
-                    s.getRadius(), s.getTemperature(), s.getLuminosity(),
-                    s.getRightAscension(), s.getDeclination(), s.getPositionInConstellation(), null, null);
-        });
+        mapStarsToDtos();
 
         // Execute
         StarDto result = starsService.patchStar(1, patchDto);
@@ -546,12 +759,7 @@ class StarsServiceTest {
 
         when(starsRepository.findById(1)).thenReturn(Optional.of(existingStar));
         when(starsRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
-        when(starMapper.mapToDto(any())).thenAnswer(inv -> {
-            Star s = inv.getArgument(0);
-            return new StarDto(s.getId(), s.getName(), s.getType(), s.getMass(),
-                    s.getRadius(), s.getTemperature(), s.getLuminosity(),
-                    s.getRightAscension(), s.getDeclination(), s.getPositionInConstellation(), null, null);
-        });
+        mapStarsToDtos();
 
         // Execute
         StarDto result = starsService.patchStar(1, patchDto);
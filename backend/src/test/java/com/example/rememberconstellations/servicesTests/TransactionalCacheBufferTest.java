@@ -0,0 +1,69 @@
+package com.example.rememberconstellations.servicesTests;
+
+import com.example.rememberconstellations.cache.InMemoryCache;
+import com.example.rememberconstellations.cache.TransactionalCacheBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionalCacheBufferTest {
+
+    private final InMemoryCache<Integer, String> cache = new InMemoryCache<>();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    @Test
+    void runAfterCommit_NoTransaction_AppliesImmediately() {
+        TransactionalCacheBuffer.runAfterCommit(() -> cache.put(1, "Sun"));
+
+        assertEquals("Sun", cache.get(1));
+    }
+
+    @Test
+    void runAfterCommit_Commit_AppliesBufferedMutationsInOrder() {
+        cache.put(2, "Sirius");
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionalCacheBuffer.runAfterCommit(() -> cache.put(1, "Sun"));
+        TransactionalCacheBuffer.runAfterCommit(() -> cache.put(1, "Vega"));
+        TransactionalCacheBuffer.runAfterCommit(() -> cache.remove(2));
+
+        assertNull(cache.get(1));
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals("Vega", cache.get(1));
+        assertNull(cache.get(2));
+        assertFalse(TransactionSynchronizationManager.hasResource(TransactionalCacheBuffer.class));
+    }
+
+    @Test
+    void runAfterCommit_Rollback_DiscardsBufferedMutations() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionalCacheBuffer.runAfterCommit(() -> cache.put(1, "Sun"));
+
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertNull(cache.get(1));
+        assertFalse(TransactionSynchronizationManager.hasResource(TransactionalCacheBuffer.class));
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.rememberconstellations.stressTests;
+
+import com.example.rememberconstellations.cache.CacheSettings;
+import com.example.rememberconstellations.cache.InMemoryCache;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives {@link InMemoryCache} from many threads at once and checks its invariants, during the run where they
+ * must hold at every moment and after it where they must hold once the cache is quiescent.
+ * Run with {@code mvn -Pstress test}.
+ */
+@Tag("stress")
+class InMemoryCacheStressTest {
+
+    private static final Duration LONG_TTL = Duration.ofHours(1);
+
+    /**
+     * Mirrors the segment count of the cache: each segment may hold one entry over its capacity
+     * between storing an entry and evicting for it.
+     */
+    private static int segmentSlack(int maxSize) {
+        int concurrency = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+        return Math.max(1, Math.min(concurrency, Integer.highestOneBit(maxSize)));
+    }
+
+    private static String valueFor(int key, int length) {
+        StringBuilder value = new StringBuilder().append(key).append(':');
+        while (value.length() < length) {
+            value.append('*');
+        }
+        return value.toString();
+    }
+
+    private static void assertBelongsTo(int key, String value) {
+        if (value != null && !value.startsWith(key + ":")) {
+            throw new AssertionError("Key " + key + " maps to the value of another key: " + value);
+        }
+    }
+
+    @Test
+    void mixedOperations_BoundsAndAccountingHold() throws InterruptedException {
+        int maxSize = 1000;
+        long maxWeight = DataSize.ofKilobytes(24).toBytes();
+        CacheSettings settings = new CacheSettings(maxSize, LONG_TTL, true);
+        settings.setMaxWeight(DataSize.ofBytes(maxWeight));
+        InMemoryCache<Integer, String> cache = new InMemoryCache<>("stress", settings, (key, value) -> value.length());
+        int slack = segmentSlack(maxSize);
+
+        StressHarness.run(StressHarness.THREADS, (threadIndex, random) -> {
+            int key = random.nextInt(5 * maxSize);
+            int operation = random.nextInt(1000);
+            if (operation < 500) {
+                assertBelongsTo(key, cache.get(key));
+            } else if (operation < 800) {
+                cache.put(key, valueFor(key, 4 + random.nextInt(60)));
+            } else if (operation < 900) {
+                cache.remove(key);
+            } else if (operation < 950) {
+                assertBelongsTo(key, cache.getOrLoad(key, id -> valueFor(id, 16)));
+            } else if (operation < 999) {
+                assertBelongsTo(key, cache.computeIfPresent(key, (id, value) -> valueFor(id, value.length() + 1)));
+            } else if (random.nextInt(100) == 0) {
+                cache.clear();
+            }
+            if (threadIndex == 0) {
+                int size = cache.size();
+                if (size > maxSize + slack) {
+                    throw new AssertionError("Size " + size + " exceeds the bound " + maxSize + " by more than " + slack);
+                }
+            }
+        });
+
+        cache.cleanUp();
+        assertTrue(cache.size() <= maxSize, "size " + cache.size());
+        assertTrue(cache.weightedSize() <= maxWeight, "weight " + cache.weightedSize());
+        AtomicInteger entries = new AtomicInteger();
+        AtomicLong weight = new AtomicLong();
+        cache.forEachEntry((key, value, age) -> {
+            assertBelongsTo(key, value);
+            entries.incrementAndGet();
+            weight.addAndGet(value.length());
+        });
+        assertEquals(cache.size(), entries.get(), "entries visited");
+        assertEquals(cache.weightedSize(), weight.get(), "weight accounting");
+    }
+
+    @Test
+    void computeIfPresent_ConcurrentIncrements_NoLostUpdates() throws InterruptedException {
+        int keys = 64;
+        // far more room than keys, so that no segment evicts
+        InMemoryCache<Integer, Long> cache = new InMemoryCache<>("stress", new CacheSettings(64 * keys, LONG_TTL, true));
+        LongAdder[] increments = new LongAdder[keys];
+        for (int key = 0; key < keys; key++) {
+            cache.put(key, 0L);
+            increments[key] = new LongAdder();
+        }
+
+        StressHarness.run(StressHarness.THREADS, (threadIndex, random) -> {
+            int key = random.nextInt(keys);
+            if (cache.computeIfPresent(key, (id, value) -> value + 1) != null) {
+                increments[key].increment();
+            }
+            cache.get(random.nextInt(keys));
+        });
+
+        for (int key = 0; key < keys; key++) {
+            assertEquals(increments[key].sum(), cache.get(key), "increments of key " + key);
+        }
+    }
+
+    @Test
+    void put_SingleWriterPerKey_ReadsAreMonotonicAndLastWriteWins() throws InterruptedException {
+        int keys = 256;
+        int writers = Math.max(1, StressHarness.THREADS / 2);
+        InMemoryCache<Integer, Long> cache = new InMemoryCache<>("stress", new CacheSettings(16 * keys, LONG_TTL, true));
+        AtomicReferenceArray<Long> lastWritten = new AtomicReferenceArray<>(keys);
+        long[][] lastSeenByReader = new long[StressHarness.THREADS][keys];
+
+        StressHarness.run(StressHarness.THREADS, (threadIndex, random) -> {
+            int key = random.nextInt(keys);
+            if (threadIndex < writers) {
+                key = key - key % writers + threadIndex;
+                if (key >= keys) {
+                    return;
+                }
+                Long previous = lastWritten.get(key);
+                long version = previous == null ? 1 : previous + 1;
+                cache.put(key, version);
+                lastWritten.set(key, version);
+            } else {
+                Long version = cache.get(key);
+                long lastSeen = lastSeenByReader[threadIndex][key];
+                if (version == null ? lastSeen > 0 : version < lastSeen) {
+                    throw new AssertionError("Key " + key + " went back from version " + lastSeen + " to " + version);
+                }
+                if (version != null) {
+                    lastSeenByReader[threadIndex][key] = version;
+                }
+            }
+        });
+
+        for (int key = 0; key < keys; key++) {
+            assertEquals(lastWritten.get(key), cache.get(key), "last write of key " + key);
+        }
+    }
+
+    @Test
+    void getOrLoad_ConcurrentMisses_LoadEachKeyOnce() throws InterruptedException {
+        int keys = 1000;
+        InMemoryCache<Integer, String> cache = new InMemoryCache<>("stress", new CacheSettings(16 * keys, LONG_TTL, true));
+        AtomicIntegerArray loads = new AtomicIntegerArray(keys);
+
+        StressHarness.run(StressHarness.THREADS, (threadIndex, random) -> {
+            int key = random.nextInt(keys);
+            String value = cache.getOrLoad(key, id -> {
+                loads.incrementAndGet(id);
+                Thread.onSpinWait();
+                return valueFor(id, 8);
+            });
+            assertBelongsTo(key, value);
+        });
+
+        for (int key = 0; key < keys; key++) {
+            assertTrue(loads.get(key) <= 1, "key " + key + " was loaded " + loads.get(key) + " times");
+        }
+    }
+
+    @Test
+    void get_AdvancingClock_NeverServesExpiredEntries() throws InterruptedException {
+        int keys = 256;
+        long ttlNanos = 10_000;
+        int writers = Math.max(1, (StressHarness.THREADS - 1) / 2);
+        AtomicLong clock = new AtomicLong();
+        InMemoryCache<Integer, Long> cache = new InMemoryCache<>("stress",
+                new CacheSettings(1000, Duration.ofNanos(ttlNanos), false), clock::get);
+        // per key the version and the clock reading after its put returned, an upper bound of its write time
+        AtomicReferenceArray<long[]> completedPuts = new AtomicReferenceArray<>(keys);
+
+        StressHarness.run(Math.max(3, StressHarness.THREADS), (threadIndex, random) -> {
+            if (threadIndex == 0) {
+                clock.addAndGet(random.nextInt(100));
+                if (random.nextInt(100) == 0) {
+                    cache.cleanUp();
+                }
+                return;
+            }
+            int key = random.nextInt(keys);
+            if (threadIndex <= writers) {
+                key = key - key % writers + threadIndex - 1;
+                if (key >= keys) {
+                    return;
+                }
+                long[] previous = completedPuts.get(key);
+                long version = previous == null ? 1 : previous[0] + 1;
+                cache.put(key, version);
+                completedPuts.set(key, new long[] {version, clock.get()});
+            } else {
+                long readStart = clock.get();
+                Long version = cache.get(key);
+                long[] completed = completedPuts.get(key);
+                // a newer completed put bounds the write time of the version read as well
+                if (version != null && completed != null && completed[0] >= version
+                        && completed[1] + ttlNanos <= readStart) {
+                    throw new AssertionError("Key " + key + " version " + version + " served at " + readStart
+                            + ", written no later than " + completed[1] + " with a TTL of " + ttlNanos);
+                }
+            }
+        });
+
+        clock.addAndGet(ttlNanos);
+        for (int key = 0; key < keys; key++) {
+            assertNull(cache.get(key), "key " + key);
+        }
+        // expired entries are dropped at the resolution of the timer wheel, about a second
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.cleanUp();
+        assertEquals(0, cache.size());
+        assertTrue(cache.stats().getExpiryEvictionCount() > 0);
+    }
+}
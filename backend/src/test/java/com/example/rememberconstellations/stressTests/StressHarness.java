@@ -0,0 +1,78 @@
+package com.example.rememberconstellations.stressTests;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs workers on their own threads, all released at once, until the configured duration passes or one of them
+ * fails. Duration and thread count come from the {@code stress.duration} (ISO-8601, e.g. {@code PT30S}) and
+ * {@code stress.threads} system properties, so the same suite runs briefly in CI and for longer when
+ * validating a change to the cache.
+ */
+final class StressHarness {
+    static final Duration DURATION = Duration.parse(System.getProperty("stress.duration", "PT5S"));
+    static final int THREADS = Integer.getInteger("stress.threads",
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private StressHarness() {
+    }
+
+    @FunctionalInterface
+    interface Worker {
+
+        /**
+         * Called in a loop until the run ends.
+         */
+        void step(int threadIndex, ThreadLocalRandom random) throws Exception;
+    }
+
+    /**
+     * Runs {@code worker} on {@code threads} threads and rethrows the first failure, with the others suppressed.
+     */
+    static void run(int threads, Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean stop = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int threadIndex = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!stop.get()) {
+                        worker.step(threadIndex, random);
+                    }
+                } catch (Throwable throwable) {
+                    failures.add(throwable);
+                    stop.set(true);
+                }
+            }, "stress-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        long deadline = System.nanoTime() + DURATION.toNanos();
+        while (!stop.get() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        stop.set(true);
+        for (Thread thread : workers) {
+            thread.join(DURATION.toMillis() + 10_000);
+            if (thread.isAlive()) {
+                failures.add(new AssertionError(thread.getName() + " did not finish, possible deadlock"));
+            }
+        }
+        Throwable failure = failures.poll();
+        if (failure != null) {
+            failures.forEach(failure::addSuppressed);
+            throw new AssertionError("Stress run failed: " + failure, failure);
+        }
+    }
+}